@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.consul.config.ConsulConfigProperties;
+import org.springframework.cloud.consul.config.ConsulPropertySource;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Parsing of a context into a {@link ConsulPropertySource}, in the key value and the
+ * YAML format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigParsingBenchmark {
+
+	private static final String CONTEXT = "config/application/";
+
+	@Param({ "10", "100", "1000" })
+	private int keys;
+
+	private ConsulConfigProperties keyValueProperties;
+
+	private ConsulConfigProperties yamlProperties;
+
+	private ResponseEntity<List<GetValue>> keyValueResponse;
+
+	private ResponseEntity<List<GetValue>> yamlResponse;
+
+	@Setup
+	public void setup() {
+		this.keyValueProperties = new ConsulConfigProperties();
+		this.yamlProperties = new ConsulConfigProperties();
+		this.yamlProperties.setFormat(ConsulConfigProperties.Format.YAML);
+		this.keyValueResponse = response(ConsulPayloads.keyValues(CONTEXT, this.keys));
+		this.yamlResponse = response(ConsulPayloads.yaml(CONTEXT, this.yamlProperties.getDataKey(), this.keys));
+	}
+
+	private static ResponseEntity<List<GetValue>> response(List<GetValue> values) {
+		return ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, "1").body(values);
+	}
+
+	@Benchmark
+	public ConsulPropertySource keyValue() {
+		ConsulPropertySource propertySource = new ConsulPropertySource(CONTEXT, null, this.keyValueProperties);
+		propertySource.init(this.keyValueResponse);
+		return propertySource;
+	}
+
+	@Benchmark
+	public ConsulPropertySource yaml() {
+		ConsulPropertySource propertySource = new ConsulPropertySource(CONTEXT, null, this.yamlProperties);
+		propertySource.init(this.yamlResponse);
+		return propertySource;
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.cloud.consul.model.http.kv.GetValue;
+
+/**
+ * Generates consul responses of a given size for the benchmarks.
+ */
+public final class ConsulPayloads {
+
+	private ConsulPayloads() {
+	}
+
+	/**
+	 * Returns the JSON of {@code /v1/health/service/{serviceName}} with the given number
+	 * of instances, each on its own node and with a node and a service check.
+	 * @param serviceName the service name
+	 * @param instances the number of instances
+	 * @return the response body
+	 */
+	public static String healthServices(String serviceName, int instances) {
+		StringBuilder json = new StringBuilder(instances * 1024).append('[');
+		for (int i = 0; i < instances; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			String node = "node-" + i;
+			String address = "10.0." + (i / 250) + "." + (i % 250 + 1);
+			String serviceId = serviceName + "-" + i;
+			json.append("{\"Node\":{\"ID\":\"")
+				.append(String.format("%08x-0000-0000-0000-000000000000", i))
+				.append("\",\"Node\":\"")
+				.append(node)
+				.append("\",\"Address\":\"")
+				.append(address)
+				.append("\",\"Datacenter\":\"dc1\",\"TaggedAddresses\":{\"lan\":\"")
+				.append(address)
+				.append("\",\"wan\":\"")
+				.append(address)
+				.append("\"},\"Meta\":{\"consul-network-segment\":\"\"},\"CreateIndex\":")
+				.append(10 + i)
+				.append(",\"ModifyIndex\":")
+				.append(10 + i)
+				.append("},\"Service\":{\"ID\":\"")
+				.append(serviceId)
+				.append("\",\"Service\":\"")
+				.append(serviceName)
+				.append("\",\"Tags\":[\"secure=false\",\"version=1.0.")
+				.append(i % 3)
+				.append("\"],\"Address\":\"")
+				.append(address)
+				.append("\",\"Meta\":{\"zone\":\"zone-")
+				.append(i % 3)
+				.append("\",\"group\":\"default\"},\"Port\":8080,\"EnableTagOverride\":false,\"CreateIndex\":")
+				.append(20 + i)
+				.append(",\"ModifyIndex\":")
+				.append(20 + i)
+				.append("},\"Checks\":[");
+			appendCheck(json, node, "serfHealth", "Serf Health Status", "", "");
+			json.append(',');
+			appendCheck(json, node, "service:" + serviceId, "Service '" + serviceName + "' check", serviceId,
+					serviceName);
+			json.append("]}");
+		}
+		return json.append(']').toString();
+	}
+
+	private static void appendCheck(StringBuilder json, String node, String checkId, String name, String serviceId,
+			String serviceName) {
+		json.append("{\"Node\":\"")
+			.append(node)
+			.append("\",\"CheckID\":\"")
+			.append(checkId)
+			.append("\",\"Name\":\"")
+			.append(name)
+			.append("\",\"Status\":\"passing\",\"Notes\":\"\",\"Output\":\"")
+			.append("HTTP GET http://localhost:8080/actuator/health: 200 OK Output: {\\\"status\\\":\\\"UP\\\"}")
+			.append("\",\"ServiceID\":\"")
+			.append(serviceId)
+			.append("\",\"ServiceName\":\"")
+			.append(serviceName)
+			.append("\",\"ServiceTags\":[],\"CreateIndex\":30,\"ModifyIndex\":30}");
+	}
+
+	/**
+	 * Returns the values of a context in the key value format, as returned by a recursive
+	 * read.
+	 * @param context the context, ending with a slash
+	 * @param keys the number of keys
+	 * @return the values
+	 */
+	public static List<GetValue> keyValues(String context, int keys) {
+		List<GetValue> values = new ArrayList<>(keys + 1);
+		values.add(value(context, null));
+		for (int i = 0; i < keys; i++) {
+			values.add(value(context + "group" + (i % 10) + "/section" + (i % 7) + "/property" + i, "value-" + i));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the values of a context holding a single YAML document under the given data
+	 * key.
+	 * @param context the context, ending with a slash
+	 * @param dataKey the data key
+	 * @param properties the number of properties in the document
+	 * @return the values
+	 */
+	public static List<GetValue> yaml(String context, String dataKey, int properties) {
+		StringBuilder yaml = new StringBuilder();
+		for (int group = 0; group < 10; group++) {
+			yaml.append("group").append(group).append(":\n");
+			for (int i = group; i < properties; i += 10) {
+				yaml.append("  property").append(i).append(": value-").append(i).append('\n');
+			}
+		}
+		return Collections.singletonList(value(context + dataKey, yaml.toString()));
+	}
+
+	private static GetValue value(String key, String value) {
+		GetValue getValue = new GetValue();
+		getValue.setKey(key);
+		if (value != null) {
+			getValue.setValue(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+		}
+		getValue.setCreateIndex(1);
+		getValue.setModifyIndex(1);
+		return getValue;
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.consul.discovery.ConsulServerUtils;
+import org.springframework.cloud.consul.discovery.ConsulServiceInstance;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.serviceregistry.ConsulAutoRegistration;
+
+/**
+ * The per-instance work of discovery and registration: turning health results into
+ * service instances and normalizing hosts and service ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiscoveryBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int instances;
+
+	private List<HealthService> healthServices;
+
+	@Setup
+	public void setup() {
+		byte[] json = ConsulPayloads.healthServices("bench", this.instances).getBytes(StandardCharsets.UTF_8);
+		this.healthServices = JsonMapper.builder().build().readValue(json, new TypeReference<List<HealthService>>() {
+		});
+	}
+
+	@Benchmark
+	public List<ServiceInstance> serviceInstances() {
+		List<ServiceInstance> instances = new ArrayList<>(this.healthServices.size());
+		for (HealthService healthService : this.healthServices) {
+			instances.add(new ConsulServiceInstance(healthService, "bench"));
+		}
+		return instances;
+	}
+
+	@Benchmark
+	public void findHost(Blackhole blackhole) {
+		for (HealthService healthService : this.healthServices) {
+			blackhole.consume(ConsulServerUtils.findHost(healthService));
+		}
+	}
+
+	@Benchmark
+	public void fixIPv6Address(Blackhole blackhole) {
+		blackhole.consume(ConsulServerUtils.fixIPv6Address("10.0.0.1"));
+		blackhole.consume(ConsulServerUtils.fixIPv6Address("fe80:0:0:0:0:0:c0a8:101"));
+		blackhole.consume(ConsulServerUtils.fixIPv6Address("[::1]"));
+	}
+
+	@Benchmark
+	public String normalizeForDns() {
+		return ConsulAutoRegistration.normalizeForDns("my-application:some.host.example.com:8080");
+	}
+
+}
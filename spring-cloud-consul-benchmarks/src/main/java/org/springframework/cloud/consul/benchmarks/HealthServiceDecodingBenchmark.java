@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.HealthServiceDecoder;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Decoding of large {@code /v1/health/service} responses, on its own and through
+ * {@link ConsulClient} against a {@link StubConsulAgent}, with data binding and with the
+ * {@link HealthServiceDecoder streaming decoder}. Run with {@code -prof gc} to compare
+ * the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HealthServiceDecodingBenchmark {
+
+	private static final String SERVICE = "bench";
+
+	private static final TypeReference<List<HealthService>> HEALTH_SERVICES = new TypeReference<>() {
+	};
+
+	@Param({ "10", "100", "1000" })
+	private int instances;
+
+	private byte[] json;
+
+	private JsonMapper jsonMapper;
+
+	private HealthServiceDecoder decoder;
+
+	private StubConsulAgent agent;
+
+	private ConsulClient client;
+
+	@Setup
+	public void setup() throws IOException {
+		String body = ConsulPayloads.healthServices(SERVICE, this.instances);
+		this.json = body.getBytes(StandardCharsets.UTF_8);
+		this.jsonMapper = JsonMapper.builder().build();
+		this.decoder = new HealthServiceDecoder();
+		this.agent = new StubConsulAgent().respond("/v1/health/service/" + SERVICE, body);
+		this.client = this.agent.createClient();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.agent.close();
+	}
+
+	@Benchmark
+	public List<HealthService> jackson() {
+		return this.jsonMapper.readValue(this.json, HEALTH_SERVICES);
+	}
+
+	@Benchmark
+	public HealthServices streaming() {
+		return this.decoder.decode(this.json);
+	}
+
+	@Benchmark
+	public ResponseEntity<List<HealthService>> client() {
+		return this.client.getHealthServices(SERVICE, false, null, null, QueryParams.DEFAULT);
+	}
+
+	@Benchmark
+	public ResponseEntity<HealthServices> streamingClient() {
+		return this.client.getHealthServiceInstances(SERVICE, false, null, null, QueryParams.DEFAULT);
+	}
+
+}
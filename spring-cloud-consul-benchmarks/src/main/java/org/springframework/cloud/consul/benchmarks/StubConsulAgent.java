@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.springframework.cloud.consul.ConsulAutoConfiguration;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulProperties;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+
+/**
+ * In-process HTTP server answering a fixed set of consul agent endpoints with canned
+ * JSON, so that client benchmarks measure the client rather than a real agent.
+ */
+public class StubConsulAgent implements AutoCloseable {
+
+	private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+
+	private final HttpServer server;
+
+	private final ExecutorService executor;
+
+	public StubConsulAgent() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.executor = Executors.newFixedThreadPool(4);
+		this.server.setExecutor(this.executor);
+		this.server.createContext("/v1/", this::handle);
+		this.server.start();
+	}
+
+	/**
+	 * Answers requests for the given path, ignoring query parameters.
+	 * @param path the request path, for example {@code /v1/health/service/myservice}
+	 * @param json the response body
+	 * @return this agent
+	 */
+	public StubConsulAgent respond(String path, String json) {
+		this.responses.put(path, json.getBytes(StandardCharsets.UTF_8));
+		return this;
+	}
+
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	/**
+	 * @return a client talking to this agent, created the same way as the auto-configured
+	 * one
+	 */
+	public ConsulClient createClient() {
+		ConsulProperties properties = new ConsulProperties();
+		properties.setHost(this.server.getAddress().getHostString());
+		properties.setPort(getPort());
+		return ConsulAutoConfiguration.createNewConsulClient(properties);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			byte[] body = this.responses.get(exchange.getRequestURI().getPath());
+			if (body == null) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.getResponseHeaders().set(ConsulHeaders.INDEX_HEADER, "1");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+}
@@ -24,6 +24,7 @@ import org.springframework.cloud.stream.binder.ProducerProperties;
 import org.springframework.integration.endpoint.EventDrivenConsumer;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
 
 /**
@@ -35,14 +36,28 @@ public class ConsulBinder extends AbstractBinder<MessageChannel, ConsumerPropert
 
 	private final EventService eventService;
 
+	private final TaskScheduler taskScheduler;
+
 	public ConsulBinder(EventService eventService) {
+		this(eventService, null);
+	}
+
+	/**
+	 * @param eventService the event service
+	 * @param taskScheduler shared scheduler the consumers poll for events on, or
+	 * {@code null} to give each consumer its own thread
+	 */
+	public ConsulBinder(EventService eventService, TaskScheduler taskScheduler) {
 		this.eventService = eventService;
+		this.taskScheduler = taskScheduler;
 	}
 
 	@Override
 	protected Binding<MessageChannel> doBindConsumer(String name, String group, MessageChannel inputChannel,
 			ConsumerProperties properties) {
-		ConsulInboundMessageProducer messageProducer = new ConsulInboundMessageProducer(this.eventService);
+		ConsulInboundMessageProducer messageProducer = this.taskScheduler != null
+				? new ConsulInboundMessageProducer(this.eventService, this.taskScheduler)
+				: new ConsulInboundMessageProducer(this.eventService);
 		messageProducer.setOutputChannel(inputChannel);
 		messageProducer.setBeanFactory(this.getBeanFactory());
 		messageProducer.afterPropertiesSet();
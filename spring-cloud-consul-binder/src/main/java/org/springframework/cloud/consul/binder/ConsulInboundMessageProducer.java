@@ -16,18 +16,21 @@
 
 package org.springframework.cloud.consul.binder;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.cloud.consul.model.http.event.Event;
 import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
 
 /**
  * Adapter that receives Messages from Consul Events, converts them into Spring
@@ -39,7 +42,9 @@ public class ConsulInboundMessageProducer extends MessageProducerSupport {
 
 	protected static final Log logger = LogFactory.getLog(ConsulInboundMessageProducer.class);
 
-	private final ScheduledExecutorService scheduler;
+	private final TaskScheduler scheduler;
+
+	private final ScheduledExecutorService ownedExecutor;
 
 	private final Runnable eventsRunnable;
 
@@ -48,8 +53,28 @@ public class ConsulInboundMessageProducer extends MessageProducerSupport {
 	private ScheduledFuture<?> eventsHandle;
 
 	public ConsulInboundMessageProducer(EventService eventService) {
+		this(eventService, Executors.newScheduledThreadPool(1));
+	}
+
+	/**
+	 * Creates a producer that polls for events on a shared scheduler, which is left
+	 * running when the producer stops.
+	 * @param eventService the event service to poll
+	 * @param scheduler the shared scheduler
+	 */
+	public ConsulInboundMessageProducer(EventService eventService, TaskScheduler scheduler) {
+		this(eventService, scheduler, null);
+	}
+
+	private ConsulInboundMessageProducer(EventService eventService, ScheduledExecutorService ownedExecutor) {
+		this(eventService, new ConcurrentTaskScheduler(ownedExecutor), ownedExecutor);
+	}
+
+	private ConsulInboundMessageProducer(EventService eventService, TaskScheduler scheduler,
+			ScheduledExecutorService ownedExecutor) {
 		this.eventService = eventService;
-		this.scheduler = Executors.newScheduledThreadPool(1);
+		this.scheduler = scheduler;
+		this.ownedExecutor = ownedExecutor;
 		this.eventsRunnable = new Runnable() {
 
 			@Override
@@ -78,7 +103,8 @@ public class ConsulInboundMessageProducer extends MessageProducerSupport {
 	@Override
 	protected void doStart() {
 		// TODO: make configurable
-		this.eventsHandle = this.scheduler.scheduleWithFixedDelay(this.eventsRunnable, 500, 500, TimeUnit.MILLISECONDS);
+		this.eventsHandle = this.scheduler.scheduleWithFixedDelay(this.eventsRunnable, Instant.now().plusMillis(500),
+				Duration.ofMillis(500));
 	}
 
 	@Override
@@ -86,7 +112,9 @@ public class ConsulInboundMessageProducer extends MessageProducerSupport {
 		if (this.eventsHandle != null) {
 			this.eventsHandle.cancel(true);
 		}
-		this.scheduler.shutdown();
+		if (this.ownedExecutor != null) {
+			this.ownedExecutor.shutdown();
+		}
 	}
 
 	// @Scheduled(fixedDelayString = "${spring.cloud.consul.binder.eventDelay:30000}")
@@ -16,13 +16,17 @@
 
 package org.springframework.cloud.consul.binder;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import jakarta.annotation.PostConstruct;
 import tools.jackson.databind.ObjectMapper;
 
+import org.springframework.cloud.consul.BlockingQueryWatcher;
 import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
 import org.springframework.cloud.consul.binder.config.ConsulBinderProperties;
 import org.springframework.cloud.consul.model.http.ConsulHeaders;
 import org.springframework.cloud.consul.model.http.event.Event;
@@ -41,10 +45,22 @@ public class EventService {
 
 	private AtomicReference<Long> lastIndex = new AtomicReference<>();
 
+	private final AtomicReference<ResponseEntity<List<Event>>> changed = new AtomicReference<>();
+
+	private final BlockingQueryWatcher<List<Event>> watcher;
+
 	public EventService(ConsulBinderProperties properties, ConsulClient consul, ObjectMapper objectMapper) {
 		this.properties = properties;
 		this.consul = consul;
 		this.objectMapper = objectMapper;
+		this.watcher = new BlockingQueryWatcher<>("events", this::getEventsResponse,
+				(response, previousIndex, newIndex) -> this.changed.set(response), null);
+		// the index of the event list is derived from the latest event, it is not a raft
+		// index and may well go down
+		this.watcher.setMonotonicIndex(false);
+		if (properties != null) {
+			this.watcher.setWaitTime(Duration.ofSeconds(properties.getEventTimeout()));
+		}
 	}
 
 	public ConsulClient getConsulClient() {
@@ -54,6 +70,10 @@ public class EventService {
 	@PostConstruct
 	public void init() {
 		setLastIndex(getEventsResponse());
+		Long lastIndex = getLastIndex();
+		if (lastIndex != null) {
+			this.watcher.setIndex(lastIndex);
+		}
 	}
 
 	public Long getLastIndex() {
@@ -76,6 +96,10 @@ public class EventService {
 		return this.consul.eventList();
 	}
 
+	private ResponseEntity<List<Event>> getEventsResponse(QueryParams queryParams) {
+		return this.consul.eventList((int) queryParams.getWaitTime(), queryParams.getIndex());
+	}
+
 	public List<Event> getEvents() {
 		return getEventsResponse().getBody();
 	}
@@ -84,8 +108,17 @@ public class EventService {
 		return filterEvents(readEvents(getEventsResponse()), lastIndex);
 	}
 
+	/**
+	 * Blocks until new events are fired or the event timeout elapses. Returns right away
+	 * with no events while backing off after failed or early returning queries.
+	 * @return the events fired since the previous call
+	 */
 	public List<Event> watch() {
-		return watch(this.lastIndex.get());
+		Long lastIndex = this.lastIndex.get();
+		if (!this.watcher.poll()) {
+			return Collections.emptyList();
+		}
+		return filterEvents(readEvents(this.changed.getAndSet(null)), lastIndex);
 	}
 
 	public List<Event> watch(Long lastIndex) {
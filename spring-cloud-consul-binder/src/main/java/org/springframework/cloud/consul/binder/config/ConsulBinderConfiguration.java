@@ -18,7 +18,9 @@ package org.springframework.cloud.consul.binder.config;
 
 import tools.jackson.databind.ObjectMapper;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
@@ -30,6 +32,9 @@ import org.springframework.cloud.stream.binder.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.TaskScheduler;
+
+import static org.springframework.cloud.consul.ConsulAutoConfiguration.CONSUL_TASK_SCHEDULER_NAME;
 
 /**
  * Configures the Consul binder.
@@ -58,8 +63,9 @@ public class ConsulBinderConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public ConsulBinder consulClientBinder(EventService eventService) {
-		return new ConsulBinder(eventService);
+	public ConsulBinder consulClientBinder(EventService eventService,
+			@Qualifier(CONSUL_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> consulTaskScheduler) {
+		return new ConsulBinder(eventService, consulTaskScheduler.getIfAvailable());
 	}
 
 	// TODO: create consul client if needed
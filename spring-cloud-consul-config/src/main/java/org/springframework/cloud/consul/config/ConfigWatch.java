@@ -17,37 +17,57 @@
 package org.springframework.cloud.consul.config;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import io.micrometer.core.annotation.Timed;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.cloud.consul.BlockingQueryWatcher;
 import org.springframework.cloud.consul.ConsulClient;
-import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
 import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.cloud.endpoint.event.RefreshEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.util.ObjectUtils;
-import org.springframework.util.ReflectionUtils;
 
 import static org.springframework.cloud.consul.config.ConsulConfigProperties.Format.FILES;
 
 /**
+ * Watches the configuration contexts for changes and publishes a {@link RefreshEvent}
+ * when one of them changes. Every context runs its own blocking query on the
+ * {@link TaskScheduler} through a {@link BlockingQueryWatcher}, with its own index,
+ * jitter and backoff, so a change is seen within one wait period no matter how many
+ * contexts are watched, as long as the scheduler has a thread per context. With
+ * {@link ConsulConfigProperties.Watch.Mode#PREFIX} the contexts sharing a prefix are
+ * watched with a single recursive query instead.
+ *
  * @author Spencer Gibb
  */
-public class ConfigWatch implements ApplicationEventPublisherAware, SmartLifecycle {
+public class ConfigWatch implements ApplicationEventPublisherAware, EnvironmentAware, SmartLifecycle {
 
 	private static final Log log = LogFactory.getLog(ConfigWatch.class);
 
@@ -59,43 +79,122 @@ public class ConfigWatch implements ApplicationEventPublisherAware, SmartLifecyc
 
 	private final AtomicBoolean running = new AtomicBoolean(false);
 
-	private LinkedHashMap<String, Long> consulIndexes;
+	private final Map<String, Long> consulIndexes;
+
+	private final List<Watcher> watchers = new ArrayList<>();
 
 	private ApplicationEventPublisher publisher;
 
-	private boolean firstTime = true;
+	private ConfigurableEnvironment environment;
 
-	private ScheduledFuture<?> watchFuture;
+	private ConsulConfigSnapshot snapshot;
 
 	public ConfigWatch(ConsulConfigProperties properties, ConsulClient consul,
 			LinkedHashMap<String, Long> initialIndexes) {
-		this(properties, consul, initialIndexes, getTaskScheduler());
+		this(properties, consul, initialIndexes, getTaskScheduler(properties, initialIndexes.size()));
 	}
 
 	public ConfigWatch(ConsulConfigProperties properties, ConsulClient consul,
 			LinkedHashMap<String, Long> initialIndexes, TaskScheduler taskScheduler) {
 		this.properties = properties;
 		this.consul = consul;
-		this.consulIndexes = new LinkedHashMap<>(initialIndexes);
+		this.consulIndexes = Collections.synchronizedMap(new LinkedHashMap<>(initialIndexes));
 		this.taskScheduler = taskScheduler;
+		if (properties.getWatch().getMode() == ConsulConfigProperties.Watch.Mode.PREFIX) {
+			Map<String, String> paths = new LinkedHashMap<>();
+			for (String context : initialIndexes.keySet()) {
+				paths.put(getPath(context), context);
+			}
+			getWatchPrefixes(paths.keySet()).forEach((prefix, prefixPaths) -> {
+				List<String> contexts = new ArrayList<>();
+				for (String path : prefixPaths) {
+					contexts.add(paths.get(path));
+				}
+				this.watchers.add(new PrefixWatch(prefix, contexts));
+			});
+		}
+		else {
+			for (String context : initialIndexes.keySet()) {
+				this.watchers.add(new ContextWatch(context));
+			}
+		}
 	}
 
-	private static ThreadPoolTaskScheduler getTaskScheduler() {
+	private static ThreadPoolTaskScheduler getTaskScheduler(ConsulConfigProperties properties, int contexts) {
 		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.setPoolSize(getPoolSize(properties, contexts));
 		taskScheduler.initialize();
 		return taskScheduler;
 	}
 
+	/**
+	 * Returns the number of threads needed to watch every context concurrently, capped at
+	 * {@link ConsulConfigProperties.Watch#getMaxConcurrency()}.
+	 * @param properties the config properties
+	 * @param contexts the number of watched contexts
+	 * @return the pool size for the watch task scheduler
+	 */
+	static int getPoolSize(ConsulConfigProperties properties, int contexts) {
+		return Math.max(1, Math.min(contexts, properties.getWatch().getMaxConcurrency()));
+	}
+
+	/**
+	 * Groups context paths by their top level folder and returns, for every group, the
+	 * deepest folder that contains all of its paths. A path without a folder is its own
+	 * prefix.
+	 * @param paths the context paths
+	 * @return the context paths keyed by the prefix to watch them with
+	 */
+	static Map<String, List<String>> getWatchPrefixes(Collection<String> paths) {
+		Map<String, List<String>> groups = new LinkedHashMap<>();
+		for (String path : paths) {
+			int slash = path.indexOf('/');
+			String topLevel = slash >= 0 ? path.substring(0, slash + 1) : path;
+			groups.computeIfAbsent(topLevel, key -> new ArrayList<>()).add(path);
+		}
+		Map<String, List<String>> prefixes = new LinkedHashMap<>();
+		for (List<String> group : groups.values()) {
+			String common = group.get(0);
+			for (String path : group) {
+				int i = 0;
+				while (i < common.length() && i < path.length() && common.charAt(i) == path.charAt(i)) {
+					i++;
+				}
+				common = common.substring(0, i);
+			}
+			int slash = common.lastIndexOf('/');
+			String prefix = slash >= 0 ? common.substring(0, slash + 1) : common;
+			prefixes.computeIfAbsent(prefix, key -> new ArrayList<>()).addAll(group);
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Sets the snapshot to bring up to date with every change that is seen.
+	 * @param snapshot the snapshot, or {@code null}
+	 */
+	public void setSnapshot(ConsulConfigSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
 	@Override
 	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
 		this.publisher = publisher;
 	}
 
+	@Override
+	public void setEnvironment(Environment environment) {
+		if (environment instanceof ConfigurableEnvironment) {
+			this.environment = (ConfigurableEnvironment) environment;
+		}
+	}
+
 	@Override
 	public void start() {
 		if (this.running.compareAndSet(false, true)) {
-			this.watchFuture = this.taskScheduler.scheduleWithFixedDelay(this::watchConfigKeyValues,
-					Duration.ofMillis(this.properties.getWatch().getDelay()));
+			for (Watcher watcher : this.watchers) {
+				watcher.watcher.start();
+			}
 		}
 	}
 
@@ -117,8 +216,10 @@ public class ConfigWatch implements ApplicationEventPublisherAware, SmartLifecyc
 
 	@Override
 	public void stop() {
-		if (this.running.compareAndSet(true, false) && this.watchFuture != null) {
-			this.watchFuture.cancel(true);
+		if (this.running.compareAndSet(true, false)) {
+			for (Watcher watcher : this.watchers) {
+				watcher.watcher.stop();
+			}
 		}
 	}
 
@@ -127,86 +228,381 @@ public class ConfigWatch implements ApplicationEventPublisherAware, SmartLifecyc
 		return this.running.get();
 	}
 
-	@Timed("consul.watch-config-keys")
+	/**
+	 * Runs one watch round for every context, one after the other. The contexts are
+	 * normally watched concurrently once the watch is started, this is mostly useful to
+	 * trigger a check by hand.
+	 */
 	public void watchConfigKeyValues() {
 		if (!this.running.get()) {
 			return;
 		}
-		for (String context : this.consulIndexes.keySet()) {
+		for (Watcher watcher : this.watchers) {
+			watcher.watcher.poll();
+		}
+	}
 
-			// turn the context into a Consul folder path (unless our config format
-			// are FILES)
-			if (this.properties.getFormat() != FILES && !context.endsWith("/")) {
-				context = context + "/";
-			}
+	// turn the context into a Consul folder path (unless our config format
+	// are FILES)
+	private String getPath(String context) {
+		if (this.properties.getFormat() != FILES && !context.endsWith("/")) {
+			return context + "/";
+		}
+		return context;
+	}
 
-			try {
-				Long currentIndex = this.consulIndexes.get(context);
-				if (currentIndex == null) {
-					currentIndex = -1L;
-				}
+	private String getAclToken() {
+		// use the consul ACL token if found
+		String aclToken = this.properties.getAclToken();
+		return ObjectUtils.isEmpty(aclToken) ? null : aclToken;
+	}
 
+	private void publish(String context, String path, Long prevIndex, Long newIndex, Set<String> changedKeys,
+			List<GetValue> values) {
+		if (log.isTraceEnabled()) {
+			log.trace("Context " + path + " has new index " + newIndex + " and changed keys " + changedKeys);
+		}
+		if (this.snapshot != null) {
+			this.snapshot.put(context, newIndex, values);
+		}
+		if (this.properties.getWatch().isIncremental()) {
+			ConsulPropertySource propertySource = findPropertySource(context);
+			if (propertySource != null) {
+				Set<String> changedNames = propertySource.update(values, changedKeys);
 				if (log.isTraceEnabled()) {
-					log.trace("watching consul for context '" + context + "' with index " + currentIndex);
+					log.trace("Updated properties " + changedNames + " of context " + path);
+				}
+				if (!changedNames.isEmpty()) {
+					this.publisher.publishEvent(new EnvironmentChangeEvent(changedNames));
 				}
+				return;
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("No property source found for context " + path + ", publishing a refresh event");
+			}
+		}
+		RefreshEventData data = new RefreshEventData(path, prevIndex, newIndex, changedKeys);
+		this.publisher.publishEvent(new RefreshEvent(this, data, data.toString()));
+	}
 
-				// use the consul ACL token if found
-				String aclToken = this.properties.getAclToken();
-				if (ObjectUtils.isEmpty(aclToken)) {
-					aclToken = null;
+	private ConsulPropertySource findPropertySource(String context) {
+		if (this.environment == null) {
+			return null;
+		}
+		return findPropertySource(this.environment.getPropertySources(), context);
+	}
+
+	private ConsulPropertySource findPropertySource(Iterable<PropertySource<?>> propertySources, String context) {
+		for (PropertySource<?> propertySource : propertySources) {
+			if (propertySource instanceof ConsulPropertySource && context.equals(propertySource.getName())) {
+				return (ConsulPropertySource) propertySource;
+			}
+			if (propertySource instanceof CompositePropertySource) {
+				ConsulPropertySource found = findPropertySource(
+						((CompositePropertySource) propertySource).getPropertySources(), context);
+				if (found != null) {
+					return found;
 				}
+			}
+		}
+		return null;
+	}
 
-				ResponseEntity<List<GetValue>> response = this.consul.getKVValues(context, aclToken,
-						(long) properties.getWatch().getWaitTime(), currentIndex);
-
-				// if response.value == null, response was a 404, otherwise it was a
-				// 200, reducing churn if there wasn't anything
-				if (HttpStatus.OK.isSameCodeAs(response.getStatusCode()) && response.hasBody()
-						&& !response.getBody().isEmpty()) {
-					Long newIndex = ConsulHeaders.getConsulIndex(response);
-
-					if (newIndex != null && !newIndex.equals(currentIndex)) {
-						// don't publish the same index again, don't publish the first
-						// time (-1) so index can be primed
-						if (!this.consulIndexes.containsValue(newIndex) && !currentIndex.equals(-1L)) {
-							if (log.isTraceEnabled()) {
-								log.trace("Context " + context + " has new index " + newIndex);
-							}
-							RefreshEventData data = new RefreshEventData(context, currentIndex, newIndex);
-							this.publisher.publishEvent(new RefreshEvent(this, data, data.toString()));
-						}
-						else if (log.isTraceEnabled()) {
-							log.trace("Event for index already published for context " + context);
-						}
-						this.consulIndexes.put(context, newIndex);
-					}
-					else if (log.isTraceEnabled()) {
-						log.trace("Same index for context " + context);
+	/**
+	 * Returns the modify indexes of the keys the property source of a context was loaded
+	 * or restored with, so that keys deleted before the first watch response are seen.
+	 * @param context the context
+	 * @return the modify index by key, or {@code null} if there is no such property
+	 * source
+	 */
+	private Map<String, Long> getLoadedModifyIndexes(String context) {
+		ConsulPropertySource propertySource = findPropertySource(context);
+		if (propertySource == null || propertySource.getInitialModifyIndexes() == null) {
+			return null;
+		}
+		String path = getPath(context);
+		Map<String, Long> modifyIndexes = new HashMap<>();
+		propertySource.getInitialModifyIndexes().forEach((key, modifyIndex) -> {
+			if (matches(path, key)) {
+				modifyIndexes.put(key, modifyIndex);
+			}
+		});
+		return modifyIndexes;
+	}
+
+	private static boolean matches(String path, String key) {
+		if (key == null) {
+			return false;
+		}
+		return path.endsWith("/") ? key.startsWith(path) : key.equals(path);
+	}
+
+	/**
+	 * Returns the {@code ModifyIndex} of every key below a context path.
+	 * @param path the context path
+	 * @param values the values returned by consul
+	 * @return the modify index by key
+	 */
+	static Map<String, Long> getModifyIndexes(String path, List<GetValue> values) {
+		Map<String, Long> modifyIndexes = new HashMap<>();
+		for (GetValue value : values) {
+			if (matches(path, value.getKey())) {
+				modifyIndexes.put(value.getKey(), value.getModifyIndex());
+			}
+		}
+		return modifyIndexes;
+	}
+
+	/**
+	 * Returns the keys that were added, modified or deleted between two responses. Without
+	 * a previous response only the keys modified after the index the context was loaded
+	 * with are known to have changed.
+	 * @param previous the modify indexes of the previous response, or {@code null}
+	 * @param current the modify indexes of the current response
+	 * @param loadedIndex the index the context was loaded with, or -1
+	 * @return the changed keys
+	 */
+	static Set<String> getChangedKeys(Map<String, Long> previous, Map<String, Long> current, Long loadedIndex) {
+		Set<String> changedKeys = new TreeSet<>();
+		if (previous == null) {
+			if (loadedIndex != null && loadedIndex != -1) {
+				current.forEach((key, modifyIndex) -> {
+					if (modifyIndex > loadedIndex) {
+						changedKeys.add(key);
 					}
+				});
+			}
+			return changedKeys;
+		}
+		current.forEach((key, modifyIndex) -> {
+			if (!modifyIndex.equals(previous.get(key))) {
+				changedKeys.add(key);
+			}
+		});
+		for (String key : previous.keySet()) {
+			if (!current.containsKey(key)) {
+				changedKeys.add(key);
+			}
+		}
+		return changedKeys;
+	}
+
+	/**
+	 * Runs the blocking query of one or more contexts on its own
+	 * {@link BlockingQueryWatcher}.
+	 */
+	private abstract class Watcher {
+
+		private BlockingQueryWatcher<List<GetValue>> watcher;
+
+		/**
+		 * Creates the watcher, called once the subclass is initialized.
+		 * @param index the index to block on first
+		 */
+		void init(long index) {
+			ConsulConfigProperties.Watch watch = ConfigWatch.this.properties.getWatch();
+			this.watcher = new BlockingQueryWatcher<>(getDescription(), this::query, this::onChange,
+					ConfigWatch.this.taskScheduler);
+			this.watcher.setWaitTime(Duration.ofSeconds(watch.getWaitTime()));
+			this.watcher.setDelay(Duration.ofMillis(watch.getDelay()));
+			this.watcher.setMaxBackoff(Duration.ofMillis(watch.getMaxBackoff()));
+			this.watcher.setIndex(index);
+			this.watcher.setErrorHandler(this::onError);
+		}
+
+		abstract String getDescription();
+
+		abstract ResponseEntity<List<GetValue>> query(QueryParams queryParams);
+
+		abstract void onChange(ResponseEntity<List<GetValue>> response, long previousIndex, long newIndex);
+
+		private void onError(RuntimeException e, boolean firstQuery) {
+			// only fail fast on the initial query, otherwise just log the error
+			if (firstQuery && ConfigWatch.this.properties.isFailFast()) {
+				log.error("Fail fast is set and there was an error reading configuration from consul.");
+				throw e;
+			}
+			else if (log.isTraceEnabled()) {
+				log.trace("Error querying consul Key/Values for " + getDescription(), e);
+			}
+			else if (log.isWarnEnabled()) {
+				// simplified one line log message in the event of an agent
+				// failure
+				log.warn("Error querying consul Key/Values for " + getDescription() + ". Message: " + e.getMessage());
+			}
+		}
+
+	}
+
+	/**
+	 * Watches a single context with its own blocking query.
+	 */
+	private final class ContextWatch extends Watcher {
+
+		private final String context;
+
+		private volatile Map<String, Long> modifyIndexes;
+
+		private ContextWatch(String context) {
+			this.context = context;
+			Long index = ConfigWatch.this.consulIndexes.get(context);
+			init(index != null ? index : BlockingQueryWatcher.NO_INDEX);
+		}
+
+		@Override
+		String getDescription() {
+			return "context '" + getPath(this.context) + "'";
+		}
+
+		@Override
+		ResponseEntity<List<GetValue>> query(QueryParams queryParams) {
+			String path = getPath(this.context);
+			if (log.isTraceEnabled()) {
+				log.trace("watching consul for context '" + path + "' with index " + queryParams.getIndex());
+			}
+			return ConfigWatch.this.consul.getKVValues(path, getAclToken(), queryParams.getWaitTime(),
+					queryParams.getIndex());
+		}
+
+		@Override
+		void onChange(ResponseEntity<List<GetValue>> response, long previousIndex, long newIndex) {
+			String path = getPath(this.context);
+
+			List<GetValue> values;
+			if (HttpStatus.OK.isSameCodeAs(response.getStatusCode()) && response.hasBody()) {
+				values = response.getBody();
+			}
+			else if (HttpStatus.NOT_FOUND.isSameCodeAs(response.getStatusCode())) {
+				// a 404 means there are no keys (left) below the context
+				values = Collections.emptyList();
+			}
+			else {
+				if (log.isTraceEnabled()) {
+					log.trace("No value for context " + path);
 				}
-				else if (log.isTraceEnabled()) {
-					log.trace("No value for context " + context);
+				return;
+			}
+
+			// the index is shared by the whole KV store, so only the keys of this
+			// context tell whether its content actually changed. The first response is
+			// compared with the keys the property source was loaded with, if known.
+			// Otherwise nothing is published the first time (-1) so the keys can be
+			// primed.
+			Map<String, Long> modifyIndexes = getModifyIndexes(path, values);
+			Map<String, Long> previous = (this.modifyIndexes != null) ? this.modifyIndexes
+					: getLoadedModifyIndexes(this.context);
+			Set<String> changedKeys = getChangedKeys(previous, modifyIndexes, previousIndex);
+			this.modifyIndexes = modifyIndexes;
+			ConfigWatch.this.consulIndexes.put(this.context, newIndex);
+			if (!changedKeys.isEmpty()) {
+				publish(this.context, path, previousIndex, newIndex, changedKeys, values);
+			}
+			else if (log.isTraceEnabled()) {
+				log.trace("No changed keys for context " + path + " at index " + newIndex);
+			}
+		}
+
+	}
+
+	/**
+	 * Watches all contexts under a common prefix with one recursive blocking query and
+	 * works out from the {@code ModifyIndex} of every key which contexts changed.
+	 */
+	private final class PrefixWatch extends Watcher {
+
+		private final String prefix;
+
+		private final List<String> contexts;
+
+		private final Map<String, Map<String, Long>> modifyIndexes = new ConcurrentHashMap<>();
+
+		private PrefixWatch(String prefix, List<String> contexts) {
+			this.prefix = prefix;
+			this.contexts = contexts;
+			init(getLowestIndex(contexts));
+		}
+
+		/**
+		 * Returns the lowest index the contexts were loaded with, so that no change made
+		 * after any of them was loaded is missed.
+		 * @param contexts the contexts under the prefix
+		 * @return the lowest index, or {@link BlockingQueryWatcher#NO_INDEX} if none of
+		 * the contexts has one
+		 */
+		private long getLowestIndex(List<String> contexts) {
+			long lowest = BlockingQueryWatcher.NO_INDEX;
+			for (String context : contexts) {
+				Long index = ConfigWatch.this.consulIndexes.get(context);
+				if (index != null && index != BlockingQueryWatcher.NO_INDEX
+						&& (lowest == BlockingQueryWatcher.NO_INDEX || Long.compareUnsigned(index, lowest) < 0)) {
+					lowest = index;
 				}
+			}
+			return lowest;
+		}
 
+		@Override
+		String getDescription() {
+			return "prefix '" + this.prefix + "'";
+		}
+
+		@Override
+		ResponseEntity<List<GetValue>> query(QueryParams queryParams) {
+			if (log.isTraceEnabled()) {
+				log.trace("watching consul for prefix '" + this.prefix + "' with index " + queryParams.getIndex());
 			}
-			catch (Exception e) {
-				// only fail fast on the initial query, otherwise just log the error
-				if (this.firstTime && this.properties.isFailFast()) {
-					log.error("Fail fast is set and there was an error reading configuration from consul.");
-					ReflectionUtils.rethrowRuntimeException(e);
+			// the index is left out until there is one, -1 is rejected by consul
+			ResponseEntity<List<GetValue>> response = ConfigWatch.this.consul.getKVValues(this.prefix, getAclToken(),
+					queryParams);
+			if (!response.getStatusCode().is2xxSuccessful()
+					&& !HttpStatus.NOT_FOUND.isSameCodeAs(response.getStatusCode())) {
+				// for example an ACL or server error, which says nothing about the keys
+				throw new IllegalStateException(
+						"Query of prefix '" + this.prefix + "' failed with status " + response.getStatusCode());
+			}
+			return response;
+		}
+
+		@Override
+		void onChange(ResponseEntity<List<GetValue>> response, long previousIndex, long newIndex) {
+			List<GetValue> values;
+			if (HttpStatus.OK.isSameCodeAs(response.getStatusCode()) && response.hasBody()) {
+				values = response.getBody();
+			}
+			else if (HttpStatus.NOT_FOUND.isSameCodeAs(response.getStatusCode())) {
+				// only a 404 means every key under the prefix is gone
+				values = Collections.emptyList();
+			}
+			else {
+				if (log.isTraceEnabled()) {
+					log.trace("No value for prefix " + this.prefix);
 				}
-				else if (log.isTraceEnabled()) {
-					log.trace("Error querying consul Key/Values for context '" + context + "'", e);
+				return;
+			}
+			for (String context : this.contexts) {
+				String path = getPath(context);
+				Map<String, Long> contextIndexes = getModifyIndexes(path, values);
+				Long currentIndex = ConfigWatch.this.consulIndexes.get(context);
+				Map<String, Long> previous = this.modifyIndexes.get(context);
+				if (previous == null) {
+					previous = getLoadedModifyIndexes(context);
 				}
-				else if (log.isWarnEnabled()) {
-					// simplified one line log message in the event of an agent
-					// failure
-					log.warn("Error querying consul Key/Values for context '" + context + "'. Message: "
-							+ e.getMessage());
+				Set<String> changedKeys = getChangedKeys(previous, contextIndexes, currentIndex);
+				this.modifyIndexes.put(context, contextIndexes);
+				if (!changedKeys.isEmpty()) {
+					long contextIndex = contextIndexes.values().stream().mapToLong(Long::longValue).max().orElse(0);
+					ConfigWatch.this.consulIndexes.put(context, contextIndex);
+					List<GetValue> contextValues = new ArrayList<>();
+					for (GetValue value : values) {
+						if (matches(path, value.getKey())) {
+							contextValues.add(value);
+						}
+					}
+					publish(context, path, currentIndex, contextIndex, changedKeys, contextValues);
 				}
 			}
 		}
-		this.firstTime = false;
+
 	}
 
 	public static class RefreshEventData {
@@ -217,10 +613,17 @@ public class ConfigWatch implements ApplicationEventPublisherAware, SmartLifecyc
 
 		private final Long newIndex;
 
+		private final Set<String> changedKeys;
+
 		RefreshEventData(String context, Long prevIndex, Long newIndex) {
+			this(context, prevIndex, newIndex, Collections.emptySet());
+		}
+
+		RefreshEventData(String context, Long prevIndex, Long newIndex, Set<String> changedKeys) {
 			this.context = context;
 			this.prevIndex = prevIndex;
 			this.newIndex = newIndex;
+			this.changedKeys = Collections.unmodifiableSet(changedKeys);
 		}
 
 		public String getContext() {
@@ -235,6 +638,13 @@ public class ConfigWatch implements ApplicationEventPublisherAware, SmartLifecyc
 			return this.newIndex;
 		}
 
+		/**
+		 * @return the consul keys below the context that were added, modified or deleted
+		 */
+		public Set<String> getChangedKeys() {
+			return this.changedKeys;
+		}
+
 		@Override
 		public boolean equals(Object o) {
 			if (this == o) {
@@ -245,12 +655,13 @@ public class ConfigWatch implements ApplicationEventPublisherAware, SmartLifecyc
 			}
 			RefreshEventData that = (RefreshEventData) o;
 			return Objects.equals(this.context, that.context) && Objects.equals(this.prevIndex, that.prevIndex)
-					&& Objects.equals(this.newIndex, that.newIndex);
+					&& Objects.equals(this.newIndex, that.newIndex)
+					&& Objects.equals(this.changedKeys, that.changedKeys);
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(this.context, this.prevIndex, this.newIndex);
+			return Objects.hash(this.context, this.prevIndex, this.newIndex, this.changedKeys);
 		}
 
 		@Override
@@ -258,6 +669,7 @@ public class ConfigWatch implements ApplicationEventPublisherAware, SmartLifecyc
 			return new ToStringCreator(this).append("context", this.context)
 				.append("prevIndex", this.prevIndex)
 				.append("newIndex", this.newIndex)
+				.append("changedKeys", this.changedKeys)
 				.toString();
 		}
 
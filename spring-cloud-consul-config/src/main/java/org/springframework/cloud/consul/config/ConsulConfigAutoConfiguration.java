@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.consul.config;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -29,6 +30,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import static org.springframework.cloud.consul.ConsulAutoConfiguration.CONSUL_TASK_SCHEDULER_NAME;
+
 /**
  * @author Spencer Gibb
  */
@@ -51,13 +54,28 @@ public class ConsulConfigAutoConfiguration {
 		@Bean
 		@ConditionalOnBean(ConsulConfigIndexes.class)
 		public ConfigWatch configWatch(ConsulConfigProperties properties, ConsulConfigIndexes indexes,
-				ConsulClient consul, @Qualifier(CONFIG_WATCH_TASK_SCHEDULER_NAME) TaskScheduler taskScheduler) {
-			return new ConfigWatch(properties, consul, indexes.getIndexes(), taskScheduler);
+				ConsulClient consul,
+				@Qualifier(CONFIG_WATCH_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> taskScheduler,
+				@Qualifier(CONSUL_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> consulTaskScheduler,
+				ObjectProvider<ConsulConfigSnapshot> snapshot) {
+			ConfigWatch configWatch = new ConfigWatch(properties, consul, indexes.getIndexes(),
+					consulTaskScheduler.getIfAvailable(taskScheduler::getObject));
+			configWatch.setSnapshot(snapshot.getIfAvailable());
+			return configWatch;
 		}
 
 		@Bean(name = CONFIG_WATCH_TASK_SCHEDULER_NAME)
-		public TaskScheduler configWatchTaskScheduler() {
-			return new ThreadPoolTaskScheduler();
+		@ConditionalOnProperty(name = "spring.cloud.consul.threads.virtual", havingValue = "false",
+				matchIfMissing = true)
+		public TaskScheduler configWatchTaskScheduler(ObjectProvider<ConsulConfigProperties> properties,
+				ObjectProvider<ConsulConfigIndexes> indexes) {
+			ConsulConfigIndexes configIndexes = indexes.getIfAvailable();
+			int contexts = configIndexes != null ? configIndexes.getIndexes().size() : 1;
+			ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+			taskScheduler
+				.setPoolSize(ConfigWatch.getPoolSize(properties.getIfAvailable(ConsulConfigProperties::new), contexts));
+			taskScheduler.setThreadNamePrefix("consul-config-watch-");
+			return taskScheduler;
 		}
 
 	}
@@ -25,6 +25,9 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.DefaultSingletonBeanRegistry;
 import org.springframework.boot.bootstrap.BootstrapContext;
 import org.springframework.boot.bootstrap.BootstrapRegistry.InstanceSupplier;
 import org.springframework.boot.bootstrap.ConfigurableBootstrapContext;
@@ -39,9 +42,13 @@ import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.boot.logging.DeferredLogFactory;
 import org.springframework.cloud.consul.ConsulAutoConfiguration;
 import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClientHttpRequestFactory;
+import org.springframework.cloud.consul.ConsulClientMetrics;
 import org.springframework.cloud.consul.ConsulProperties;
 import org.springframework.cloud.consul.config.ConsulPropertySources.Context;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.util.UriComponents;
@@ -61,6 +68,9 @@ public class ConsulConfigDataLocationResolver implements ConfigDataLocationResol
 	protected static final List<String> FILES_SUFFIXES = Collections
 		.unmodifiableList(Arrays.asList(".yml", ".yaml", ".properties"));
 
+	private static final boolean METRICS_PRESENT = ClassUtils
+		.isPresent("io.micrometer.core.instrument.binder.MeterBinder", null);
+
 	private final Log log;
 
 	public ConsulConfigDataLocationResolver(DeferredLogFactory logFactory) {
@@ -92,7 +102,26 @@ public class ConsulConfigDataLocationResolver implements ConfigDataLocationResol
 		UriComponents locationUri = parseLocation(resolverContext, location);
 
 		// create consul client
-		registerBean(resolverContext, ConsulProperties.class, loadProperties(resolverContext, locationUri));
+		ConsulProperties loadedProperties = loadProperties(resolverContext, locationUri);
+		registerBean(resolverContext, ConsulProperties.class, loadedProperties);
+
+		ConsulProperties consulProperties = resolverContext.getBootstrapContext()
+			.getOrElse(ConsulProperties.class, loadedProperties);
+		if (consulProperties.getHttp().isPooled()
+				&& ConsulAutoConfiguration.getUnixSocketPath(consulProperties) == null) {
+			// promoted with the client, so its connection pools are closed with the context
+			registerAndPromoteBean(resolverContext, ConsulClientHttpRequestFactory.class,
+					context -> ConsulAutoConfiguration
+						.createConsulClientHttpRequestFactory(context.get(ConsulProperties.class)));
+		}
+
+		if (isMetricsEnabled(resolverContext)) {
+			// promoted under the name the auto-configuration uses, so the client calls are
+			// metered by the application's registries
+			registerAndPromoteBean(resolverContext, ConsulClientMetrics.class,
+					ConsulAutoConfiguration.CONSUL_CLIENT_METRICS_NAME,
+					InstanceSupplier.from(ConsulClientMetrics::new));
+		}
 
 		registerAndPromoteBean(resolverContext, ConsulClient.class, this::createConsulClient);
 
@@ -110,6 +139,28 @@ public class ConsulConfigDataLocationResolver implements ConfigDataLocationResol
 		registerAndPromoteBean(resolverContext, ConsulConfigIndexes.class,
 				InstanceSupplier.from(ConsulConfigDataIndexes::new));
 
+		if (properties.getSnapshot().isEnabled()) {
+			boolean restore = properties.getSnapshot().isRestore() && properties.getWatch().isEnabled();
+			registerAndPromoteBean(resolverContext, ConsulConfigSnapshot.class, InstanceSupplier
+				.from(() -> new ConsulConfigSnapshot(ConsulConfigSnapshot.getFile(properties), restore)));
+			consulPropertySources
+				.setSnapshot(resolverContext.getBootstrapContext().getOrElse(ConsulConfigSnapshot.class, null));
+		}
+
+		if (properties.isPrefetch()) {
+			ConsulClient consul = resolverContext.getBootstrapContext().getOrElse(ConsulClient.class, null);
+			if (consul != null) {
+				consulPropertySources.prefetch(contexts, consul);
+			}
+		}
+		else {
+			consulPropertySources.batch(contexts);
+		}
+		if (properties.isPrefetch() || properties.isBatchReads()) {
+			// contexts that were never loaded leave their responses behind
+			resolverContext.getBootstrapContext().addCloseListener(event -> consulPropertySources.clearPrefetched());
+		}
+
 		return contexts.stream()
 			.map(propertySourceContext -> new ConsulConfigDataResource(propertySourceContext.getPath(), properties,
 					consulPropertySources, propertySourceContext.getProfile()))
@@ -159,13 +210,23 @@ public class ConsulConfigDataLocationResolver implements ConfigDataLocationResol
 
 	protected <T> void registerAndPromoteBean(ConfigDataLocationResolverContext context, Class<T> type,
 			InstanceSupplier<T> supplier) {
+		registerAndPromoteBean(context, type, "configData" + type.getSimpleName(), supplier);
+	}
+
+	protected <T> void registerAndPromoteBean(ConfigDataLocationResolverContext context, Class<T> type, String name,
+			InstanceSupplier<T> supplier) {
 		registerBean(context, type, supplier);
 		context.getBootstrapContext().addCloseListener(event -> {
 			T instance = event.getBootstrapContext().get(type);
-			String name = "configData" + type.getSimpleName();
 			ConfigurableApplicationContext appCtxt = event.getApplicationContext();
 			if (!appCtxt.containsBean(name)) {
-				appCtxt.getBeanFactory().registerSingleton(name, instance);
+				ConfigurableListableBeanFactory beanFactory = appCtxt.getBeanFactory();
+				beanFactory.registerSingleton(name, instance);
+				// manually registered singletons are not destroyed otherwise
+				if (instance instanceof DisposableBean && beanFactory instanceof DefaultSingletonBeanRegistry) {
+					((DefaultSingletonBeanRegistry) beanFactory).registerDisposableBean(name,
+							(DisposableBean) instance);
+				}
 			}
 		});
 	}
@@ -183,14 +244,25 @@ public class ConsulConfigDataLocationResolver implements ConfigDataLocationResol
 	protected ConsulClient createConsulClient(BootstrapContext context) {
 		ConsulProperties properties = context.get(ConsulProperties.class);
 
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+		if (METRICS_PRESENT && context.isRegistered(ConsulClientMetrics.class)) {
+			interceptors.add(context.get(ConsulClientMetrics.class));
+		}
+
 		try {
-			return ConsulAutoConfiguration.createNewConsulClient(properties);
+			return ConsulAutoConfiguration.createNewConsulClient(properties, interceptors,
+					context.getOrElse(ConsulClientHttpRequestFactory.class, null));
 		}
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	private boolean isMetricsEnabled(ConfigDataLocationResolverContext resolverContext) {
+		return METRICS_PRESENT
+				&& resolverContext.getBinder().bind("spring.cloud.consul.metrics.enabled", Boolean.class).orElse(true);
+	}
+
 	protected ConsulProperties loadProperties(ConfigDataLocationResolverContext resolverContext,
 			UriComponents location) {
 		Binder binder = resolverContext.getBinder();
@@ -75,6 +75,20 @@ public class ConsulConfigProperties {
 	 */
 	private boolean failFast = true;
 
+	/**
+	 * Read all config contexts from consul in parallel when they are resolved, instead
+	 * of one after another while loading.
+	 */
+	private boolean prefetch = false;
+
+	/**
+	 * Read the config contexts with as few /v1/txn transactions as possible, instead of
+	 * one request per context. Applies with and without prefetch.
+	 */
+	private boolean batchReads = true;
+
+	private Snapshot snapshot = new Snapshot();
+
 	/**
 	 * Alternative to spring.application.name to use in looking up values in consul KV.
 	 */
@@ -181,6 +195,30 @@ public class ConsulConfigProperties {
 		this.failFast = failFast;
 	}
 
+	public boolean isPrefetch() {
+		return this.prefetch;
+	}
+
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	public boolean isBatchReads() {
+		return this.batchReads;
+	}
+
+	public void setBatchReads(boolean batchReads) {
+		this.batchReads = batchReads;
+	}
+
+	public Snapshot getSnapshot() {
+		return this.snapshot;
+	}
+
+	public void setSnapshot(Snapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
 	public String getName() {
 		return this.name;
 	}
@@ -200,6 +238,9 @@ public class ConsulConfigProperties {
 			.append("aclToken", this.aclToken != null ? "******" : null)
 			.append("watch", this.watch)
 			.append("failFast", this.failFast)
+			.append("prefetch", this.prefetch)
+			.append("batchReads", this.batchReads)
+			.append("snapshot", this.snapshot)
 			.append("name", this.name)
 			.toString();
 	}
@@ -273,6 +314,32 @@ public class ConsulConfigProperties {
 		/** The value of the fixed delay for the watch in millis. Defaults to 1000. */
 		private int delay = 1000;
 
+		/**
+		 * The maximum number of contexts watched at the same time, which is also the size
+		 * of the default watch task scheduler. Defaults to 16.
+		 */
+		private int maxConcurrency = 16;
+
+		/**
+		 * The maximum delay in millis between two queries of a context whose watch keeps
+		 * failing. Defaults to 60000.
+		 */
+		private int maxBackoff = 60000;
+
+		/**
+		 * Whether to run one blocking query per context, or one recursive blocking query
+		 * per common prefix of the contexts. Defaults to CONTEXT.
+		 */
+		private Mode mode = Mode.CONTEXT;
+
+		/**
+		 * Update the changed property sources in place and publish an
+		 * EnvironmentChangeEvent with the changed property names, instead of publishing a
+		 * RefreshEvent. Beans in the refresh scope are not recreated in this mode.
+		 * Defaults to false.
+		 */
+		private boolean incremental = false;
+
 		public Watch() {
 		}
 
@@ -300,11 +367,125 @@ public class ConsulConfigProperties {
 			this.delay = delay;
 		}
 
+		public int getMaxConcurrency() {
+			return this.maxConcurrency;
+		}
+
+		public void setMaxConcurrency(int maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+		}
+
+		public int getMaxBackoff() {
+			return this.maxBackoff;
+		}
+
+		public void setMaxBackoff(int maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+
+		public Mode getMode() {
+			return this.mode;
+		}
+
+		public void setMode(Mode mode) {
+			this.mode = mode;
+		}
+
+		public boolean isIncremental() {
+			return this.incremental;
+		}
+
+		public void setIncremental(boolean incremental) {
+			this.incremental = incremental;
+		}
+
 		@Override
 		public String toString() {
 			return new ToStringCreator(this).append("waitTime", this.waitTime)
 				.append("enabled", this.enabled)
 				.append("delay", this.delay)
+				.append("maxConcurrency", this.maxConcurrency)
+				.append("maxBackoff", this.maxBackoff)
+				.append("mode", this.mode)
+				.append("incremental", this.incremental)
+				.toString();
+		}
+
+		/**
+		 * How the configuration contexts are watched.
+		 */
+		public enum Mode {
+
+			/**
+			 * Watch every context with its own blocking query.
+			 */
+			CONTEXT,
+
+			/**
+			 * Watch the common prefix of the contexts with a single recursive blocking
+			 * query and work out locally which contexts changed.
+			 */
+			PREFIX
+
+		}
+
+	}
+
+	/**
+	 * Consul config snapshot properties.
+	 */
+	public static class Snapshot {
+
+		/**
+		 * If the values read from consul are kept in a local snapshot file. Defaults to
+		 * false.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * The snapshot file. Defaults to consul-config-${name}.snapshot in the
+		 * .spring-cloud-consul directory of the user's home. It must be owned by the user
+		 * running the application and not be writable by others, or it is ignored.
+		 */
+		private String path;
+
+		/**
+		 * Start from the snapshot without waiting for consul and let the watch catch up
+		 * with changes in the background. Only applies while the watch is enabled,
+		 * otherwise the snapshot is only used when consul cannot be reached. Defaults to
+		 * true.
+		 */
+		private boolean restore = true;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getPath() {
+			return this.path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public boolean isRestore() {
+			return this.restore;
+		}
+
+		public void setRestore(boolean restore) {
+			this.restore = restore;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("enabled", this.enabled)
+				.append("path", this.path)
+				.append("restore", this.restore)
 				.toString();
 		}
 
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.config;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+
+/**
+ * Local copy of the last values read from consul for every config context, together
+ * with the index they were read at. It lets an application start from the values of its
+ * previous run, either right away or when consul cannot be reached, and is kept up to
+ * date as contexts are loaded and watched.
+ * <p>
+ * The snapshot is a small binary file that is rewritten whenever a context changes. It
+ * holds the raw consul values, so it may contain secrets. The file is only readable by
+ * its owner, and a file that is not owned by the current user or that others may write
+ * to is ignored, as its values would otherwise be trusted as configuration.
+ */
+public class ConsulConfigSnapshot {
+
+	private static final Log log = LogFactory.getLog(ConsulConfigSnapshot.class);
+
+	private static final int MAGIC = 0x43435348;
+
+	private static final int VERSION = 1;
+
+	// files that already served the initial load of this JVM, a later load (for
+	// example a refresh) must read consul rather than a possibly older snapshot
+	private static final Set<Path> restoredFiles = ConcurrentHashMap.newKeySet();
+
+	private final Path file;
+
+	private final boolean restoring;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+	/**
+	 * Creates a snapshot backed by the given file and reads its content, if any.
+	 * @param file the snapshot file
+	 * @param restore whether contexts found in the snapshot should be loaded from it
+	 * instead of consul, which only happens for the first snapshot of a file in a JVM
+	 */
+	public ConsulConfigSnapshot(Path file, boolean restore) {
+		this.file = file.toAbsolutePath().normalize();
+		this.restoring = restore && restoredFiles.add(this.file);
+		read();
+	}
+
+	/**
+	 * Returns the snapshot file configured by
+	 * {@link ConsulConfigProperties.Snapshot#getPath()}, or a file named after the
+	 * application in the {@code .spring-cloud-consul} directory of the user's home.
+	 * @param properties the config properties
+	 * @return the snapshot file
+	 */
+	public static Path getFile(ConsulConfigProperties properties) {
+		String path = properties.getSnapshot().getPath();
+		if (StringUtils.hasText(path)) {
+			return Paths.get(path);
+		}
+		return Paths.get(System.getProperty("user.home"), ".spring-cloud-consul",
+				"consul-config-" + properties.getName() + ".snapshot");
+	}
+
+	public Path getPath() {
+		return this.file;
+	}
+
+	/**
+	 * @return whether contexts found in the snapshot are loaded from it
+	 */
+	public boolean isRestoring() {
+		return this.restoring;
+	}
+
+	/**
+	 * Returns the snapshot of a context as if it had just been read from consul.
+	 * @param context the context
+	 * @return the stored values and index, or {@code null} if the context is not in the
+	 * snapshot
+	 */
+	public synchronized ResponseEntity<List<GetValue>> getResponse(String context) {
+		Entry entry = this.entries.get(context);
+		if (entry == null) {
+			return null;
+		}
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (entry.index != null) {
+			response.header(ConsulHeaders.INDEX_HEADER, String.valueOf(entry.index));
+		}
+		return response.body(entry.values);
+	}
+
+	/**
+	 * Stores the values of a context and writes the snapshot file if they changed.
+	 * @param context the context
+	 * @param index the index the values were read at
+	 * @param values the values of the context
+	 */
+	public synchronized void put(String context, Long index, List<GetValue> values) {
+		List<GetValue> copy = values != null ? new ArrayList<>(values) : Collections.emptyList();
+		Entry previous = this.entries.get(context);
+		if (previous != null && Objects.equals(previous.index, index) && sameValues(previous.values, copy)) {
+			return;
+		}
+		this.entries.put(context, new Entry(index, Collections.unmodifiableList(copy)));
+		write();
+	}
+
+	private static boolean sameValues(List<GetValue> previous, List<GetValue> current) {
+		if (previous.size() != current.size()) {
+			return false;
+		}
+		for (int i = 0; i < previous.size(); i++) {
+			GetValue a = previous.get(i);
+			GetValue b = current.get(i);
+			if (!Objects.equals(a.getKey(), b.getKey()) || a.getModifyIndex() != b.getModifyIndex()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void read() {
+		if (!Files.isReadable(this.file)) {
+			return;
+		}
+		try {
+			if (!isTrusted(this.file)) {
+				log.warn("Ignoring consul config snapshot " + this.file
+						+ " that is not owned by the current user or is writable by others");
+				return;
+			}
+		}
+		catch (IOException e) {
+			log.warn("Unable to check the owner of consul config snapshot " + this.file + ". Message: "
+					+ e.getMessage());
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(this.file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				log.warn("Ignoring consul config snapshot " + this.file + " with an unknown format");
+				return;
+			}
+			int contexts = in.readInt();
+			for (int i = 0; i < contexts; i++) {
+				String context = readString(in);
+				Long index = in.readBoolean() ? in.readLong() : null;
+				int size = in.readInt();
+				if (size < 0 || size > in.available()) {
+					throw new IOException("Invalid number of values " + size);
+				}
+				List<GetValue> values = new ArrayList<>(size);
+				for (int j = 0; j < size; j++) {
+					GetValue value = new GetValue();
+					value.setKey(readString(in));
+					value.setValue(readString(in));
+					value.setCreateIndex(in.readLong());
+					value.setModifyIndex(in.readLong());
+					value.setFlags(in.readLong());
+					values.add(value);
+				}
+				this.entries.put(context, new Entry(index, Collections.unmodifiableList(values)));
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("Read consul config snapshot " + this.file + " with contexts " + this.entries.keySet());
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			this.entries.clear();
+			log.warn("Unable to read consul config snapshot " + this.file + ". Message: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns whether a snapshot file can be trusted as configuration: a regular file
+	 * owned by the current user that neither its group nor others may write to.
+	 * @param file the snapshot file
+	 * @return whether the values in the file can be loaded
+	 * @throws IOException if the owner or permissions of the file cannot be read
+	 */
+	static boolean isTrusted(Path file) throws IOException {
+		if (Files.isSymbolicLink(file)) {
+			return false;
+		}
+		UserPrincipal owner = Files.getOwner(file, LinkOption.NOFOLLOW_LINKS);
+		UserPrincipal user = file.getFileSystem()
+			.getUserPrincipalLookupService()
+			.lookupPrincipalByName(System.getProperty("user.name"));
+		if (!owner.equals(user)) {
+			return false;
+		}
+		PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class,
+				LinkOption.NOFOLLOW_LINKS);
+		if (view == null) {
+			return true;
+		}
+		Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+		return !permissions.contains(PosixFilePermission.GROUP_WRITE)
+				&& !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+	}
+
+	private void write() {
+		Path tmp = null;
+		try {
+			Path directory = this.file.getParent();
+			if (!Files.isDirectory(directory)
+					&& directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+				Files.createDirectories(directory,
+						PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			}
+			else {
+				Files.createDirectories(directory);
+			}
+			// created readable by its owner only
+			tmp = Files.createTempFile(this.file.getParent(), this.file.getFileName().toString(), ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(this.entries.size());
+				for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+					writeString(out, entry.getKey());
+					Long index = entry.getValue().index;
+					out.writeBoolean(index != null);
+					if (index != null) {
+						out.writeLong(index);
+					}
+					out.writeInt(entry.getValue().values.size());
+					for (GetValue value : entry.getValue().values) {
+						writeString(out, value.getKey());
+						writeString(out, value.getValue());
+						out.writeLong(value.getCreateIndex());
+						out.writeLong(value.getModifyIndex());
+						out.writeLong(value.getFlags());
+					}
+				}
+			}
+			// readers never see a partially written snapshot
+			Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			log.warn("Unable to write consul config snapshot " + this.file + ". Message: " + e.getMessage());
+			deleteQuietly(tmp);
+		}
+	}
+
+	private static void deleteQuietly(Path tmp) {
+		if (tmp == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(tmp);
+		}
+		catch (IOException ex) {
+			// ignore
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length == -1) {
+			return null;
+		}
+		// the snapshot is read from memory, so available() is what is left of the file
+		if (length < 0 || length > in.available()) {
+			throw new IOException("Invalid string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static final class Entry {
+
+		private final Long index;
+
+		private final List<GetValue> values;
+
+		private Entry(Long index, List<GetValue> values) {
+			this.index = index;
+			this.values = values;
+		}
+
+	}
+
+}
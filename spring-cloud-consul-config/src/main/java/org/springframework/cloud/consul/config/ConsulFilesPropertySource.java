@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.consul.config;
 
+import java.util.List;
+
 import org.springframework.cloud.consul.ConsulClient;
 import org.springframework.cloud.consul.model.http.kv.GetValue;
 
@@ -36,6 +38,24 @@ public class ConsulFilesPropertySource extends ConsulPropertySource {
 		// noop
 	}
 
+	@Override
+	protected void parse(List<GetValue> values) {
+		GetValue file = new GetValue();
+		if (values != null) {
+			for (GetValue value : values) {
+				if (getContext().equals(value.getKey())) {
+					file = value;
+				}
+			}
+		}
+		init(file);
+	}
+
+	@Override
+	protected ConsulPropertySource createEmptyCopy() {
+		return new ConsulFilesPropertySource(getContext(), getSource(), getConfigProperties());
+	}
+
 	public void init(GetValue value) {
 		if (this.getContext().endsWith(".yml") || this.getContext().endsWith(".yaml")) {
 			parseValue(value, YAML);
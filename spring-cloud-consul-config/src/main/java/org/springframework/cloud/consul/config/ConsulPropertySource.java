@@ -20,9 +20,12 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 
@@ -35,6 +38,7 @@ import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 
+import static org.springframework.cloud.consul.config.ConsulConfigProperties.Format.KEY_VALUE;
 import static org.springframework.cloud.consul.config.ConsulConfigProperties.Format.PROPERTIES;
 import static org.springframework.cloud.consul.config.ConsulConfigProperties.Format.YAML;
 
@@ -43,7 +47,7 @@ import static org.springframework.cloud.consul.config.ConsulConfigProperties.For
  */
 public class ConsulPropertySource extends EnumerablePropertySource<ConsulClient> {
 
-	private final Map<String, Object> properties = new LinkedHashMap<>();
+	private volatile Map<String, Object> properties = new LinkedHashMap<>();
 
 	private String context;
 
@@ -51,6 +55,8 @@ public class ConsulPropertySource extends EnumerablePropertySource<ConsulClient>
 
 	private Long initialIndex;
 
+	private volatile Map<String, Long> initialModifyIndexes;
+
 	public ConsulPropertySource(String context, ConsulClient source, ConsulConfigProperties configProperties) {
 		super(context, source);
 		this.context = context;
@@ -59,22 +65,58 @@ public class ConsulPropertySource extends EnumerablePropertySource<ConsulClient>
 	}
 
 	public void init() {
-		if (!this.context.endsWith("/")) {
-			this.context = this.context + "/";
-		}
-		if (this.context.startsWith("/")) {
-			this.context = this.context.substring(1);
-		}
-		if (this.context.contains("//")) {
-			this.context = this.context.replace("//", "/");
-		}
+		init(this.source.getKVValues(normalizeContext(this.context), this.configProperties.getAclToken()));
+	}
 
-		ResponseEntity<List<GetValue>> response = this.source.getKVValues(this.context,
-				this.configProperties.getAclToken());
+	/**
+	 * Initializes this property source from a response that was already read for its
+	 * context.
+	 * @param response the values of this context
+	 */
+	public void init(ResponseEntity<List<GetValue>> response) {
+		this.context = normalizeContext(this.context);
 
 		this.initialIndex = ConsulHeaders.getConsulIndex(response);
+		setInitialValues(response.getBody());
+
+		parse(response.getBody());
+	}
+
+	/**
+	 * Records the {@code ModifyIndex} of every key this property source was loaded or
+	 * restored with, so the first change seen by a watch can be compared against them.
+	 * @param values the values this property source was loaded with
+	 */
+	void setInitialValues(List<GetValue> values) {
+		Map<String, Long> modifyIndexes = new HashMap<>();
+		if (values != null) {
+			for (GetValue value : values) {
+				if (value.getKey() != null) {
+					modifyIndexes.put(value.getKey(), value.getModifyIndex());
+				}
+			}
+		}
+		this.initialModifyIndexes = modifyIndexes;
+	}
 
-		final List<GetValue> values = response.getBody();
+	static String normalizeContext(String context) {
+		if (!context.endsWith("/")) {
+			context = context + "/";
+		}
+		if (context.startsWith("/")) {
+			context = context.substring(1);
+		}
+		if (context.contains("//")) {
+			context = context.replace("//", "/");
+		}
+		return context;
+	}
+
+	/**
+	 * Parses the values of this context according to the configured format.
+	 * @param values values to parse
+	 */
+	protected void parse(List<GetValue> values) {
 		ConsulConfigProperties.Format format = this.configProperties.getFormat();
 		switch (format) {
 			case KEY_VALUE:
@@ -86,10 +128,81 @@ public class ConsulPropertySource extends EnumerablePropertySource<ConsulClient>
 		}
 	}
 
+	/**
+	 * Brings the properties up to date with the values of this context returned by a
+	 * watch. With {@link ConsulConfigProperties.Format#KEY_VALUE} only the changed keys
+	 * are applied, other formats re-parse the values of this context. Readers see either
+	 * the old or the new properties, never a mix of both.
+	 * @param values the current values of this context
+	 * @param changedKeys the consul keys that were added, modified or deleted
+	 * @return the names of the properties that were added, modified or removed
+	 */
+	public Set<String> update(List<GetValue> values, Set<String> changedKeys) {
+		Map<String, Object> previous = this.properties;
+		Map<String, Object> updated;
+		if (this.configProperties.getFormat() == KEY_VALUE) {
+			Map<String, GetValue> valuesByKey = new HashMap<>();
+			for (GetValue value : values) {
+				valuesByKey.put(value.getKey(), value);
+			}
+			updated = new LinkedHashMap<>(previous);
+			for (String key : changedKeys) {
+				if (StringUtils.endsWithIgnoreCase(key, "/")) {
+					continue;
+				}
+				String name = key.replace(this.context, "").replace('/', '.');
+				GetValue value = valuesByKey.get(key);
+				if (value != null) {
+					updated.put(name, value.getDecodedValue());
+				}
+				else {
+					updated.remove(name);
+				}
+			}
+		}
+		else {
+			ConsulPropertySource parsed = createEmptyCopy();
+			parsed.parse(values);
+			updated = parsed.properties;
+		}
+
+		Set<String> changedNames = new LinkedHashSet<>();
+		updated.forEach((name, value) -> {
+			if (!Objects.equals(value, previous.get(name))) {
+				changedNames.add(name);
+			}
+		});
+		for (String name : previous.keySet()) {
+			if (!updated.containsKey(name)) {
+				changedNames.add(name);
+			}
+		}
+		this.properties = updated;
+		return changedNames;
+	}
+
+	/**
+	 * @return a property source for the same context without any properties, used to
+	 * parse updated values before they replace the current ones
+	 */
+	protected ConsulPropertySource createEmptyCopy() {
+		ConsulPropertySource copy = new ConsulPropertySource(getName(), this.source, this.configProperties);
+		copy.context = this.context;
+		return copy;
+	}
+
 	public Long getInitialIndex() {
 		return this.initialIndex;
 	}
 
+	/**
+	 * @return the modify index by key of the values this property source was loaded
+	 * with, or {@code null} if they are not known
+	 */
+	Map<String, Long> getInitialModifyIndexes() {
+		return this.initialModifyIndexes;
+	}
+
 	/**
 	 * Parses the properties in key value style i.e., values are expected to be either a
 	 * sub key or a constant.
@@ -19,7 +19,18 @@ package org.springframework.cloud.consul.config;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
@@ -29,8 +40,11 @@ import org.springframework.cloud.consul.ConsulClient;
 import org.springframework.cloud.consul.ConsulException;
 import org.springframework.cloud.consul.model.http.ConsulHeaders;
 import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.cloud.consul.model.http.txn.TxnOperation;
+import org.springframework.cloud.consul.model.http.txn.TxnResponse;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.StringUtils;
 
 import static org.springframework.cloud.consul.config.ConsulConfigProperties.Format.FILES;
@@ -42,15 +56,41 @@ public class ConsulPropertySources {
 	protected static final List<String> FILES_SUFFIXES = Collections
 		.unmodifiableList(Arrays.asList(".yml", ".yaml", ".properties"));
 
+	private static final int MAX_PREFETCH_THREADS = 8;
+
+	private static final int MAX_TXN_OPERATIONS = 64;
+
+	/**
+	 * Shared by every prefetch, its threads end once they have been idle for a few
+	 * seconds.
+	 */
+	private static final ExecutorService PREFETCH_EXECUTOR = createPrefetchExecutor();
+
 	private final ConsulConfigProperties properties;
 
 	private final Log log;
 
+	private final Map<String, CompletableFuture<ResponseEntity<List<GetValue>>>> prefetched = new ConcurrentHashMap<>();
+
+	// guarded by itself
+	private final List<String> batched = new ArrayList<>();
+
+	private ConsulConfigSnapshot snapshot;
+
 	public ConsulPropertySources(ConsulConfigProperties properties, Log log) {
 		this.properties = properties;
 		this.log = log;
 	}
 
+	/**
+	 * Sets the snapshot that keeps the values read from consul and serves them when
+	 * restoring or when consul cannot be reached.
+	 * @param snapshot the snapshot, or {@code null} to read consul only
+	 */
+	public void setSnapshot(ConsulConfigSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
 	public List<String> getAutomaticContexts(List<String> profiles) {
 		return getAutomaticContexts(profiles, true);
 	}
@@ -111,6 +151,251 @@ public class ConsulPropertySources {
 		}
 	}
 
+	/**
+	 * Starts reading the given contexts from consul in parallel. With
+	 * {@link ConsulConfigProperties#isBatchReads() batched reads} the contexts are read
+	 * in {@code /v1/txn} transactions of up to 64 contexts each, otherwise with one
+	 * request per context. Creating the property source of a prefetched context then uses
+	 * the response instead of querying consul again. A context whose prefetch failed is
+	 * read again on creation, so fail fast and retry behave as without prefetching.
+	 * @param contexts the contexts to read
+	 * @param consul the client to read them with
+	 */
+	public void prefetch(List<Context> contexts, ConsulClient consul) {
+		if (contexts.size() < 2) {
+			return;
+		}
+		List<String> paths = new ArrayList<>();
+		for (Context context : contexts) {
+			String path = stripLeadingSlash(context.getPath());
+			if (getRestored(path) == null && !this.prefetched.containsKey(path) && !paths.contains(path)) {
+				paths.add(path);
+			}
+		}
+		if (properties.isBatchReads()) {
+			for (int start = 0; start < paths.size(); start += MAX_TXN_OPERATIONS) {
+				List<String> batch = paths.subList(start, Math.min(start + MAX_TXN_OPERATIONS, paths.size()));
+				CompletableFuture<Map<String, ResponseEntity<List<GetValue>>>> responses = CompletableFuture
+					.supplyAsync(() -> readAll(batch, consul), PREFETCH_EXECUTOR);
+				for (String path : batch) {
+					this.prefetched.putIfAbsent(path, responses.thenApply(result -> result.get(path)));
+				}
+			}
+		}
+		else {
+			for (String path : paths) {
+				this.prefetched.computeIfAbsent(path,
+						key -> CompletableFuture.supplyAsync(() -> read(key, consul), PREFETCH_EXECUTOR));
+			}
+		}
+	}
+
+	/**
+	 * Reads the given contexts in {@code /v1/txn} transactions of up to 64 contexts each,
+	 * instead of with one request per context, when
+	 * {@link ConsulConfigProperties#isBatchReads() batched reads} are enabled. Unlike
+	 * {@link #prefetch(List, ConsulClient)} nothing is read in the background: creating
+	 * the property source of the first context reads it together with the other contexts
+	 * of its transaction, whose property sources then use those responses. If a
+	 * transaction fails, its contexts are read one by one.
+	 * @param contexts the contexts to read
+	 */
+	public void batch(List<Context> contexts) {
+		if (contexts.size() < 2 || !properties.isBatchReads()) {
+			return;
+		}
+		synchronized (this.batched) {
+			for (Context context : contexts) {
+				String path = stripLeadingSlash(context.getPath());
+				if (getRestored(path) == null && !this.prefetched.containsKey(path) && !this.batched.contains(path)) {
+					this.batched.add(path);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops the prefetched responses that were not used to create a property source, for
+	 * example because the context was not loaded after all. Reads that are still running
+	 * are cancelled.
+	 */
+	public void clearPrefetched() {
+		synchronized (this.batched) {
+			this.batched.clear();
+		}
+		for (String path : new ArrayList<>(this.prefetched.keySet())) {
+			CompletableFuture<ResponseEntity<List<GetValue>>> future = this.prefetched.remove(path);
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	private static ExecutorService createPrefetchExecutor() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("consul-config-prefetch-");
+		threadFactory.setDaemon(true);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PREFETCH_THREADS, MAX_PREFETCH_THREADS, 5,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Reads the given contexts in one transaction. Every context gets the response a read
+	 * of its own would have returned, a {@code 404} if it has no keys.
+	 */
+	private Map<String, ResponseEntity<List<GetValue>>> readAll(List<String> contexts, ConsulClient consul) {
+		List<TxnOperation> operations = new ArrayList<>(contexts.size());
+		for (String context : contexts) {
+			// unlike get, get-tree does not fail the transaction when there is no key
+			operations.add(TxnOperation.kvGetTree(getKey(context)));
+		}
+		ResponseEntity<TxnResponse> response = consul.transaction(properties.getAclToken(), operations);
+		if (!response.getStatusCode().is2xxSuccessful() || !response.hasBody()) {
+			throw new ConsulException("Reading consul config in a transaction failed with status "
+					+ response.getStatusCode() + (response.hasBody() ? ": " + response.getBody().getErrors() : ""));
+		}
+		Long index = ConsulHeaders.getConsulIndex(response);
+		List<GetValue> values = response.getBody().getKVValues();
+		Map<String, ResponseEntity<List<GetValue>>> responses = new HashMap<>();
+		for (String context : contexts) {
+			String key = getKey(context);
+			Map<String, GetValue> contextValues = new LinkedHashMap<>();
+			for (GetValue value : values) {
+				// get-tree reads by prefix, a file is only the exact key
+				boolean matches = properties.getFormat() == FILES ? key.equals(value.getKey())
+						: value.getKey().startsWith(key);
+				if (matches) {
+					contextValues.putIfAbsent(value.getKey(), value);
+				}
+			}
+			responses.put(context, toResponse(new ArrayList<>(contextValues.values()), index));
+		}
+		return responses;
+	}
+
+	private static ResponseEntity<List<GetValue>> toResponse(List<GetValue> values, Long index) {
+		if (values.isEmpty()) {
+			ResponseEntity.HeadersBuilder<?> notFound = ResponseEntity.notFound();
+			if (index != null) {
+				notFound.header(ConsulHeaders.INDEX_HEADER, Long.toUnsignedString(index));
+			}
+			return notFound.build();
+		}
+		// the index consul returns for a read of these keys, so that a watch does not
+		// block on the index of the whole KV store
+		long modifyIndex = values.stream().mapToLong(GetValue::getModifyIndex).max().getAsLong();
+		return ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, Long.toUnsignedString(modifyIndex)).body(values);
+	}
+
+	private String getKey(String context) {
+		if (properties.getFormat() == FILES) {
+			return context;
+		}
+		return ConsulPropertySource.normalizeContext(context);
+	}
+
+	private ResponseEntity<List<GetValue>> read(String context, ConsulClient consul) {
+		if (properties.getFormat() == FILES) {
+			return consul.getKVValue(context, properties.getAclToken());
+		}
+		return consul.getKVValues(getKey(context), properties.getAclToken());
+	}
+
+	private ResponseEntity<List<GetValue>> getResponse(String context, ConsulClient consul) {
+		ResponseEntity<List<GetValue>> restored = getRestored(context);
+		if (restored != null) {
+			if (log.isDebugEnabled()) {
+				log.debug("Restored consul config from " + context + " from snapshot " + this.snapshot.getPath());
+			}
+			return restored;
+		}
+		ResponseEntity<List<GetValue>> response = getPrefetched(context);
+		try {
+			if (response == null) {
+				response = getBatched(context, consul);
+			}
+			if (response == null) {
+				response = read(context, consul);
+			}
+		}
+		catch (RuntimeException e) {
+			ResponseEntity<List<GetValue>> stored = this.snapshot != null ? this.snapshot.getResponse(context) : null;
+			if (stored == null) {
+				throw e;
+			}
+			log.warn("Unable to load consul config from " + context + ", using snapshot " + this.snapshot.getPath()
+					+ ". Message: " + e.getMessage());
+			return stored;
+		}
+		if (this.snapshot != null && response.getStatusCode().is2xxSuccessful()) {
+			this.snapshot.put(context, ConsulHeaders.getConsulIndex(response), response.getBody());
+		}
+		return response;
+	}
+
+	private ResponseEntity<List<GetValue>> getRestored(String context) {
+		if (this.snapshot == null || !this.snapshot.isRestoring()) {
+			return null;
+		}
+		return this.snapshot.getResponse(context);
+	}
+
+	private ResponseEntity<List<GetValue>> getPrefetched(String context) {
+		CompletableFuture<ResponseEntity<List<GetValue>>> future = this.prefetched.remove(context);
+		if (future == null) {
+			return null;
+		}
+		try {
+			return future.join();
+		}
+		catch (CompletionException | CancellationException e) {
+			if (log.isDebugEnabled()) {
+				log.debug("Prefetching consul config from " + context + " failed, reading it again", e);
+			}
+			return null;
+		}
+	}
+
+	private ResponseEntity<List<GetValue>> getBatched(String context, ConsulClient consul) {
+		List<String> batch = new ArrayList<>();
+		synchronized (this.batched) {
+			if (!this.batched.remove(context)) {
+				return null;
+			}
+			batch.add(context);
+			while (batch.size() < MAX_TXN_OPERATIONS && !this.batched.isEmpty()) {
+				batch.add(this.batched.remove(0));
+			}
+		}
+		if (batch.size() == 1) {
+			return null;
+		}
+		try {
+			Map<String, ResponseEntity<List<GetValue>>> responses = readAll(batch, consul);
+			for (String path : batch) {
+				if (!path.equals(context)) {
+					this.prefetched.putIfAbsent(path, CompletableFuture.completedFuture(responses.get(path)));
+				}
+			}
+			return responses.get(context);
+		}
+		catch (RuntimeException e) {
+			if (log.isDebugEnabled()) {
+				log.debug("Reading consul config from " + batch + " in a transaction failed, reading them one by one",
+						e);
+			}
+			return null;
+		}
+	}
+
+	private static String stripLeadingSlash(String context) {
+		if (context.startsWith("/")) {
+			return context.substring(1);
+		}
+		return context;
+	}
+
 	@Deprecated
 	public ConsulPropertySource createPropertySource(String propertySourceContext, boolean optional,
 			ConsulClient consul, BiConsumer<String, Long> indexConsumer) {
@@ -119,16 +404,12 @@ public class ConsulPropertySources {
 
 	public ConsulPropertySource createPropertySource(String propertySourceContext, ConsulClient consul,
 			BiConsumer<String, Long> indexConsumer) {
-		if (propertySourceContext.startsWith("/")) {
-			propertySourceContext = propertySourceContext.substring(1);
-		}
+		propertySourceContext = stripLeadingSlash(propertySourceContext);
 		try {
 			ConsulPropertySource propertySource = null;
+			ResponseEntity<List<GetValue>> response = getResponse(propertySourceContext, consul);
 
 			if (properties.getFormat() == FILES) {
-				ResponseEntity<List<GetValue>> response = consul.getKVValue(propertySourceContext,
-						properties.getAclToken());
-
 				GetValue value = null;
 				if (response.getStatusCode().is2xxSuccessful()) {
 					List<GetValue> values = response.getBody();
@@ -148,12 +429,13 @@ public class ConsulPropertySources {
 				if (response.hasBody()) {
 					ConsulFilesPropertySource filesPropertySource = new ConsulFilesPropertySource(propertySourceContext,
 							consul, properties);
+					filesPropertySource.setInitialValues(response.getBody());
 					filesPropertySource.init(value);
 					propertySource = filesPropertySource;
 				}
 			}
 			else {
-				propertySource = create(propertySourceContext, consul, indexConsumer);
+				propertySource = create(propertySourceContext, consul, indexConsumer, response);
 			}
 			return propertySource;
 		}
@@ -172,9 +454,9 @@ public class ConsulPropertySources {
 	}
 
 	private ConsulPropertySource create(String context, ConsulClient consulClient,
-			BiConsumer<String, Long> indexConsumer) {
+			BiConsumer<String, Long> indexConsumer, ResponseEntity<List<GetValue>> response) {
 		ConsulPropertySource propertySource = new ConsulPropertySource(context, consulClient, this.properties);
-		propertySource.init();
+		propertySource.init(response);
 		indexConsumer.accept(context, propertySource.getInitialIndex());
 		return propertySource;
 	}
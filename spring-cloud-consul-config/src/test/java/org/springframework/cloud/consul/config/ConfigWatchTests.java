@@ -16,28 +16,39 @@
 
 package org.springframework.cloud.consul.config;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
 import org.springframework.cloud.consul.model.http.ConsulHeaders;
 import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.cloud.endpoint.event.RefreshEvent;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.StandardEnvironment;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.ResponseEntity.BodyBuilder;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.StringUtils;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.atLeastOnce;
@@ -108,6 +119,8 @@ public class ConfigWatchTests {
 
 		BodyBuilder response;
 		if (getValue != null) {
+			getValue.setKey(context);
+			getValue.setModifyIndex(1);
 			getValues = Arrays.asList(getValue);
 			response = ResponseEntity.status(HttpStatus.OK);
 		}
@@ -155,4 +168,243 @@ public class ConfigWatchTests {
 		verify(eventPublisher, times(0)).publishEvent(any(RefreshEvent.class));
 	}
 
+	@Test
+	public void eachContextIsScheduledSeparately() {
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		LinkedHashMap<String, Long> initialIndexes = new LinkedHashMap<>();
+		initialIndexes.put("/config/app/", 0L);
+		initialIndexes.put("/config/application/", 0L);
+
+		ConfigWatch watch = new ConfigWatch(this.configProperties, mock(ConsulClient.class), initialIndexes,
+				taskScheduler);
+		watch.start();
+
+		verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+	}
+
+	@Test
+	public void failingContextDoesNotBlockOtherContexts() {
+		ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("/config/app/"), nullable(String.class), anyLong(), anyLong()))
+			.thenThrow(new RuntimeException("agent unavailable"));
+		when(consul.getKVValues(eq("/config/application/"), nullable(String.class), anyLong(), anyLong()))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "1")
+				.body(Collections.singletonList(getValue("/config/application/foo", 1))));
+
+		this.configProperties.setFailFast(false);
+		LinkedHashMap<String, Long> initialIndexes = new LinkedHashMap<>();
+		initialIndexes.put("/config/app/", 0L);
+		initialIndexes.put("/config/application/", 0L);
+		ConfigWatch watch = new ConfigWatch(this.configProperties, consul, initialIndexes,
+				mock(TaskScheduler.class));
+		watch.setApplicationEventPublisher(eventPublisher);
+		watch.start();
+
+		watch.watchConfigKeyValues();
+		verify(eventPublisher, times(1)).publishEvent(any(RefreshEvent.class));
+
+		// the failing context backs off and is not queried again right away
+		watch.watchConfigKeyValues();
+		verify(consul, times(1)).getKVValues(eq("/config/app/"), nullable(String.class), anyLong(), anyLong());
+		verify(consul, times(2)).getKVValues(eq("/config/application/"), nullable(String.class), anyLong(),
+				anyLong());
+	}
+
+	@Test
+	public void contextsAreGroupedByCommonPrefix() {
+		Map<String, List<String>> prefixes = ConfigWatch.getWatchPrefixes(Arrays.asList("config/app,dev/",
+				"config/app/", "config/application,dev/", "config/application/", "shared/application/"));
+
+		assertThat(prefixes).containsOnlyKeys("config/", "shared/application/");
+		assertThat(prefixes.get("config/")).hasSize(4);
+	}
+
+	@Test
+	public void prefixWatchPublishesEventForChangedContextOnly() {
+		ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("config/"), nullable(String.class), any(QueryParams.class)))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "7")
+				.body(Arrays.asList(getValue("config/app/foo", 5), getValue("config/application/bar", 7))));
+
+		this.configProperties.getWatch().setMode(ConsulConfigProperties.Watch.Mode.PREFIX);
+		LinkedHashMap<String, Long> initialIndexes = new LinkedHashMap<>();
+		initialIndexes.put("config/app/", 5L);
+		initialIndexes.put("config/application/", 3L);
+		ConfigWatch watch = new ConfigWatch(this.configProperties, consul, initialIndexes,
+				mock(TaskScheduler.class));
+		watch.setApplicationEventPublisher(eventPublisher);
+		watch.start();
+
+		watch.watchConfigKeyValues();
+
+		ArgumentCaptor<RefreshEvent> event = ArgumentCaptor.forClass(RefreshEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertThat(event.getValue().getEvent())
+			.isEqualTo(new ConfigWatch.RefreshEventData("config/application/", 3L, 7L,
+					Collections.singleton("config/application/bar")));
+		// the watch blocks on the lowest index the contexts were loaded with
+		verify(consul, times(1)).getKVValues(anyString(), nullable(String.class),
+				argThat(queryParams -> queryParams.getIndex() == 3L));
+	}
+
+	@Test
+	public void prefixWatchDoesNotPublishEventOnError() {
+		ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("config/"), nullable(String.class), any(QueryParams.class)))
+			.thenReturn(ResponseEntity.status(HttpStatus.FORBIDDEN).header(ConsulHeaders.INDEX_HEADER, "7").build());
+
+		this.configProperties.setFailFast(false);
+		this.configProperties.getWatch().setMode(ConsulConfigProperties.Watch.Mode.PREFIX);
+		LinkedHashMap<String, Long> initialIndexes = new LinkedHashMap<>();
+		initialIndexes.put("config/app/", 5L);
+		initialIndexes.put("config/application/", 3L);
+		ConfigWatch watch = new ConfigWatch(this.configProperties, consul, initialIndexes,
+				mock(TaskScheduler.class));
+		watch.setApplicationEventPublisher(eventPublisher);
+		watch.start();
+
+		watch.watchConfigKeyValues();
+
+		verify(eventPublisher, never()).publishEvent(any(RefreshEvent.class));
+		verify(consul).getKVValues(eq("config/"), nullable(String.class),
+				argThat(queryParams -> queryParams.getIndex() == 3L));
+	}
+
+	private GetValue getValue(String key, long modifyIndex) {
+		GetValue getValue = new GetValue();
+		getValue.setKey(key);
+		getValue.setModifyIndex(modifyIndex);
+		return getValue;
+	}
+
+	@Test
+	public void unrelatedIndexChangeDoesNotPublishEvent() {
+		ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("config/app/"), nullable(String.class), anyLong(), anyLong()))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "10")
+				.body(Collections.singletonList(getValue("config/app/foo", 5))))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "11")
+				.body(Collections.singletonList(getValue("config/app/foo", 5))))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "12")
+				.body(Arrays.asList(getValue("config/app/foo", 12), getValue("config/app/bar", 12))));
+
+		LinkedHashMap<String, Long> initialIndexes = new LinkedHashMap<>();
+		initialIndexes.put("config/app/", 5L);
+		ConfigWatch watch = new ConfigWatch(this.configProperties, consul, initialIndexes,
+				mock(TaskScheduler.class));
+		watch.setApplicationEventPublisher(eventPublisher);
+		watch.start();
+
+		// the index moved because of writes elsewhere in the KV store
+		watch.watchConfigKeyValues();
+		watch.watchConfigKeyValues();
+		verify(eventPublisher, never()).publishEvent(any(RefreshEvent.class));
+
+		watch.watchConfigKeyValues();
+		ArgumentCaptor<RefreshEvent> event = ArgumentCaptor.forClass(RefreshEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertThat(((ConfigWatch.RefreshEventData) event.getValue().getEvent()).getChangedKeys())
+			.containsExactly("config/app/bar", "config/app/foo");
+	}
+
+	@Test
+	public void changedKeysIncludeDeletedKeys() {
+		Map<String, Long> previous = Map.of("config/app/foo", 5L, "config/app/bar", 6L);
+		Map<String, Long> current = Map.of("config/app/foo", 5L);
+
+		assertThat(ConfigWatch.getChangedKeys(previous, current, 6L)).containsExactly("config/app/bar");
+	}
+
+	@Test
+	public void firstResponseIsComparedWithLoadedKeys() {
+		ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("config/app/"), nullable(String.class)))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "5")
+				.body(Arrays.asList(getValue("config/app/foo", 5, "one"), getValue("config/app/bar", 5, "two"))));
+		// bar was deleted before the watch started, which leaves no modify index behind
+		when(consul.getKVValues(eq("config/app/"), nullable(String.class), anyLong(), anyLong()))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "7")
+				.body(Collections.singletonList(getValue("config/app/foo", 5, "one"))));
+
+		ConsulPropertySource propertySource = new ConsulPropertySource("config/app/", consul, this.configProperties);
+		propertySource.init();
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(propertySource);
+
+		LinkedHashMap<String, Long> initialIndexes = new LinkedHashMap<>();
+		initialIndexes.put("config/app/", 5L);
+		ConfigWatch watch = new ConfigWatch(this.configProperties, consul, initialIndexes,
+				mock(TaskScheduler.class));
+		watch.setApplicationEventPublisher(eventPublisher);
+		watch.setEnvironment(environment);
+		watch.start();
+
+		watch.watchConfigKeyValues();
+		ArgumentCaptor<RefreshEvent> event = ArgumentCaptor.forClass(RefreshEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertThat(((ConfigWatch.RefreshEventData) event.getValue().getEvent()).getChangedKeys())
+			.containsExactly("config/app/bar");
+	}
+
+	@Test
+	public void incrementalWatchUpdatesPropertySourceInPlace() {
+		ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("config/app/"), nullable(String.class)))
+			.thenReturn(ResponseEntity.ok(Arrays.asList(getValue("config/app/foo", 5, "one"),
+					getValue("config/app/bar", 5, "two"), getValue("config/app/baz", 5, "three"))));
+		when(consul.getKVValues(eq("config/app/"), nullable(String.class), anyLong(), anyLong()))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "6")
+				.body(Arrays.asList(getValue("config/app/foo", 5, "one"), getValue("config/app/bar", 5, "two"),
+						getValue("config/app/baz", 5, "three"))))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "8")
+				.body(Arrays.asList(getValue("config/app/foo", 8, "uno"), getValue("config/app/baz", 5, "three"))));
+
+		ConsulPropertySource propertySource = new ConsulPropertySource("config/app/", consul, this.configProperties);
+		propertySource.init();
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(propertySource);
+
+		this.configProperties.getWatch().setIncremental(true);
+		LinkedHashMap<String, Long> initialIndexes = new LinkedHashMap<>();
+		initialIndexes.put("config/app/", 5L);
+		ConfigWatch watch = new ConfigWatch(this.configProperties, consul, initialIndexes,
+				mock(TaskScheduler.class));
+		watch.setApplicationEventPublisher(eventPublisher);
+		watch.setEnvironment(environment);
+		watch.start();
+
+		watch.watchConfigKeyValues();
+		assertThat(environment.getProperty("foo")).isEqualTo("one");
+
+		watch.watchConfigKeyValues();
+		assertThat(environment.getProperty("foo")).isEqualTo("uno");
+		assertThat(environment.getProperty("bar")).isNull();
+		assertThat(environment.getProperty("baz")).isEqualTo("three");
+		ArgumentCaptor<EnvironmentChangeEvent> event = ArgumentCaptor.forClass(EnvironmentChangeEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertThat(event.getValue().getKeys()).containsExactlyInAnyOrder("foo", "bar");
+		verify(eventPublisher, never()).publishEvent(any(RefreshEvent.class));
+	}
+
+	private GetValue getValue(String key, long modifyIndex, String value) {
+		GetValue getValue = getValue(key, modifyIndex);
+		getValue.setValue(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+		return getValue;
+	}
+
 }
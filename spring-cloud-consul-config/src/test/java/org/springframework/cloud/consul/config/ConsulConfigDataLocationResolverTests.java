@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.logging.LogFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -31,13 +32,18 @@ import org.springframework.boot.context.config.ConfigDataLocation;
 import org.springframework.boot.context.config.ConfigDataLocationResolverContext;
 import org.springframework.boot.context.config.Profiles;
 import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.consul.ConsulAutoConfiguration;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClientMetrics;
 import org.springframework.cloud.consul.ConsulProperties;
+import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.core.env.SystemEnvironmentPropertySource;
 import org.springframework.mock.env.MockEnvironment;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -109,6 +115,31 @@ public class ConsulConfigDataLocationResolverTests {
 		assertThat(properties.getAclToken()).isEqualTo(tokenValue);
 	}
 
+	@Test
+	public void promotedClientIsMetered() {
+		ConsulConfigDataLocationResolver resolver = new ConsulConfigDataLocationResolver(
+				destination -> LogFactory.getLog(ConsulConfigDataLocationResolver.class));
+		DefaultBootstrapContext bootstrapContext = new DefaultBootstrapContext();
+		ConfigDataLocationResolverContext context = mock(ConfigDataLocationResolverContext.class);
+		when(context.getBootstrapContext()).thenReturn(bootstrapContext);
+		when(context.getBinder()).thenReturn(Binder.get(new MockEnvironment()));
+		Profiles profiles = mock(Profiles.class);
+		when(profiles.getAccepted()).thenReturn(Collections.emptyList());
+		resolver.resolveProfileSpecific(context, ConfigDataLocation.of("consul:localhost:1"), profiles);
+
+		GenericApplicationContext applicationContext = new GenericApplicationContext();
+		bootstrapContext.close(applicationContext);
+		ConsulClientMetrics metrics = applicationContext.getBean(ConsulAutoConfiguration.CONSUL_CLIENT_METRICS_NAME,
+				ConsulClientMetrics.class);
+		assertThat(metrics).isSameAs(bootstrapContext.get(ConsulClientMetrics.class));
+
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		metrics.bindTo(registry);
+		ConsulClient consulClient = applicationContext.getBean(ConsulClient.class);
+		assertThatThrownBy(consulClient::getStatusLeader).isNotNull();
+		assertThat(registry.find("consul.client.requests").tag("status", "IO_ERROR").timer()).isNotNull();
+	}
+
 	private List<String> toContexts(List<ConsulConfigDataResource> locations) {
 		return locations.stream().map(ConsulConfigDataResource::getContext).collect(Collectors.toList());
 	}
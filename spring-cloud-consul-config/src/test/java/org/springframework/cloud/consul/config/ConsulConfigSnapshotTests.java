@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.commons.logging.LogFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ConsulConfigSnapshot}.
+ */
+public class ConsulConfigSnapshotTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void snapshotIsWrittenAndReadBack() throws Exception {
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("snapshots/app.snapshot");
+		ConsulConfigSnapshot snapshot = new ConsulConfigSnapshot(file, false);
+		snapshot.put("config/application/", 7L, Collections.singletonList(value("config/application/foo", "bar")));
+
+		assertThat(Files.exists(file)).isTrue();
+		ConsulConfigSnapshot reloaded = new ConsulConfigSnapshot(file, false);
+		ResponseEntity<List<GetValue>> response = reloaded.getResponse("config/application/");
+		assertThat(ConsulHeaders.getConsulIndex(response)).isEqualTo(7L);
+		assertThat(response.getBody()).hasSize(1);
+		GetValue value = response.getBody().get(0);
+		assertThat(value.getKey()).isEqualTo("config/application/foo");
+		assertThat(value.getDecodedValue()).isEqualTo("bar");
+		assertThat(value.getModifyIndex()).isEqualTo(7L);
+		assertThat(reloaded.getResponse("config/other/")).isNull();
+	}
+
+	@Test
+	public void corruptSnapshotIsIgnored() throws Exception {
+		Path file = this.temporaryFolder.newFile("corrupt.snapshot").toPath();
+		Files.write(file, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+
+		ConsulConfigSnapshot snapshot = new ConsulConfigSnapshot(file, true);
+
+		assertThat(snapshot.getResponse("config/application/")).isNull();
+	}
+
+	@Test
+	public void snapshotWithInvalidLengthIsIgnored() throws Exception {
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("truncated.snapshot");
+		new ConsulConfigSnapshot(file, false).put("config/application/", 7L,
+				Collections.singletonList(value("config/application/foo", "bar")));
+		byte[] bytes = Files.readAllBytes(file);
+		// the length of the first context follows the magic, the version and the count
+		ByteBuffer.wrap(bytes).putInt(12, Integer.MAX_VALUE);
+		Files.write(file, bytes);
+
+		ConsulConfigSnapshot snapshot = new ConsulConfigSnapshot(file, false);
+
+		assertThat(snapshot.getResponse("config/application/")).isNull();
+	}
+
+	@Test
+	public void snapshotIsOnlyReadableByItsOwner() throws Exception {
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("private/app.snapshot");
+		assumeTrue(file.getFileSystem().supportedFileAttributeViews().contains("posix"));
+		new ConsulConfigSnapshot(file, false).put("config/application/", 7L,
+				Collections.singletonList(value("config/application/foo", "bar")));
+
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("rw-------");
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file.getParent())))
+			.isEqualTo("rwx------");
+		assertThat(ConsulConfigSnapshot.isTrusted(file)).isTrue();
+	}
+
+	@Test
+	public void snapshotWritableByOthersIsIgnored() throws Exception {
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("shared.snapshot");
+		assumeTrue(file.getFileSystem().supportedFileAttributeViews().contains("posix"));
+		new ConsulConfigSnapshot(file, false).put("config/application/", 7L,
+				Collections.singletonList(value("config/application/foo", "bar")));
+		Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-rw-"));
+
+		ConsulConfigSnapshot snapshot = new ConsulConfigSnapshot(file, true);
+
+		assertThat(snapshot.getResponse("config/application/")).isNull();
+	}
+
+	@Test
+	public void restoredContextsAreNotReadFromConsul() throws Exception {
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("restore.snapshot");
+		new ConsulConfigSnapshot(file, false).put("config/application/", 7L,
+				Collections.singletonList(value("config/application/foo", "bar")));
+		ConsulClient consul = mock(ConsulClient.class);
+		ConsulPropertySources sources = new ConsulPropertySources(new ConsulConfigProperties(),
+				LogFactory.getLog(ConsulConfigSnapshotTests.class));
+		sources.setSnapshot(new ConsulConfigSnapshot(file, true));
+
+		LinkedHashMap<String, Long> indexes = new LinkedHashMap<>();
+		ConsulPropertySource propertySource = sources.createPropertySource("config/application/", consul,
+				indexes::put);
+
+		assertThat(propertySource.getProperty("foo")).isEqualTo("bar");
+		assertThat(indexes).containsEntry("config/application/", 7L);
+		verify(consul, never()).getKVValues(anyString(), nullable(String.class));
+
+		// a later load of the same file reads consul again
+		assertThat(new ConsulConfigSnapshot(file, true).isRestoring()).isFalse();
+	}
+
+	@Test
+	public void snapshotIsUsedWhenConsulIsUnavailable() throws Exception {
+		Path file = this.temporaryFolder.getRoot().toPath().resolve("offline.snapshot");
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("config/application/"), nullable(String.class)))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "7")
+				.body(Collections.singletonList(value("config/application/foo", "bar"))))
+			.thenThrow(new IllegalStateException("consul unavailable"));
+
+		ConsulPropertySources online = new ConsulPropertySources(new ConsulConfigProperties(),
+				LogFactory.getLog(ConsulConfigSnapshotTests.class));
+		online.setSnapshot(new ConsulConfigSnapshot(file, false));
+		online.createPropertySource("config/application/", consul, new LinkedHashMap<String, Long>()::put);
+
+		ConsulPropertySources offline = new ConsulPropertySources(new ConsulConfigProperties(),
+				LogFactory.getLog(ConsulConfigSnapshotTests.class));
+		offline.setSnapshot(new ConsulConfigSnapshot(file, false));
+		ConsulPropertySource propertySource = offline.createPropertySource("config/application/", consul,
+				new LinkedHashMap<String, Long>()::put);
+
+		assertThat(propertySource.getProperty("foo")).isEqualTo("bar");
+	}
+
+	private GetValue value(String key, String value) {
+		GetValue getValue = new GetValue();
+		getValue.setKey(key);
+		getValue.setValue(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+		getValue.setCreateIndex(7);
+		getValue.setModifyIndex(7);
+		return getValue;
+	}
+
+}
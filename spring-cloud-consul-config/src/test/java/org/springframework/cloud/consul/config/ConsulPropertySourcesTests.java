@@ -16,23 +16,39 @@
 
 package org.springframework.cloud.consul.config;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.LogFactory;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.config.ConsulPropertySources.Context;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
 import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.cloud.consul.model.http.txn.TxnOperation;
+import org.springframework.cloud.consul.model.http.txn.TxnResponse;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -84,4 +100,218 @@ public class ConsulPropertySourcesTests {
 		assertThat(indexes).doesNotContainKey("/test.yml");
 	}
 
+	@Test
+	public void createPropertySourceUsesPrefetchedResponse() {
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("config/application/"), nullable(String.class)))
+			.thenReturn(kvResponse(3, "config/application/foo", "bar"));
+		when(consul.getKVValues(eq("config/testapp/"), nullable(String.class)))
+			.thenReturn(kvResponse(5, "config/testapp/foo", "baz"));
+
+		ConsulConfigProperties properties = new ConsulConfigProperties();
+		properties.setBatchReads(false);
+		ConsulPropertySources sources = new ConsulPropertySources(properties,
+				LogFactory.getLog(ConsulPropertySourcesTests.class));
+		sources.prefetch(Arrays.asList(new Context("config/application/"), new Context("/config/testapp/")), consul);
+
+		LinkedHashMap<String, Long> indexes = new LinkedHashMap<>();
+		ConsulPropertySource application = sources.createPropertySource("config/application/", consul,
+				indexes::put);
+		ConsulPropertySource testapp = sources.createPropertySource("/config/testapp/", consul, indexes::put);
+
+		assertThat(application.getProperty("foo")).isEqualTo("bar");
+		assertThat(testapp.getProperty("foo")).isEqualTo("baz");
+		assertThat(indexes).containsEntry("config/application/", 3L).containsEntry("config/testapp/", 5L);
+		verify(consul, times(1)).getKVValues(eq("config/application/"), nullable(String.class));
+		verify(consul, times(1)).getKVValues(eq("config/testapp/"), nullable(String.class));
+	}
+
+	@Test
+	public void createPropertySourceReadsAgainWhenPrefetchFailed() {
+		ConsulClient consul = mock(ConsulClient.class);
+		when(consul.getKVValues(eq("config/application/"), nullable(String.class)))
+			.thenThrow(new IllegalStateException("consul unavailable"))
+			.thenReturn(kvResponse(3, "config/application/foo", "bar"));
+		when(consul.getKVValues(eq("config/testapp/"), nullable(String.class)))
+			.thenReturn(kvResponse(5, "config/testapp/foo", "baz"));
+
+		ConsulConfigProperties properties = new ConsulConfigProperties();
+		properties.setBatchReads(false);
+		ConsulPropertySources sources = new ConsulPropertySources(properties,
+				LogFactory.getLog(ConsulPropertySourcesTests.class));
+		sources.prefetch(Arrays.asList(new Context("config/application/"), new Context("config/testapp/")), consul);
+
+		ConsulPropertySource application = sources.createPropertySource("config/application/", consul,
+				new LinkedHashMap<String, Long>()::put);
+
+		assertThat(application.getProperty("foo")).isEqualTo("bar");
+		verify(consul, times(2)).getKVValues(eq("config/application/"), nullable(String.class));
+	}
+
+	@Test
+	public void clearedPrefetchedResponsesAreNotUsed() throws Exception {
+		ConsulClient consul = mock(ConsulClient.class);
+		CountDownLatch prefetched = new CountDownLatch(2);
+		when(consul.getKVValues(anyString(), nullable(String.class))).thenAnswer(invocation -> {
+			prefetched.countDown();
+			return kvResponse(3, invocation.getArgument(0) + "foo", "bar");
+		});
+
+		ConsulConfigProperties properties = new ConsulConfigProperties();
+		properties.setBatchReads(false);
+		ConsulPropertySources sources = new ConsulPropertySources(properties,
+				LogFactory.getLog(ConsulPropertySourcesTests.class));
+		sources.prefetch(Arrays.asList(new Context("config/application/"), new Context("config/testapp/")), consul);
+		assertThat(prefetched.await(5, TimeUnit.SECONDS)).isTrue();
+		sources.clearPrefetched();
+
+		ConsulPropertySource application = sources.createPropertySource("config/application/", consul,
+				new LinkedHashMap<String, Long>()::put);
+
+		assertThat(application.getProperty("foo")).isEqualTo("bar");
+		verify(consul, times(2)).getKVValues(eq("config/application/"), nullable(String.class));
+	}
+
+	@Test
+	public void prefetchReadsFilesInOneTransaction() {
+		ConsulClient consul = mock(ConsulClient.class);
+		TxnResponse txn = txnResponse(getValue("config/application.yml", "foo: bar", 3),
+				getValue("config/application.yml.bak", "foo: old", 2), getValue("config/testapp.yml", "foo: baz", 5));
+		when(consul.transaction(nullable(String.class), anyList()))
+			.thenReturn(ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, "9").body(txn));
+
+		ConsulConfigProperties properties = new ConsulConfigProperties();
+		properties.setFormat(ConsulConfigProperties.Format.FILES);
+		ConsulPropertySources sources = new ConsulPropertySources(properties,
+				LogFactory.getLog(ConsulPropertySourcesTests.class));
+		sources.prefetch(Arrays.asList(new Context("config/application.yml"), new Context("config/testapp.yml"),
+				new Context("config/testapp-dev.yml")), consul);
+
+		LinkedHashMap<String, Long> indexes = new LinkedHashMap<>();
+		ConsulPropertySource application = sources.createPropertySource("config/application.yml", consul,
+				indexes::put);
+		ConsulPropertySource testapp = sources.createPropertySource("config/testapp.yml", consul, indexes::put);
+		ConsulPropertySource missing = sources.createPropertySource("config/testapp-dev.yml", consul, indexes::put);
+
+		assertThat(application.getProperty("foo")).isEqualTo("bar");
+		assertThat(testapp.getProperty("foo")).isEqualTo("baz");
+		assertThat(missing).isNull();
+		assertThat(indexes).containsEntry("config/application.yml", 3L)
+			.containsEntry("config/testapp.yml", 5L)
+			.containsEntry("config/testapp-dev.yml", 9L);
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		ArgumentCaptor<List<TxnOperation>> operations = ArgumentCaptor.forClass((Class) List.class);
+		verify(consul, times(1)).transaction(nullable(String.class), operations.capture());
+		assertThat(operations.getValue()).extracting(operation -> operation.getKv().getKey())
+			.containsExactly("config/application.yml", "config/testapp.yml", "config/testapp-dev.yml");
+		verify(consul, never()).getKVValue(anyString(), nullable(String.class));
+	}
+
+	@Test
+	public void batchReadsFilesInOneTransactionWithoutPrefetch() {
+		ConsulClient consul = mock(ConsulClient.class);
+		TxnResponse txn = txnResponse(getValue("config/application.yml", "foo: bar", 3),
+				getValue("config/testapp.yml", "foo: baz", 5));
+		when(consul.transaction(nullable(String.class), anyList()))
+			.thenReturn(ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, "9").body(txn));
+
+		ConsulConfigProperties properties = new ConsulConfigProperties();
+		properties.setFormat(ConsulConfigProperties.Format.FILES);
+		ConsulPropertySources sources = new ConsulPropertySources(properties,
+				LogFactory.getLog(ConsulPropertySourcesTests.class));
+		sources.batch(Arrays.asList(new Context("config/application.yml"), new Context("config/testapp.yml"),
+				new Context("config/testapp-dev.yml")));
+		// nothing is read before the first property source is created
+		verify(consul, never()).transaction(nullable(String.class), anyList());
+
+		LinkedHashMap<String, Long> indexes = new LinkedHashMap<>();
+		ConsulPropertySource application = sources.createPropertySource("config/application.yml", consul,
+				indexes::put);
+		ConsulPropertySource testapp = sources.createPropertySource("config/testapp.yml", consul, indexes::put);
+		ConsulPropertySource missing = sources.createPropertySource("config/testapp-dev.yml", consul, indexes::put);
+
+		assertThat(application.getProperty("foo")).isEqualTo("bar");
+		assertThat(testapp.getProperty("foo")).isEqualTo("baz");
+		assertThat(missing).isNull();
+		verify(consul, times(1)).transaction(nullable(String.class), anyList());
+		verify(consul, never()).getKVValue(anyString(), nullable(String.class));
+	}
+
+	@Test
+	public void prefetchSplitsKeysOfNestedContexts() {
+		ConsulClient consul = mock(ConsulClient.class);
+		TxnResponse txn = txnResponse(getValue("config/application/foo", "bar", 3),
+				getValue("config/application/sub/foo", "baz", 4), getValue("config/application/sub/foo", "baz", 4));
+		when(consul.transaction(nullable(String.class), anyList())).thenReturn(ResponseEntity.ok(txn));
+
+		ConsulPropertySources sources = new ConsulPropertySources(new ConsulConfigProperties(),
+				LogFactory.getLog(ConsulPropertySourcesTests.class));
+		sources.prefetch(Arrays.asList(new Context("config/application/"), new Context("config/application/sub/")),
+				consul);
+
+		LinkedHashMap<String, Long> indexes = new LinkedHashMap<>();
+		ConsulPropertySource application = sources.createPropertySource("config/application/", consul,
+				indexes::put);
+		ConsulPropertySource sub = sources.createPropertySource("config/application/sub/", consul, indexes::put);
+
+		assertThat(application.getProperty("foo")).isEqualTo("bar");
+		assertThat(application.getProperty("sub.foo")).isEqualTo("baz");
+		assertThat(sub.getProperty("foo")).isEqualTo("baz");
+		assertThat(indexes).containsEntry("config/application/", 4L).containsEntry("config/application/sub/", 4L);
+		verify(consul, never()).getKVValues(anyString(), nullable(String.class));
+	}
+
+	@Test
+	public void createPropertySourceReadsAgainWhenTransactionFailed() {
+		ConsulClient consul = mock(ConsulClient.class);
+		TxnResponse.Error error = new TxnResponse.Error();
+		error.setWhat("Permission denied");
+		TxnResponse txn = new TxnResponse();
+		txn.setErrors(Collections.singletonList(error));
+		when(consul.transaction(nullable(String.class), anyList()))
+			.thenReturn(ResponseEntity.status(HttpStatus.CONFLICT).body(txn));
+		when(consul.getKVValues(eq("config/application/"), nullable(String.class)))
+			.thenReturn(kvResponse(3, "config/application/foo", "bar"));
+
+		ConsulPropertySources sources = new ConsulPropertySources(new ConsulConfigProperties(),
+				LogFactory.getLog(ConsulPropertySourcesTests.class));
+		sources.prefetch(Arrays.asList(new Context("config/application/"), new Context("config/testapp/")), consul);
+
+		ConsulPropertySource application = sources.createPropertySource("config/application/", consul,
+				new LinkedHashMap<String, Long>()::put);
+
+		assertThat(application.getProperty("foo")).isEqualTo("bar");
+		verify(consul, times(1)).getKVValues(eq("config/application/"), nullable(String.class));
+	}
+
+	private TxnResponse txnResponse(GetValue... values) {
+		List<TxnResponse.Result> results = new ArrayList<>();
+		for (GetValue value : values) {
+			TxnResponse.Result result = new TxnResponse.Result();
+			result.setKv(value);
+			results.add(result);
+		}
+		TxnResponse response = new TxnResponse();
+		response.setResults(results);
+		return response;
+	}
+
+	private GetValue getValue(String key, String value, long modifyIndex) {
+		GetValue getValue = new GetValue();
+		getValue.setKey(key);
+		getValue.setValue(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+		getValue.setModifyIndex(modifyIndex);
+		return getValue;
+	}
+
+	private ResponseEntity<List<GetValue>> kvResponse(long index, String key, String value) {
+		GetValue getValue = new GetValue();
+		getValue.setKey(key);
+		getValue.setValue(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+		return ResponseEntity.ok()
+			.header(ConsulHeaders.INDEX_HEADER, String.valueOf(index))
+			.body(Collections.singletonList(getValue));
+	}
+
 }
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Runs a consul blocking query over and over and calls a listener whenever the
+ * {@code X-Consul-Index} changes. It follows the consul rules for blocking queries: the
+ * index is reset when it goes backwards, an index of 0 is never sent back, and queries
+ * that keep returning early with the same index are rate limited. The requested wait
+ * time and every delay are jittered so that many instances started together do not
+ * query the servers in lockstep, and a failing query backs off exponentially up to
+ * {@link #setMaxBackoff(Duration) the maximum backoff}.
+ * <p>
+ * A watcher either runs on its own with {@link #start()}, rescheduling itself on the
+ * {@link TaskScheduler} after every query, or is driven by the caller through
+ * {@link #poll()}.
+ *
+ * @param <T> the type of the response body
+ * @see <a href="https://developer.hashicorp.com/consul/api-docs/features/blocking">Blocking
+ * Queries</a>
+ */
+public class BlockingQueryWatcher<T> {
+
+	/**
+	 * Index of a watcher that has no index yet, its first query does not block.
+	 */
+	public static final long NO_INDEX = -1;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BlockingQueryWatcher.class);
+
+	private final String description;
+
+	private final Fetcher<T> fetcher;
+
+	private final Listener<T> listener;
+
+	private final TaskScheduler taskScheduler;
+
+	private ErrorHandler errorHandler;
+
+	private Duration waitTime = Duration.ofSeconds(55);
+
+	private Duration delay = Duration.ofSeconds(1);
+
+	private Duration maxBackoff = Duration.ofMinutes(1);
+
+	private double jitter = 0.1;
+
+	private boolean monotonicIndex = true;
+
+	private volatile long index = NO_INDEX;
+
+	private volatile boolean firstQuery = true;
+
+	private volatile int failures;
+
+	private volatile int earlyReturns;
+
+	private volatile boolean backingOff;
+
+	private volatile long retryAt;
+
+	private volatile Duration nextDelay = Duration.ZERO;
+
+	private volatile boolean running;
+
+	private volatile ScheduledFuture<?> future;
+
+	/**
+	 * Creates a watcher.
+	 * @param description what is watched, used in log messages
+	 * @param fetcher runs the blocking query with the given wait time and index
+	 * @param listener called with every response that has a new index
+	 * @param taskScheduler the scheduler to run on once started, may be {@code null} if
+	 * the watcher is only driven through {@link #poll()}
+	 */
+	public BlockingQueryWatcher(String description, Fetcher<T> fetcher, Listener<T> listener,
+			TaskScheduler taskScheduler) {
+		Assert.notNull(fetcher, "fetcher must not be null");
+		Assert.notNull(listener, "listener must not be null");
+		this.description = description;
+		this.fetcher = fetcher;
+		this.listener = listener;
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Sets the handler of failed queries. Without one the exception is logged when the
+	 * watcher runs on its own and rethrown from {@link #poll()}.
+	 * @param errorHandler the error handler
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * Sets how long consul may block a query before returning. Defaults to 55 seconds.
+	 * @param waitTime the wait time, at least one second
+	 */
+	public void setWaitTime(Duration waitTime) {
+		this.waitTime = waitTime;
+	}
+
+	/**
+	 * Sets the delay between two queries, which is also the base of the backoff.
+	 * Defaults to one second.
+	 * @param delay the delay
+	 */
+	public void setDelay(Duration delay) {
+		this.delay = delay;
+	}
+
+	/**
+	 * Sets the longest delay between two queries while they keep failing or returning
+	 * early. Defaults to one minute.
+	 * @param maxBackoff the maximum backoff
+	 */
+	public void setMaxBackoff(Duration maxBackoff) {
+		this.maxBackoff = maxBackoff;
+	}
+
+	/**
+	 * Sets by how much the wait time and the delays are randomized, as a fraction of
+	 * their value. Defaults to 0.1.
+	 * @param jitter the jitter, between 0 and 1
+	 */
+	public void setJitter(double jitter) {
+		Assert.isTrue(jitter >= 0 && jitter <= 1, "jitter must be between 0 and 1");
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Sets whether the index only ever grows, so that a smaller one means the servers
+	 * lost state and the watch has to start over. That is not the case for the event
+	 * list, whose index is derived from the latest event. Defaults to {@code true}.
+	 * @param monotonicIndex whether the index only ever grows
+	 */
+	public void setMonotonicIndex(boolean monotonicIndex) {
+		this.monotonicIndex = monotonicIndex;
+	}
+
+	/**
+	 * Sets the index to block on, for example the one the watched data was loaded with.
+	 * @param index the index, or {@link #NO_INDEX}
+	 */
+	public void setIndex(long index) {
+		this.index = index;
+	}
+
+	public long getIndex() {
+		return this.index;
+	}
+
+	public String getDescription() {
+		return this.description;
+	}
+
+	/**
+	 * Starts querying on the task scheduler. The first query runs after a random part of
+	 * the delay.
+	 */
+	public synchronized void start() {
+		Assert.state(this.taskScheduler != null, "A task scheduler is needed to start the watcher");
+		if (!this.running) {
+			this.running = true;
+			schedule(Duration.ofNanos((long) (this.delay.toNanos() * ThreadLocalRandom.current().nextDouble())));
+		}
+	}
+
+	public synchronized void stop() {
+		if (this.running) {
+			this.running = false;
+			if (this.future != null) {
+				this.future.cancel(true);
+				this.future = null;
+			}
+		}
+	}
+
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * Runs the query once, unless it is backing off after a failure or after queries that
+	 * kept returning early with the same index, and calls the listener if the index
+	 * changed.
+	 * @return whether the listener was called
+	 */
+	public boolean poll() {
+		if (this.backingOff && System.nanoTime() - this.retryAt < 0) {
+			LOGGER.trace("Backing off from querying {}", this.description);
+			return false;
+		}
+		return query();
+	}
+
+	private boolean query() {
+		long previousIndex = this.index;
+		Duration waitTime = jitterWaitTime();
+		long start = System.nanoTime();
+		try {
+			ResponseEntity<T> response = this.fetcher.fetch(new QueryParams(waitTime.toSeconds(), previousIndex));
+			Long newIndex = ConsulHeaders.getConsulIndex(response);
+			if (newIndex == null) {
+				throw new IllegalStateException("No " + ConsulHeaders.INDEX_HEADER + " in response to query of "
+						+ this.description + ", status " + response.getStatusCode());
+			}
+			this.failures = 0;
+			this.backingOff = false;
+			if (previousIndex != NO_INDEX && newIndex == previousIndex) {
+				onSameIndex(Duration.ofNanos(System.nanoTime() - start), waitTime);
+				return false;
+			}
+			this.earlyReturns = 0;
+			this.nextDelay = jitter(this.delay);
+			if (this.monotonicIndex && previousIndex != NO_INDEX && Long.compareUnsigned(newIndex, previousIndex) < 0) {
+				// the servers lost state, for example after a snapshot restore. Start over
+				// with a query that returns right away instead of blocking on an index that
+				// may not be reached for a long time.
+				LOGGER.debug("Index of {} went backwards from {} to {}, resetting", this.description,
+						Long.toUnsignedString(previousIndex), Long.toUnsignedString(newIndex));
+				this.index = 0;
+				this.nextDelay = Duration.ZERO;
+				return false;
+			}
+			// an index of 0 would make the next query return immediately
+			this.index = newIndex == 0 ? 1 : newIndex;
+			this.listener.onChange(response, previousIndex, newIndex);
+			return true;
+		}
+		catch (RuntimeException ex) {
+			this.failures++;
+			backOff(backoff(this.failures));
+			if (this.errorHandler != null) {
+				this.errorHandler.onError(ex, this.firstQuery);
+				return false;
+			}
+			throw ex;
+		}
+		finally {
+			this.firstQuery = false;
+		}
+	}
+
+	private void onSameIndex(Duration elapsed, Duration waitTime) {
+		// returning well before the wait time with the same index happens when other
+		// data on the servers changed, back off so that busy servers are not hammered
+		if (elapsed.compareTo(waitTime.dividedBy(2)) < 0) {
+			this.earlyReturns++;
+			backOff(backoff(this.earlyReturns));
+			LOGGER.trace("Query of {} returned early with the same index, waiting {}", this.description,
+					this.nextDelay);
+		}
+		else {
+			this.earlyReturns = 0;
+			this.nextDelay = jitter(this.delay);
+		}
+	}
+
+	private void backOff(Duration backoff) {
+		this.backingOff = true;
+		this.retryAt = System.nanoTime() + backoff.toNanos();
+		this.nextDelay = backoff;
+	}
+
+	private void run() {
+		if (!this.running) {
+			return;
+		}
+		try {
+			// already scheduled after the delay, do not skip because of clock drift
+			query();
+		}
+		catch (RuntimeException ex) {
+			LOGGER.warn("Error querying consul for {}: {}", this.description, ex.getMessage());
+			LOGGER.debug("Error querying consul for " + this.description, ex);
+		}
+		finally {
+			synchronized (this) {
+				if (this.running) {
+					schedule(this.nextDelay);
+				}
+			}
+		}
+	}
+
+	private void schedule(Duration delay) {
+		this.future = this.taskScheduler.schedule(this::run, Instant.now().plus(delay));
+	}
+
+	private Duration jitterWaitTime() {
+		// shorten rather than lengthen the wait time, consul adds up to a sixteenth to it.
+		// Wait times are sent in whole seconds.
+		long seconds = this.waitTime.toSeconds();
+		long jittered = seconds - (long) (seconds * this.jitter * ThreadLocalRandom.current().nextDouble());
+		return Duration.ofSeconds(Math.max(1, jittered));
+	}
+
+	private Duration jitter(Duration duration) {
+		double factor = 1 + this.jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+		return Duration.ofNanos((long) (duration.toNanos() * factor));
+	}
+
+	private Duration backoff(int attempts) {
+		long delay = this.delay.toMillis() << Math.min(attempts, 16);
+		Duration backoff = Duration.ofMillis(Math.min(delay, this.maxBackoff.toMillis()));
+		// half of it fixed and half of it random, so failed instances do not retry together
+		return backoff.dividedBy(2)
+			.plusNanos((long) (backoff.toNanos() / 2 * ThreadLocalRandom.current().nextDouble()));
+	}
+
+	@Override
+	public String toString() {
+		return "BlockingQueryWatcher{" + this.description + ", index=" + Long.toUnsignedString(this.index) + "}";
+	}
+
+	/**
+	 * Runs a blocking query.
+	 *
+	 * @param <T> the type of the response body
+	 */
+	@FunctionalInterface
+	public interface Fetcher<T> {
+
+		/**
+		 * Queries consul.
+		 * @param queryParams the wait time and index to block on, the index is
+		 * {@link BlockingQueryWatcher#NO_INDEX} for a query that must not block
+		 * @return the response, with an {@code X-Consul-Index} header
+		 */
+		ResponseEntity<T> fetch(QueryParams queryParams);
+
+	}
+
+	/**
+	 * Called with every response that has a new index.
+	 *
+	 * @param <T> the type of the response body
+	 */
+	@FunctionalInterface
+	public interface Listener<T> {
+
+		/**
+		 * Handles a change.
+		 * @param response the response
+		 * @param previousIndex the index the query blocked on, or
+		 * {@link BlockingQueryWatcher#NO_INDEX}
+		 * @param newIndex the index of the response
+		 */
+		void onChange(ResponseEntity<T> response, long previousIndex, long newIndex);
+
+	}
+
+	/**
+	 * Handles a failed query.
+	 */
+	@FunctionalInterface
+	public interface ErrorHandler {
+
+		/**
+		 * Handles the failure, rethrowing the exception fails the
+		 * {@link BlockingQueryWatcher#poll()} call.
+		 * @param ex the failure
+		 * @param firstQuery whether it was the first query of the watcher
+		 */
+		void onError(RuntimeException ex, boolean firstQuery);
+
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.web.service.annotation.GetExchange;
+
+/**
+ * {@link InvocationHandler} behind a {@link ConsulClient} that lets concurrent identical
+ * reads share a single call to consul. A read is any {@link GetExchange} method, and two
+ * reads are identical when they call the same method with equal arguments, which covers
+ * the path, the query parameters including the consistency mode, and the ACL token.
+ * Callers that arrive while a read is in flight wait for it and get the same response,
+ * or the same exception. Nothing is cached once the call completes. Writes always go
+ * straight to the delegate.
+ * <p>
+ * As the decoded response is shared, callers must not modify its body.
+ */
+public final class CoalescingConsulClient implements InvocationHandler {
+
+	private final ConsulClient delegate;
+
+	private final Map<Request, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+	private CoalescingConsulClient(ConsulClient delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Wraps the given client so that concurrent identical reads are coalesced.
+	 * @param delegate the client making the calls
+	 * @return the coalescing client
+	 */
+	public static ConsulClient wrap(ConsulClient delegate) {
+		return (ConsulClient) Proxy.newProxyInstance(ConsulClient.class.getClassLoader(),
+				new Class<?>[] { ConsulClient.class }, new CoalescingConsulClient(delegate));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			return invokeObjectMethod(proxy, method, args);
+		}
+		if (!method.isAnnotationPresent(GetExchange.class)) {
+			return invokeDelegate(method, args);
+		}
+		Request request = new Request(method, args);
+		CompletableFuture<Object> call = new CompletableFuture<>();
+		CompletableFuture<Object> existing = this.inFlight.putIfAbsent(request, call);
+		if (existing != null) {
+			return await(existing);
+		}
+		try {
+			call.complete(invokeDelegate(method, args));
+		}
+		catch (Throwable ex) {
+			call.completeExceptionally(ex);
+		}
+		finally {
+			this.inFlight.remove(request, call);
+		}
+		return await(call);
+	}
+
+	int getInFlightCount() {
+		return this.inFlight.size();
+	}
+
+	private Object invokeDelegate(Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(this.delegate, args);
+		}
+		catch (InvocationTargetException ex) {
+			throw ex.getTargetException();
+		}
+	}
+
+	private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				return "CoalescingConsulClient{delegate=" + this.delegate + "}";
+		}
+	}
+
+	private static Object await(CompletableFuture<Object> call) throws Throwable {
+		try {
+			return call.join();
+		}
+		catch (CompletionException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	private static final class Request {
+
+		private final Method method;
+
+		private final List<Object> args;
+
+		private final int hashCode;
+
+		private Request(Method method, Object[] args) {
+			this.method = method;
+			this.args = args != null ? Arrays.asList(args) : Collections.emptyList();
+			this.hashCode = 31 * method.hashCode() + this.args.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Request that = (Request) o;
+			return this.method.equals(that.method) && this.args.equals(that.args);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+	}
+
+}
@@ -17,19 +17,26 @@
 package org.springframework.cloud.consul;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import org.aspectj.lang.annotation.Aspect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
@@ -41,6 +48,7 @@ import org.springframework.boot.health.autoconfigure.contributor.ConditionalOnEn
 import org.springframework.boot.health.contributor.Health;
 import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
 import org.springframework.boot.http.client.HttpClientSettings;
+import org.springframework.boot.http.client.reactive.ClientHttpConnectorBuilder;
 import org.springframework.boot.ssl.SslBundle;
 import org.springframework.boot.ssl.SslStoreBundle;
 import org.springframework.cloud.consul.ConsulClient.QueryParams;
@@ -49,18 +57,25 @@ import org.springframework.cloud.consul.model.http.format.WaitTimeAnnotationForm
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.retry.interceptor.RetryInterceptorBuilder;
 import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.support.RestClientAdapter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.support.WebClientAdapter;
 import org.springframework.web.service.invoker.HttpExchangeAdapter;
 import org.springframework.web.service.invoker.HttpRequestValues;
 import org.springframework.web.service.invoker.HttpServiceArgumentResolver;
@@ -68,6 +83,7 @@ import org.springframework.web.service.invoker.HttpServiceProxyFactory;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import org.springframework.web.util.DefaultUriBuilderFactory.EncodingMode;
 import org.springframework.web.util.UriBuilder;
+import org.springframework.web.util.UriUtils;
 
 /**
  * @author Spencer Gibb
@@ -77,6 +93,19 @@ import org.springframework.web.util.UriBuilder;
 @ConditionalOnConsulEnabled
 public class ConsulAutoConfiguration {
 
+	/**
+	 * Name of the shared task scheduler bean used in virtual thread mode.
+	 */
+	public static final String CONSUL_TASK_SCHEDULER_NAME = "consulTaskScheduler";
+
+	/**
+	 * Name of the {@link ConsulClientMetrics} bean, also used to qualify it as the
+	 * interceptor of consul client calls.
+	 */
+	public static final String CONSUL_CLIENT_METRICS_NAME = "consulClientMetrics";
+
+	private static final String UNIX_SCHEME = "unix";
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(ConsulAutoConfiguration.class);
 
 	@Bean
@@ -87,28 +116,74 @@ public class ConsulAutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public ConsulClientSettings consulClientRestClientAdapter(ConsulProperties consulProperties) {
-		String baseUrl = createConsulClientBaseUrl(consulProperties);
-		return createConsulClientSettings(baseUrl, consulProperties.getTls());
+	public ConsulClientSettings consulClientRestClientAdapter(ConsulProperties consulProperties,
+			@Qualifier(CONSUL_CLIENT_METRICS_NAME) ObjectProvider<ClientHttpRequestInterceptor> metrics,
+			ObjectProvider<ConsulClientHttpRequestFactory> requestFactory) {
+		return createConsulClientSettings(consulProperties, metrics.stream().toList(),
+				getPooledRequestFactory(consulProperties, requestFactory));
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public ConsulClient coreConsulClient(ConsulProperties consulProperties,
+			@Qualifier(CONSUL_CLIENT_METRICS_NAME) ObjectProvider<ClientHttpRequestInterceptor> metrics,
+			ObjectProvider<ConsulClientHttpRequestFactory> requestFactory) {
+		return createNewConsulClient(consulProperties, metrics.stream().toList(),
+				getPooledRequestFactory(consulProperties, requestFactory));
 	}
 
+	/**
+	 * The pooled transport shared by the consul clients of the context, which closes its
+	 * connection pools on shutdown.
+	 * @param consulProperties the consul properties
+	 * @return the request factory
+	 */
 	@Bean
+	@Lazy
 	@ConditionalOnMissingBean
-	public ConsulClient coreConsulClient(ConsulProperties consulProperties) {
-		return createNewConsulClient(consulProperties);
+	@ConditionalOnProperty("spring.cloud.consul.http.pooled")
+	public ConsulClientHttpRequestFactory consulClientHttpRequestFactory(ConsulProperties consulProperties) {
+		return createConsulClientHttpRequestFactory(consulProperties);
+	}
+
+	private static ClientHttpRequestFactory getPooledRequestFactory(ConsulProperties consulProperties,
+			ObjectProvider<ConsulClientHttpRequestFactory> requestFactory) {
+		// a unix domain socket is not pooled
+		return (getUnixSocketPath(consulProperties) != null) ? null : requestFactory.getIfAvailable();
 	}
 
 	public static String createConsulClientBaseUrl(ConsulProperties consulProperties) {
+		return createConsulClientBaseUrl(consulProperties, getUnixSocketPath(consulProperties) != null);
+	}
+
+	/**
+	 * Creates the base url of the agent over TCP from the host, port and scheme, even
+	 * when a unix domain socket is configured, for clients that cannot use the socket.
+	 * @param consulProperties the consul properties
+	 * @return the base url
+	 */
+	public static String createConsulClientTcpBaseUrl(ConsulProperties consulProperties) {
+		return createConsulClientBaseUrl(consulProperties, false);
+	}
+
+	private static String createConsulClientBaseUrl(ConsulProperties consulProperties, boolean overSocket) {
 		UriBuilder uriBuilder = new DefaultUriBuilderFactory().builder();
 
-		if (StringUtils.hasLength(consulProperties.getScheme())) {
-			uriBuilder.scheme(consulProperties.getScheme());
+		if (overSocket) {
+			// only path and query go over the socket, the host is just a placeholder
+			uriBuilder.scheme("http").host("localhost");
 		}
 		else {
-			uriBuilder.scheme("http");
-		}
+			if (StringUtils.hasLength(consulProperties.getScheme())
+					&& !UNIX_SCHEME.equalsIgnoreCase(consulProperties.getScheme())) {
+				uriBuilder.scheme(consulProperties.getScheme());
+			}
+			else {
+				uriBuilder.scheme("http");
+			}
 
-		uriBuilder.host(consulProperties.getHost()).port(consulProperties.getPort());
+			uriBuilder.host(consulProperties.getHost()).port(consulProperties.getPort());
+		}
 
 		final String agentPath = consulProperties.getPath();
 		if (StringUtils.hasLength(agentPath)) {
@@ -122,10 +197,62 @@ public class ConsulAutoConfiguration {
 		return baseUrl;
 	}
 
+	/**
+	 * Returns the unix domain socket to talk to the agent through, if any.
+	 * @param consulProperties the consul properties
+	 * @return the socket file, or {@code null} to use TCP
+	 * @throws IllegalStateException if the scheme is {@code unix} but no socket path is
+	 * set
+	 */
+	public static Path getUnixSocketPath(ConsulProperties consulProperties) {
+		String socketPath = consulProperties.getSocketPath();
+		if (!StringUtils.hasText(socketPath)) {
+			if (UNIX_SCHEME.equalsIgnoreCase(consulProperties.getScheme())) {
+				throw new IllegalStateException(
+						"spring.cloud.consul.socket-path must be set when spring.cloud.consul.scheme is unix");
+			}
+			return null;
+		}
+		if (socketPath.startsWith(UNIX_SCHEME + ":")) {
+			return Paths.get(URI.create(socketPath).getPath());
+		}
+		return Paths.get(socketPath);
+	}
+
 	public static ConsulClient createNewConsulClient(ConsulProperties consulProperties) {
-		String baseUrl = createConsulClientBaseUrl(consulProperties);
-		HttpExchangeAdapter adapter = createConsulClientSettings(baseUrl, consulProperties.getTls()).adapter();
-		return createNewConsulClient(adapter);
+		return createNewConsulClient(consulProperties, Collections.emptyList());
+	}
+
+	/**
+	 * Creates a client for the agent described by the given properties.
+	 * @param consulProperties the consul properties
+	 * @param interceptors interceptors of the calls to consul, for example
+	 * {@link ConsulClientMetrics}
+	 * @return the client
+	 */
+	public static ConsulClient createNewConsulClient(ConsulProperties consulProperties,
+			List<ClientHttpRequestInterceptor> interceptors) {
+		return createNewConsulClient(consulProperties, interceptors, null);
+	}
+
+	/**
+	 * Creates a client for the agent described by the given properties that sends its
+	 * calls through the given request factory.
+	 * @param consulProperties the consul properties
+	 * @param interceptors interceptors of the calls to consul, for example
+	 * {@link ConsulClientMetrics}
+	 * @param requestFactory the request factory, which stays owned by the caller, or
+	 * {@code null} to create one from the properties
+	 * @return the client
+	 */
+	public static ConsulClient createNewConsulClient(ConsulProperties consulProperties,
+			List<ClientHttpRequestInterceptor> interceptors, ClientHttpRequestFactory requestFactory) {
+		ConsulClient consulClient = createNewConsulClient(
+				createConsulClientSettings(consulProperties, interceptors, requestFactory).adapter());
+		if (consulProperties.getHttp().isCoalesceReads()) {
+			return CoalescingConsulClient.wrap(consulClient);
+		}
+		return consulClient;
 	}
 
 	public static ConsulClient createNewConsulClient(HttpExchangeAdapter adapter) {
@@ -137,45 +264,132 @@ public class ConsulAutoConfiguration {
 		return factory.createClient(ConsulClient.class);
 	}
 
-	// TODO: migrate to boot managed sslbundle
+	/**
+	 * Creates the client settings for the agent described by the given properties, over
+	 * its unix domain socket when one is configured.
+	 * @param consulProperties the consul properties
+	 * @return the client settings
+	 */
+	public static ConsulClientSettings createConsulClientSettings(ConsulProperties consulProperties) {
+		return createConsulClientSettings(consulProperties, Collections.emptyList());
+	}
+
+	/**
+	 * Creates the client settings for the agent described by the given properties.
+	 * @param consulProperties the consul properties
+	 * @param interceptors interceptors of the calls to consul
+	 * @return the client settings
+	 */
+	public static ConsulClientSettings createConsulClientSettings(ConsulProperties consulProperties,
+			List<ClientHttpRequestInterceptor> interceptors) {
+		return createConsulClientSettings(consulProperties, interceptors, null);
+	}
+
+	/**
+	 * Creates the client settings for the agent described by the given properties, with
+	 * calls over TCP sent through the given request factory.
+	 * @param consulProperties the consul properties
+	 * @param interceptors interceptors of the calls to consul
+	 * @param requestFactory the request factory, which stays owned by the caller, or
+	 * {@code null} to create one from the properties
+	 * @return the client settings
+	 */
+	public static ConsulClientSettings createConsulClientSettings(ConsulProperties consulProperties,
+			List<ClientHttpRequestInterceptor> interceptors, ClientHttpRequestFactory requestFactory) {
+		String baseUrl = createConsulClientBaseUrl(consulProperties);
+		Path socketPath = getUnixSocketPath(consulProperties);
+		if (socketPath != null) {
+			ConsulProperties.Http http = consulProperties.getHttp();
+			RestClient.Builder builder = createRestClientBuilder(baseUrl, interceptors)
+				.requestFactory(new UnixDomainSocketClientHttpRequestFactory(socketPath, http.getReadTimeout(),
+						http.getBlockingQueryReadTimeout()));
+			return new ConsulClientSettings(baseUrl, null, RestClientAdapter.create(builder.build()));
+		}
+		return createConsulClientSettings(baseUrl, consulProperties.getTls(), consulProperties.getHttp(),
+				interceptors, requestFactory);
+	}
+
+	/**
+	 * Creates the pooled transport configured by {@link ConsulProperties.Http}. The
+	 * caller closes it with {@link ConsulClientHttpRequestFactory#destroy()} once the
+	 * clients using it are no longer needed.
+	 * @param consulProperties the consul properties
+	 * @return the request factory
+	 */
+	public static ConsulClientHttpRequestFactory createConsulClientHttpRequestFactory(
+			ConsulProperties consulProperties) {
+		HttpClientSettings settings = createHttpClientSettings(consulProperties.getTls());
+		return ConsulClientHttpRequestFactory.create((settings != null) ? settings : HttpClientSettings.defaults(),
+				consulProperties.getHttp());
+	}
+
 	public static ConsulClientSettings createConsulClientSettings(String baseUrl,
 			ConsulProperties.TLSConfig tlsConfig) {
-		try {
-			DefaultUriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory(baseUrl);
-			uriBuilderFactory.setEncodingMode(EncodingMode.NONE);
-			RestClient.Builder builder = RestClient.builder()
-				.defaultStatusHandler(HttpStatusCode::is4xxClientError, (request, response) -> {
-				})
-				.defaultStatusHandler(HttpStatusCode::is5xxServerError,
-						(request, response) -> LOGGER
-							.error(new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8)))
-				.uriBuilderFactory(uriBuilderFactory);
-
-			HttpClientSettings settings = null;
-			if (tlsConfig != null) {
-				KeyStore clientStore = KeyStore.getInstance(tlsConfig.getKeyStoreInstanceType().name());
-				clientStore.load(Files.newInputStream(Paths.get(tlsConfig.getCertificatePath())),
-						tlsConfig.getCertificatePassword().toCharArray());
-
-				KeyStore trustStore = KeyStore.getInstance(KeyStoreInstanceType.JKS.name());
-				trustStore.load(Files.newInputStream(Paths.get(tlsConfig.getKeyStorePath())),
-						tlsConfig.getKeyStorePassword().toCharArray());
-
-				SslStoreBundle sslStoreBundle = SslStoreBundle.of(clientStore, tlsConfig.getKeyStorePassword(),
-						trustStore);
-				SslBundle sslBundle = SslBundle.of(sslStoreBundle);
-				settings = HttpClientSettings.ofSslBundle(sslBundle);
-				ClientHttpRequestFactory requestFactory = ClientHttpRequestFactoryBuilder.detect().build(settings);
-				builder.requestFactory(requestFactory);
-			}
+		return createConsulClientSettings(baseUrl, tlsConfig, null);
+	}
+
+	public static ConsulClientSettings createConsulClientSettings(String baseUrl, ConsulProperties.TLSConfig tlsConfig,
+			ConsulProperties.Http http) {
+		return createConsulClientSettings(baseUrl, tlsConfig, http, Collections.emptyList(), null);
+	}
 
-			return new ConsulClientSettings(baseUrl, settings, RestClientAdapter.create(builder.build()));
+	private static ConsulClientSettings createConsulClientSettings(String baseUrl,
+			ConsulProperties.TLSConfig tlsConfig, ConsulProperties.Http http,
+			List<ClientHttpRequestInterceptor> interceptors, ClientHttpRequestFactory requestFactory) {
+		RestClient.Builder builder = createRestClientBuilder(baseUrl, interceptors);
+		HttpClientSettings settings = createHttpClientSettings(tlsConfig);
+		if (requestFactory == null && http != null && http.isPooled()) {
+			requestFactory = ConsulClientHttpRequestFactory
+				.create((settings != null) ? settings : HttpClientSettings.defaults(), http);
+		}
+		else if (requestFactory == null && settings != null) {
+			requestFactory = ClientHttpRequestFactoryBuilder.detect().build(settings);
+		}
+		if (requestFactory != null) {
+			builder.requestFactory(requestFactory);
+		}
+		return new ConsulClientSettings(baseUrl, settings, RestClientAdapter.create(builder.build()));
+	}
+
+	// TODO: migrate to boot managed sslbundle
+	private static HttpClientSettings createHttpClientSettings(ConsulProperties.TLSConfig tlsConfig) {
+		if (tlsConfig == null) {
+			return null;
+		}
+		try {
+			KeyStore clientStore = KeyStore.getInstance(tlsConfig.getKeyStoreInstanceType().name());
+			clientStore.load(Files.newInputStream(Paths.get(tlsConfig.getCertificatePath())),
+					tlsConfig.getCertificatePassword().toCharArray());
+
+			KeyStore trustStore = KeyStore.getInstance(KeyStoreInstanceType.JKS.name());
+			trustStore.load(Files.newInputStream(Paths.get(tlsConfig.getKeyStorePath())),
+					tlsConfig.getKeyStorePassword().toCharArray());
+
+			SslStoreBundle sslStoreBundle = SslStoreBundle.of(clientStore, tlsConfig.getKeyStorePassword(),
+					trustStore);
+			SslBundle sslBundle = SslBundle.of(sslStoreBundle);
+			return HttpClientSettings.ofSslBundle(sslBundle);
 		}
 		catch (KeyStoreException | IOException | NoSuchAlgorithmException | CertificateException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	private static RestClient.Builder createRestClientBuilder(String baseUrl,
+			List<ClientHttpRequestInterceptor> interceptors) {
+		DefaultUriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory(baseUrl);
+		uriBuilderFactory.setEncodingMode(EncodingMode.NONE);
+		return RestClient.builder()
+			.requestInterceptors(requestInterceptors -> requestInterceptors.addAll(interceptors))
+			.messageConverters(converters -> converters.add(0, new HealthServicesHttpMessageConverter()))
+			.defaultStatusHandler(HttpStatusCode::is4xxClientError, (request, response) -> {
+			})
+			.defaultStatusHandler(HttpStatusCode::is5xxServerError,
+					(request, response) -> LOGGER
+						.error(new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8)))
+			.uriBuilderFactory(uriBuilderFactory);
+	}
+
 	public static ConversionService createConsulClientConversionService() {
 		DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
 		conversionService.addFormatterForFieldAnnotation(new WaitTimeAnnotationFormatterFactory());
@@ -186,6 +400,79 @@ public class ConsulAutoConfiguration {
 			RestClientAdapter adapter) {
 	}
 
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")
+	public static class ReactiveConsulClientConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ReactiveConsulClient reactiveConsulClient(ConsulProperties consulProperties,
+				ConsulClientSettings consulClientSettings) {
+			if (getUnixSocketPath(consulProperties) != null) {
+				return createNewReactiveConsulClient(consulProperties);
+			}
+			return createNewReactiveConsulClient(consulClientSettings);
+		}
+
+		/**
+		 * Creates a reactive client for the agent described by the given properties. The
+		 * reactive client does not support unix domain sockets, so it always talks to
+		 * the agent over TCP at the configured host and port.
+		 * @param consulProperties the consul properties
+		 * @return the reactive client
+		 */
+		public static ReactiveConsulClient createNewReactiveConsulClient(ConsulProperties consulProperties) {
+			// only the base url and client settings are used, so no pooled transport
+			return createNewReactiveConsulClient(createConsulClientSettings(
+					createConsulClientTcpBaseUrl(consulProperties), consulProperties.getTls()));
+		}
+
+		public static ReactiveConsulClient createNewReactiveConsulClient(ConsulClientSettings settings) {
+			DefaultUriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory(settings.baseUrl());
+			uriBuilderFactory.setEncodingMode(EncodingMode.NONE);
+			WebClient.Builder builder = WebClient.builder()
+				.uriBuilderFactory(uriBuilderFactory)
+				.defaultStatusHandler(HttpStatusCode::is4xxClientError, response -> Mono.empty())
+				.defaultStatusHandler(HttpStatusCode::is5xxServerError, response -> {
+					LOGGER.error("Consul agent responded with status " + response.statusCode());
+					return Mono.empty();
+				});
+			if (settings.httpClientSettings() != null) {
+				builder.clientConnector(ClientHttpConnectorBuilder.detect().build(settings.httpClientSettings()));
+			}
+
+			HttpServiceProxyFactory factory = HttpServiceProxyFactory
+				.builderFor(WebClientAdapter.create(builder.build()))
+				.customArgumentResolver(new QueryParamsArgumentResolver())
+				.conversionService(createConsulClientConversionService())
+				.build();
+
+			return factory.createClient(ReactiveConsulClient.class);
+		}
+
+	}
+
+	/**
+	 * Shared scheduler for watches, heartbeats and event listeners when
+	 * {@code spring.cloud.consul.threads.virtual} is set. Fixed-delay tasks run on pool
+	 * threads here, which is why a {@link ThreadPoolTaskScheduler} backed by virtual
+	 * threads is used rather than a {@code SimpleAsyncTaskScheduler}.
+	 */
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty("spring.cloud.consul.threads.virtual")
+	protected static class VirtualThreadsConfiguration {
+
+		@Bean(name = CONSUL_TASK_SCHEDULER_NAME)
+		@ConditionalOnMissingBean(name = CONSUL_TASK_SCHEDULER_NAME)
+		public ThreadPoolTaskScheduler consulTaskScheduler(ConsulProperties consulProperties) {
+			ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+			taskScheduler.setPoolSize(consulProperties.getThreads().getMaxConcurrency());
+			taskScheduler.setThreadFactory(new VirtualThreadTaskExecutor("consul-").getVirtualThreadFactory());
+			return taskScheduler;
+		}
+
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@ConditionalOnClass({ Endpoint.class, Health.class })
 	@EnableConfigurationProperties(ConsulHealthIndicatorProperties.class)
@@ -208,6 +495,19 @@ public class ConsulAutoConfiguration {
 
 	}
 
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(name = "io.micrometer.core.instrument.binder.MeterBinder")
+	@ConditionalOnProperty(value = "spring.cloud.consul.metrics.enabled", matchIfMissing = true)
+	protected static class ConsulClientMetricsConfiguration {
+
+		@Bean(name = CONSUL_CLIENT_METRICS_NAME)
+		@ConditionalOnMissingBean(name = CONSUL_CLIENT_METRICS_NAME)
+		public ConsulClientMetrics consulClientMetrics() {
+			return new ConsulClientMetrics();
+		}
+
+	}
+
 	@ConditionalOnClass({ Retryable.class, Aspect.class, AopAutoConfiguration.class })
 	@Configuration(proxyBeanMethods = false)
 	@EnableRetry(proxyTargetClass = true)
@@ -257,11 +557,37 @@ public class ConsulAutoConfiguration {
 				if (params.getNear() != null) {
 					builder.addRequestParameter("near", params.getNear());
 				}
+
+				if (params.getFilter() != null) {
+					// the uri builder does not encode, and filter expressions hold spaces and
+					// quotes
+					builder.addRequestParameter("filter",
+							UriUtils.encodeQueryParam(params.getFilter(), StandardCharsets.UTF_8));
+				}
+
+				if (params.isCached()) {
+					builder.configureRequestParams(map -> map.put("cached", Collections.emptyList()));
+					String cacheControl = getCacheControl(params);
+					if (cacheControl != null) {
+						builder.addHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+					}
+				}
 				return true;
 			}
 			return false;
 		}
 
+		private static String getCacheControl(QueryParams params) {
+			List<String> directives = new ArrayList<>(2);
+			if (params.getMaxAge() != null) {
+				directives.add("max-age=" + params.getMaxAge().toSeconds());
+			}
+			if (params.getStaleIfError() != null) {
+				directives.add("stale-if-error=" + params.getStaleIfError().toSeconds());
+			}
+			return directives.isEmpty() ? null : String.join(", ", directives);
+		}
+
 	}
 
 }
@@ -16,18 +16,26 @@
 
 package org.springframework.cloud.consul;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.springframework.cloud.consul.model.http.agent.NewService;
+import org.springframework.cloud.consul.model.http.agent.Self;
 import org.springframework.cloud.consul.model.http.agent.Service;
 import org.springframework.cloud.consul.model.http.catalog.CatalogService;
 import org.springframework.cloud.consul.model.http.catalog.Node;
+import org.springframework.cloud.consul.model.http.coordinate.NodeCoordinate;
 import org.springframework.cloud.consul.model.http.event.Event;
 import org.springframework.cloud.consul.model.http.format.WaitTimeFormat;
 import org.springframework.cloud.consul.model.http.health.Check;
 import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
 import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.cloud.consul.model.http.query.PreparedQueryExecuteResponse;
+import org.springframework.cloud.consul.model.http.txn.TxnOperation;
+import org.springframework.cloud.consul.model.http.txn.TxnResponse;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -91,6 +99,25 @@ public interface ConsulClient {
 			@RequestParam(required = false) Boolean enable, @RequestParam(required = false) String reason,
 			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken);
 
+	/**
+	 * Returns the configuration and member information of the local agent.
+	 * @param aclToken the ACL token
+	 * @return the local agent
+	 */
+	@GetExchange("/v1/agent/self")
+	ResponseEntity<Self> getAgentSelf(@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken);
+
+	/**
+	 * Returns the LAN network coordinates of the nodes in the datacenter, which consul
+	 * updates every few seconds.
+	 * @param aclToken the ACL token
+	 * @param queryParams the query parameters
+	 * @return the node coordinates
+	 */
+	@GetExchange("/v1/coordinate/nodes")
+	ResponseEntity<List<NodeCoordinate>> getCoordinateNodes(
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken, QueryParams queryParams);
+
 	@GetExchange("/v1/catalog/service/{serviceId}")
 	ResponseEntity<List<CatalogService>> getCatalogService(@PathVariable String serviceId);
 
@@ -100,6 +127,19 @@ public interface ConsulClient {
 	@GetExchange("/v1/health/checks/{serviceName}")
 	ResponseEntity<List<Check>> getHealthChecksForService(@PathVariable String serviceName);
 
+	/**
+	 * Returns the checks of the datacenter in the given state, all of them for
+	 * {@code any}. Services without checks are not part of the response.
+	 * @param state the state, {@code any}, {@code passing}, {@code warning} or
+	 * {@code critical}
+	 * @param aclToken the ACL token
+	 * @param queryParams the query parameters
+	 * @return the checks
+	 */
+	@GetExchange("/v1/health/state/{state}")
+	ResponseEntity<List<Check>> getHealthChecksState(@PathVariable String state,
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken, QueryParams queryParams);
+
 	@GetExchange("/v1/health/service/{serviceName}")
 	ResponseEntity<List<HealthService>> getHealthServices(@PathVariable String serviceName);
 
@@ -108,6 +148,23 @@ public interface ConsulClient {
 			@RequestParam boolean passing, @RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken,
 			@RequestParam(required = false) List<String> tag, QueryParams queryParams);
 
+	/**
+	 * Same query as {@link #getHealthServices(String, boolean, String, List, QueryParams)},
+	 * decoded by the {@link HealthServicesHttpMessageConverter streaming decoder}. It only
+	 * keeps the fields discovery reads, the checks, node meta and tagged addresses are not
+	 * decoded.
+	 * @param serviceName the service name
+	 * @param passing whether to only return instances with passing checks
+	 * @param aclToken the ACL token
+	 * @param tag the tags the instances must have
+	 * @param queryParams the query parameters
+	 * @return the instances
+	 */
+	@GetExchange("/v1/health/service/{serviceName}")
+	ResponseEntity<HealthServices> getHealthServiceInstances(@PathVariable String serviceName,
+			@RequestParam boolean passing, @RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken,
+			@RequestParam(required = false) List<String> tag, QueryParams queryParams);
+
 	@DeleteExchange("/v1/kv/{context}")
 	ResponseEntity<Void> deleteKVValues(@PathVariable String context);
 
@@ -115,6 +172,20 @@ public interface ConsulClient {
 	ResponseEntity<Void> deleteKVValues(@PathVariable String context,
 			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken);
 
+	/**
+	 * Executes a prepared query. The servers apply the failover, near sorting and tag
+	 * templates of the query, the response holds the healthy instances.
+	 * @param query the id or name of the query
+	 * @param limit the most instances to return, or {@code null} for all of them
+	 * @param aclToken the ACL token
+	 * @param queryParams the query parameters
+	 * @return the result of the query
+	 */
+	@GetExchange("/v1/query/{query}/execute")
+	ResponseEntity<PreparedQueryExecuteResponse> executePreparedQuery(@PathVariable String query,
+			@RequestParam(required = false) Integer limit,
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken, QueryParams queryParams);
+
 	@GetExchange("/v1/kv/{context}")
 	ResponseEntity<List<GetValue>> getKVValue(@PathVariable String context,
 			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken);
@@ -128,9 +199,35 @@ public interface ConsulClient {
 			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken,
 			@RequestParam("wait") @WaitTimeFormat Long waitTime, @RequestParam("index") long index);
 
+	/**
+	 * Same query as {@link #getKVValues(String, String, Long, long)}, with the wait time
+	 * and index of the given query parameters. Unlike that method, an index of -1 is left
+	 * out, so the query returns right away.
+	 * @param context the path of the keys
+	 * @param aclToken the ACL token
+	 * @param queryParams the query parameters
+	 * @return the keys below the path
+	 */
+	@GetExchange("/v1/kv/{context}?recurse")
+	ResponseEntity<List<GetValue>> getKVValues(@PathVariable String context,
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken, QueryParams queryParams);
+
 	@PutExchange(url = "/v1/kv/{context}", contentType = MediaType.TEXT_PLAIN_VALUE)
 	ResponseEntity<Boolean> setKVValue(@PathVariable String context, @RequestBody String value);
 
+	/**
+	 * Runs the operations in one transaction. A transaction that only reads is answered
+	 * with the {@code X-Consul-Index} of the KV store. Consul limits the number of
+	 * operations in a transaction, to 64 on older servers.
+	 * @param aclToken the ACL token
+	 * @param operations the operations
+	 * @return the results, or the errors with a {@code 409} status if the transaction was
+	 * rolled back
+	 */
+	@PutExchange("/v1/txn")
+	ResponseEntity<TxnResponse> transaction(@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken,
+			@RequestBody List<TxnOperation> operations);
+
 	@GetExchange("/v1/events")
 	ResponseEntity<List<Event>> eventList();
 
@@ -147,6 +244,12 @@ public interface ConsulClient {
 		 */
 		public static final QueryParams DEFAULT = new QueryParams();
 
+		/**
+		 * Value of {@link #getNear() near} that sorts the results by round trip time from
+		 * the local agent.
+		 */
+		public static final String NEAR_AGENT = "_agent";
+
 		private final String datacenter;
 
 		private final ConsistencyMode consistencyMode;
@@ -157,6 +260,14 @@ public interface ConsulClient {
 
 		private final String near;
 
+		private final String filter;
+
+		private final boolean cached;
+
+		private final Duration maxAge;
+
+		private final Duration staleIfError;
+
 		public QueryParams() {
 			this(null, ConsistencyMode.DEFAULT, -1, -1);
 		}
@@ -181,17 +292,76 @@ public interface ConsulClient {
 			this(datacenter, ConsistencyMode.DEFAULT, waitTime, index, null);
 		}
 
-		private QueryParams(String datacenter, ConsistencyMode consistencyMode, long waitTime, long index) {
+		public QueryParams(String datacenter, ConsistencyMode consistencyMode, long waitTime, long index) {
 			this(datacenter, consistencyMode, waitTime, index, null);
 		}
 
 		private QueryParams(String datacenter, ConsistencyMode consistencyMode, long waitTime, long index,
 				String near) {
+			this(datacenter, consistencyMode, waitTime, index, near, null, false, null, null);
+		}
+
+		private QueryParams(String datacenter, ConsistencyMode consistencyMode, long waitTime, long index,
+				String near, String filter, boolean cached, Duration maxAge, Duration staleIfError) {
 			this.datacenter = datacenter;
 			this.consistencyMode = consistencyMode;
 			this.waitTime = waitTime;
 			this.index = index;
 			this.near = near;
+			this.filter = filter;
+			this.cached = cached;
+			this.maxAge = maxAge;
+			this.staleIfError = staleIfError;
+		}
+
+		/**
+		 * Returns a copy of these parameters with a
+		 * <a href="https://developer.hashicorp.com/consul/api-docs/features/filtering">filter
+		 * expression</a> the servers apply before returning the results, for example
+		 * {@code Service.Meta.zone == "eu-1"}.
+		 * @param filter the filter expression, or {@code null} for none
+		 * @return the query parameters with the filter
+		 */
+		public QueryParams withFilter(String filter) {
+			if (Objects.equals(this.filter, filter)) {
+				return this;
+			}
+			return new QueryParams(this.datacenter, this.consistencyMode, this.waitTime, this.index, this.near,
+					filter, this.cached, this.maxAge, this.staleIfError);
+		}
+
+		/**
+		 * Returns a copy of these parameters that asks the servers to sort the results by
+		 * estimated round trip time from a node, nearest first. Only some endpoints
+		 * support it, such as {@code /v1/health/service} and
+		 * {@code /v1/catalog/service}.
+		 * @param near the node name, {@link #NEAR_AGENT} for the local agent, or
+		 * {@code null} to leave the order to the servers
+		 * @return the query parameters with the node
+		 */
+		public QueryParams withNear(String near) {
+			if (Objects.equals(this.near, near)) {
+				return this;
+			}
+			return new QueryParams(this.datacenter, this.consistencyMode, this.waitTime, this.index, near,
+					this.filter, this.cached, this.maxAge, this.staleIfError);
+		}
+
+		/**
+		 * Returns a copy of these parameters that lets the local agent answer from its
+		 * <a href="https://developer.hashicorp.com/consul/api-docs/features/caching">cache</a>
+		 * instead of forwarding the query to the servers. Only some endpoints support it,
+		 * such as {@code /v1/health/service} and {@code /v1/catalog/services}, and it does
+		 * not go together with {@link ConsistencyMode#CONSISTENT}.
+		 * @param maxAge how old a cached response may be before the agent fetches a new
+		 * one, or {@code null} to leave it to the agent
+		 * @param staleIfError how old a cached response may be when fetching a new one
+		 * fails, or {@code null} to leave it to the agent
+		 * @return the query parameters for a cached query
+		 */
+		public QueryParams withCache(Duration maxAge, Duration staleIfError) {
+			return new QueryParams(this.datacenter, this.consistencyMode, this.waitTime, this.index, this.near,
+					this.filter, true, maxAge, staleIfError);
 		}
 
 		public String getDatacenter() {
@@ -214,6 +384,44 @@ public interface ConsulClient {
 			return near;
 		}
 
+		public String getFilter() {
+			return filter;
+		}
+
+		public boolean isCached() {
+			return cached;
+		}
+
+		public Duration getMaxAge() {
+			return maxAge;
+		}
+
+		public Duration getStaleIfError() {
+			return staleIfError;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			QueryParams that = (QueryParams) o;
+			return this.waitTime == that.waitTime && this.index == that.index
+					&& Objects.equals(this.datacenter, that.datacenter) && this.consistencyMode == that.consistencyMode
+					&& Objects.equals(this.near, that.near) && Objects.equals(this.filter, that.filter)
+					&& this.cached == that.cached && Objects.equals(this.maxAge, that.maxAge)
+					&& Objects.equals(this.staleIfError, that.staleIfError);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.datacenter, this.consistencyMode, this.waitTime, this.index, this.near,
+					this.filter, this.cached, this.maxAge, this.staleIfError);
+		}
+
 	}
 
 	enum ConsistencyMode {
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+import org.apache.hc.core5.util.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.boot.http.client.HttpClientSettings;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link ClientHttpRequestFactory} that sends blocking queries and all other calls to
+ * consul through separate connection pools. A blocking query holds on to its connection
+ * for up to the whole wait time, so sharing a pool with heartbeats and lookups would let
+ * a burst of watches delay them. A request is a blocking query when it has a
+ * {@code wait} or an {@code index} query parameter.
+ *
+ * @see ConsulProperties.Http
+ */
+public class ConsulClientHttpRequestFactory implements ClientHttpRequestFactory, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConsulClientHttpRequestFactory.class);
+
+	private static final String HTTP_COMPONENTS_CLIENT = "org.apache.hc.client5.http.impl.classic.HttpClients";
+
+	private final ClientHttpRequestFactory requestFactory;
+
+	private final ClientHttpRequestFactory blockingQueryRequestFactory;
+
+	public ConsulClientHttpRequestFactory(ClientHttpRequestFactory requestFactory,
+			ClientHttpRequestFactory blockingQueryRequestFactory) {
+		this.requestFactory = requestFactory;
+		this.blockingQueryRequestFactory = blockingQueryRequestFactory;
+	}
+
+	/**
+	 * Creates the pooled request factories configured by {@link ConsulProperties.Http}.
+	 * Without Apache HttpClient 5 on the classpath the detected request factory is used
+	 * for both kinds of calls and only the timeouts apply.
+	 * @param settings the base client settings, for example with an SSL bundle
+	 * @param http the HTTP transport configuration
+	 * @return the request factory
+	 */
+	public static ConsulClientHttpRequestFactory create(HttpClientSettings settings, ConsulProperties.Http http) {
+		HttpClientSettings connectSettings = settings.withConnectTimeout(http.getConnectTimeout());
+		HttpClientSettings requestSettings = connectSettings.withReadTimeout(http.getReadTimeout());
+		HttpClientSettings blockingQuerySettings = connectSettings.withReadTimeout(http.getBlockingQueryReadTimeout());
+		if (ClassUtils.isPresent(HTTP_COMPONENTS_CLIENT, ConsulClientHttpRequestFactory.class.getClassLoader())) {
+			return new ConsulClientHttpRequestFactory(
+					HttpComponents.create(requestSettings, http.getMaxConnections(), http.getMaxConnectionsPerRoute(),
+							http.getIdleTimeout()),
+					HttpComponents.create(blockingQuerySettings, http.getBlockingQueryMaxConnections(),
+							http.getBlockingQueryMaxConnections(), http.getIdleTimeout()));
+		}
+		LOGGER.warn("Apache HttpClient 5 is not on the classpath, consul connection pool settings are ignored");
+		return new ConsulClientHttpRequestFactory(ClientHttpRequestFactoryBuilder.detect().build(requestSettings),
+				ClientHttpRequestFactoryBuilder.detect().build(blockingQuerySettings));
+	}
+
+	/**
+	 * Returns whether a request to consul is a blocking query.
+	 * @param uri the request URI
+	 * @return {@code true} if the request has a {@code wait} or {@code index} parameter
+	 */
+	public static boolean isBlockingQuery(URI uri) {
+		String query = uri.getRawQuery();
+		if (query == null) {
+			return false;
+		}
+		for (String param : query.split("&")) {
+			int equals = param.indexOf('=');
+			String name = equals >= 0 ? param.substring(0, equals) : param;
+			if ("wait".equals(name) || "index".equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		if (isBlockingQuery(uri)) {
+			return this.blockingQueryRequestFactory.createRequest(uri, httpMethod);
+		}
+		return this.requestFactory.createRequest(uri, httpMethod);
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (this.requestFactory instanceof DisposableBean) {
+			((DisposableBean) this.requestFactory).destroy();
+		}
+		if (this.blockingQueryRequestFactory instanceof DisposableBean) {
+			((DisposableBean) this.blockingQueryRequestFactory).destroy();
+		}
+	}
+
+	/**
+	 * Keeps the Apache HttpClient types out of the outer class so it loads without them.
+	 */
+	private static final class HttpComponents {
+
+		private static ClientHttpRequestFactory create(HttpClientSettings settings, int maxConnections,
+				int maxConnectionsPerRoute, Duration idleTimeout) {
+			return ClientHttpRequestFactoryBuilder.httpComponents()
+				.withConnectionManagerCustomizer(connectionManager -> connectionManager.setMaxConnTotal(maxConnections)
+					.setMaxConnPerRoute(maxConnectionsPerRoute))
+				.withHttpClientCustomizer(
+						httpClient -> httpClient.evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout.toMillis())))
+				.build(settings);
+		}
+
+	}
+
+}
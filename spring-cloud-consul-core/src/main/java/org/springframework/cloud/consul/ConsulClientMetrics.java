@@ -0,0 +1,327 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Records metrics for every call the {@link ConsulClient} makes to the agent:
+ * <ul>
+ * <li>{@code consul.client.requests}, a timer with a percentile histogram per endpoint,
+ * method and status, measured until the response headers arrive;</li>
+ * <li>{@code consul.client.response.size}, the number of response body bytes read;</li>
+ * <li>{@code consul.client.requests.active}, the calls in flight, split into blocking
+ * queries and others;</li>
+ * <li>{@code consul.agent.last-contact} and {@code consul.agent.known-leader}, from the
+ * {@code X-Consul-Lastcontact} and {@code X-Consul-Knownleader} headers of the latest
+ * response that had them;</li>
+ * <li>{@code consul.agent.cache.requests}, cached queries by whether the agent answered
+ * from its cache, from the {@code X-Cache} header;</li>
+ * <li>{@code consul.watch.wakeups}, blocking queries that returned, by whether the index
+ * changed, stayed the same or went backwards (a reset);</li>
+ * <li>{@code consul.watch.time-since-last-change}, per endpoint, since a blocking query
+ * last returned a new index.</li>
+ * </ul>
+ * The endpoint tag is the API path without the parts that name a key, service or check,
+ * for example {@code /v1/kv} or {@code /v1/health/service}. Meters are published to every
+ * {@link MeterRegistry} this binder is bound to.
+ */
+public class ConsulClientMetrics implements ClientHttpRequestInterceptor, MeterBinder {
+
+	private static final String IO_ERROR = "IO_ERROR";
+
+	private static final Pattern API_VERSION = Pattern.compile("v\\d+");
+
+	private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+
+	private final AtomicInteger activeRequests = new AtomicInteger();
+
+	private final AtomicInteger activeBlockingQueries = new AtomicInteger();
+
+	private final Map<String, Long> lastChanges = new ConcurrentHashMap<>();
+
+	private volatile double lastContact = Double.NaN;
+
+	private volatile double knownLeader = Double.NaN;
+
+	public ConsulClientMetrics() {
+		Gauge.builder("consul.client.requests.active", this.activeRequests, AtomicInteger::get)
+			.description("Calls to consul in flight")
+			.tag("blocking", "false")
+			.register(this.registry);
+		Gauge.builder("consul.client.requests.active", this.activeBlockingQueries, AtomicInteger::get)
+			.description("Calls to consul in flight")
+			.tag("blocking", "true")
+			.register(this.registry);
+		TimeGauge.builder("consul.agent.last-contact", this, TimeUnit.MILLISECONDS, metrics -> metrics.lastContact)
+			.description("Time since the consul server answering the latest call last heard from the leader")
+			.register(this.registry);
+		Gauge.builder("consul.agent.known-leader", this, metrics -> metrics.knownLeader)
+			.description("Whether the consul server answering the latest call knew the leader (1) or not (0)")
+			.register(this.registry);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.registry.add(registry);
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		URI uri = request.getURI();
+		boolean blockingQuery = ConsulClientHttpRequestFactory.isBlockingQuery(uri);
+		String endpoint = getEndpoint(uri.getPath());
+		AtomicInteger active = blockingQuery ? this.activeBlockingQueries : this.activeRequests;
+		String status = IO_ERROR;
+		active.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			ClientHttpResponse response = execution.execute(request, body);
+			HttpStatusCode statusCode = response.getStatusCode();
+			status = String.valueOf(statusCode.value());
+			recordAgentHeaders(response.getHeaders());
+			recordAgentCache(endpoint, response.getHeaders());
+			if (blockingQuery && statusCode.is2xxSuccessful()) {
+				recordBlockingQuery(endpoint, uri, response.getHeaders());
+			}
+			return new MeteredResponse(response, endpoint);
+		}
+		finally {
+			long duration = System.nanoTime() - start;
+			active.decrementAndGet();
+			Timer.builder("consul.client.requests")
+				.description("Calls to consul")
+				.tag("endpoint", endpoint)
+				.tag("method", request.getMethod().name())
+				.tag("status", status)
+				.tag("blocking", String.valueOf(blockingQuery))
+				.publishPercentileHistogram()
+				.register(this.registry)
+				.record(duration, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void recordAgentHeaders(HttpHeaders headers) {
+		HttpEntity<?> entity = new HttpEntity<>(headers);
+		Long lastContact = ConsulHeaders.getConsulLastContact(entity);
+		if (lastContact != null) {
+			this.lastContact = lastContact;
+		}
+		Boolean knownLeader = ConsulHeaders.getConsulKnownLeader(entity);
+		if (knownLeader != null) {
+			this.knownLeader = knownLeader ? 1 : 0;
+		}
+	}
+
+	private void recordAgentCache(String endpoint, HttpHeaders headers) {
+		Boolean hit = ConsulHeaders.getConsulCacheHit(new HttpEntity<>(headers));
+		if (hit != null) {
+			Counter.builder("consul.agent.cache.requests")
+				.description("Cached queries, by whether the agent answered them from its cache")
+				.tag("endpoint", endpoint)
+				.tag("result", hit ? "hit" : "miss")
+				.register(this.registry)
+				.increment();
+		}
+	}
+
+	private void recordBlockingQuery(String endpoint, URI uri, HttpHeaders headers) {
+		Long index = ConsulHeaders.getConsulIndex(new HttpEntity<>(headers));
+		if (index == null) {
+			return;
+		}
+		String result;
+		long requestIndex = getIndexParam(uri);
+		int comparison = Long.compareUnsigned(index, requestIndex);
+		if (comparison == 0) {
+			result = "unchanged";
+		}
+		else {
+			result = comparison > 0 ? "changed" : "reset";
+			if (this.lastChanges.put(endpoint, System.nanoTime()) == null) {
+				TimeGauge
+					.builder("consul.watch.time-since-last-change", this.lastChanges, TimeUnit.NANOSECONDS,
+							lastChanges -> System.nanoTime() - lastChanges.get(endpoint))
+					.description("Time since a blocking query last returned a new index")
+					.tag("endpoint", endpoint)
+					.register(this.registry);
+			}
+		}
+		Counter.builder("consul.watch.wakeups")
+			.description("Blocking queries that returned")
+			.tag("endpoint", endpoint)
+			.tag("result", result)
+			.register(this.registry)
+			.increment();
+	}
+
+	/**
+	 * Returns the endpoint tag of a consul API path.
+	 * @param path the request path
+	 * @return the path up to and including the API version and operation, for example
+	 * {@code /v1/health/service} for {@code /v1/health/service/payments}
+	 */
+	static String getEndpoint(String path) {
+		String[] segments = path.split("/");
+		int version = -1;
+		for (int i = 0; i < segments.length; i++) {
+			if (API_VERSION.matcher(segments[i]).matches()) {
+				version = i;
+				break;
+			}
+		}
+		if (version < 0 || version + 1 >= segments.length) {
+			return "UNKNOWN";
+		}
+		// /v1/kv/{key}, /v1/agent/check/pass/{checkId}, /v1/health/service/{service}
+		int operationSegments;
+		switch (segments[version + 1]) {
+			case "kv":
+				operationSegments = 1;
+				break;
+			case "agent":
+				operationSegments = 3;
+				break;
+			default:
+				operationSegments = 2;
+		}
+		StringBuilder endpoint = new StringBuilder();
+		for (int i = version; i < segments.length && i <= version + operationSegments; i++) {
+			endpoint.append('/').append(segments[i]);
+		}
+		return endpoint.toString();
+	}
+
+	private static long getIndexParam(URI uri) {
+		String query = uri.getRawQuery();
+		if (query != null) {
+			for (String param : query.split("&")) {
+				if (param.startsWith("index=")) {
+					try {
+						return Long.parseUnsignedLong(param.substring("index=".length()));
+					}
+					catch (NumberFormatException ex) {
+						return 0;
+					}
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Counts the body bytes read, which is all of them once the client decoded the body.
+	 */
+	private final class MeteredResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse delegate;
+
+		private final String endpoint;
+
+		private long bytes;
+
+		private boolean recorded;
+
+		private MeteredResponse(ClientHttpResponse delegate, String endpoint) {
+			this.delegate = delegate;
+			this.endpoint = endpoint;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() throws IOException {
+			return this.delegate.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return this.delegate.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.delegate.getHeaders();
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			return new FilterInputStream(this.delegate.getBody()) {
+
+				@Override
+				public int read() throws IOException {
+					int b = super.read();
+					if (b != -1) {
+						MeteredResponse.this.bytes++;
+					}
+					return b;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int read = super.read(b, off, len);
+					if (read > 0) {
+						MeteredResponse.this.bytes += read;
+					}
+					return read;
+				}
+
+			};
+		}
+
+		@Override
+		public void close() {
+			if (!this.recorded) {
+				this.recorded = true;
+				DistributionSummary.builder("consul.client.response.size")
+					.description("Response body bytes read from consul")
+					.baseUnit("bytes")
+					.tag("endpoint", this.endpoint)
+					.register(ConsulClientMetrics.this.registry)
+					.record(this.bytes);
+			}
+			this.delegate.close();
+		}
+
+	}
+
+}
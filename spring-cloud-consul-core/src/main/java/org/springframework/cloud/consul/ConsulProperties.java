@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.consul;
 
+import java.time.Duration;
+
 import jakarta.validation.constraints.NotNull;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -60,6 +62,19 @@ public class ConsulProperties {
 	/** Custom path if consul is under non-root. */
 	private String path;
 
+	/**
+	 * Unix domain socket of the consul agent, for example
+	 * 'unix:///var/run/consul/http.sock'. When set, host, port and TLS settings are
+	 * ignored. Setting the scheme to 'unix' requires it.
+	 */
+	private String socketPath;
+
+	/** Threading used for blocking calls to consul. */
+	private Threads threads = new Threads();
+
+	/** HTTP transport used to talk to consul. */
+	private Http http = new Http();
+
 	public String getHost() {
 		return this.host;
 	}
@@ -108,10 +123,35 @@ public class ConsulProperties {
 		this.path = path;
 	}
 
+	public String getSocketPath() {
+		return this.socketPath;
+	}
+
+	public void setSocketPath(String socketPath) {
+		this.socketPath = socketPath;
+	}
+
+	public Threads getThreads() {
+		return this.threads;
+	}
+
+	public void setThreads(Threads threads) {
+		this.threads = threads;
+	}
+
+	public Http getHttp() {
+		return this.http;
+	}
+
+	public void setHttp(Http http) {
+		this.http = http;
+	}
+
 	@Override
 	public String toString() {
 		return "ConsulProperties{" + "host='" + this.host + '\'' + ", port=" + this.port + ", scheme=" + this.scheme
-				+ ", tls=" + this.tls + ", enabled=" + this.enabled + ", path=" + this.path + "}";
+				+ ", tls=" + this.tls + ", enabled=" + this.enabled + ", path=" + this.path + ", socketPath="
+				+ this.socketPath + ", threads=" + this.threads + ", http=" + this.http + "}";
 	}
 
 	/**
@@ -198,4 +238,191 @@ public class ConsulProperties {
 
 	}
 
+	/**
+	 * Threading configuration.
+	 */
+	public static class Threads {
+
+		/**
+		 * Run watches, heartbeats and other blocking calls to consul on virtual threads
+		 * from a single shared scheduler. Requires Java 21 or later.
+		 */
+		private boolean virtual = false;
+
+		/**
+		 * Maximum number of tasks the shared virtual thread scheduler runs at the same
+		 * time. Defaults to 256.
+		 */
+		private int maxConcurrency = 256;
+
+		public boolean isVirtual() {
+			return this.virtual;
+		}
+
+		public void setVirtual(boolean virtual) {
+			this.virtual = virtual;
+		}
+
+		public int getMaxConcurrency() {
+			return this.maxConcurrency;
+		}
+
+		public void setMaxConcurrency(int maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("virtual", this.virtual)
+				.append("maxConcurrency", this.maxConcurrency)
+				.toString();
+		}
+
+	}
+
+	/**
+	 * HTTP transport configuration.
+	 */
+	public static class Http {
+
+		/**
+		 * Use a pooled keep-alive transport with separate connection pools for blocking
+		 * queries and for all other calls, so a slow watch never holds up a heartbeat.
+		 * Requires Apache HttpClient 5.
+		 */
+		private boolean pooled = false;
+
+		/**
+		 * Timeout for establishing a connection to consul.
+		 */
+		private Duration connectTimeout = Duration.ofSeconds(5);
+
+		/**
+		 * Read timeout of calls that are not blocking queries.
+		 */
+		private Duration readTimeout = Duration.ofSeconds(10);
+
+		/**
+		 * Maximum number of pooled connections for calls that are not blocking queries.
+		 */
+		private int maxConnections = 50;
+
+		/**
+		 * Maximum number of pooled connections per consul host for calls that are not
+		 * blocking queries.
+		 */
+		private int maxConnectionsPerRoute = 20;
+
+		/**
+		 * Read timeout of blocking queries. Needs to be longer than the longest wait time
+		 * plus the jitter consul adds to it (up to a sixteenth of the wait time).
+		 */
+		private Duration blockingQueryReadTimeout = Duration.ofMinutes(11);
+
+		/**
+		 * Maximum number of pooled connections for blocking queries, in total and per
+		 * consul host. A blocking query holds its connection for the whole wait time.
+		 */
+		private int blockingQueryMaxConnections = 64;
+
+		/**
+		 * How long an idle pooled connection is kept alive before it is closed.
+		 */
+		private Duration idleTimeout = Duration.ofSeconds(30);
+
+		/**
+		 * Let concurrent identical reads (same path, parameters and ACL token) share a
+		 * single call to consul and its response. Callers then share the decoded body
+		 * and must not modify it.
+		 */
+		private boolean coalesceReads = false;
+
+		public boolean isPooled() {
+			return this.pooled;
+		}
+
+		public void setPooled(boolean pooled) {
+			this.pooled = pooled;
+		}
+
+		public Duration getConnectTimeout() {
+			return this.connectTimeout;
+		}
+
+		public void setConnectTimeout(Duration connectTimeout) {
+			this.connectTimeout = connectTimeout;
+		}
+
+		public Duration getReadTimeout() {
+			return this.readTimeout;
+		}
+
+		public void setReadTimeout(Duration readTimeout) {
+			this.readTimeout = readTimeout;
+		}
+
+		public int getMaxConnections() {
+			return this.maxConnections;
+		}
+
+		public void setMaxConnections(int maxConnections) {
+			this.maxConnections = maxConnections;
+		}
+
+		public int getMaxConnectionsPerRoute() {
+			return this.maxConnectionsPerRoute;
+		}
+
+		public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+			this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		}
+
+		public Duration getBlockingQueryReadTimeout() {
+			return this.blockingQueryReadTimeout;
+		}
+
+		public void setBlockingQueryReadTimeout(Duration blockingQueryReadTimeout) {
+			this.blockingQueryReadTimeout = blockingQueryReadTimeout;
+		}
+
+		public int getBlockingQueryMaxConnections() {
+			return this.blockingQueryMaxConnections;
+		}
+
+		public void setBlockingQueryMaxConnections(int blockingQueryMaxConnections) {
+			this.blockingQueryMaxConnections = blockingQueryMaxConnections;
+		}
+
+		public Duration getIdleTimeout() {
+			return this.idleTimeout;
+		}
+
+		public void setIdleTimeout(Duration idleTimeout) {
+			this.idleTimeout = idleTimeout;
+		}
+
+		public boolean isCoalesceReads() {
+			return this.coalesceReads;
+		}
+
+		public void setCoalesceReads(boolean coalesceReads) {
+			this.coalesceReads = coalesceReads;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("pooled", this.pooled)
+				.append("connectTimeout", this.connectTimeout)
+				.append("readTimeout", this.readTimeout)
+				.append("maxConnections", this.maxConnections)
+				.append("maxConnectionsPerRoute", this.maxConnectionsPerRoute)
+				.append("blockingQueryReadTimeout", this.blockingQueryReadTimeout)
+				.append("blockingQueryMaxConnections", this.blockingQueryMaxConnections)
+				.append("idleTimeout", this.idleTimeout)
+				.append("coalesceReads", this.coalesceReads)
+				.toString();
+		}
+
+	}
+
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.json.JsonMapper;
+
+import org.springframework.cloud.consul.model.http.health.Check;
+import org.springframework.cloud.consul.model.http.health.Check.CheckStatus;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
+
+/**
+ * Decodes {@code /v1/health/service/{service}} responses token by token, without going
+ * through data binding. Only the fields service discovery reads are kept: the node name,
+ * address and datacenter and the service id, name, address, port, tags and meta. Checks,
+ * check output, node meta and tagged addresses are skipped unless included, as they make
+ * up most of a response and are not needed to pick an instance.
+ * <p>
+ * Values that repeat across the instances of a response, such as the service name, the
+ * datacenter and the tags, are shared instead of held once per instance. Tag lists are
+ * therefore read-only.
+ */
+public class HealthServiceDecoder {
+
+	private static final JsonMapper JSON_MAPPER = JsonMapper.builder().build();
+
+	private boolean includeChecks;
+
+	private boolean includeCheckOutput;
+
+	private boolean includeNodeMeta;
+
+	private boolean includeTaggedAddresses;
+
+	/**
+	 * Sets whether the checks of every instance are decoded. Defaults to {@code false}.
+	 * @param includeChecks whether to decode the checks
+	 */
+	public void setIncludeChecks(boolean includeChecks) {
+		this.includeChecks = includeChecks;
+	}
+
+	/**
+	 * Sets whether the output and notes of decoded checks are kept. Defaults to
+	 * {@code false}.
+	 * @param includeCheckOutput whether to keep the check output
+	 */
+	public void setIncludeCheckOutput(boolean includeCheckOutput) {
+		this.includeCheckOutput = includeCheckOutput;
+	}
+
+	/**
+	 * Sets whether the node meta is decoded. Defaults to {@code false}.
+	 * @param includeNodeMeta whether to decode the node meta
+	 */
+	public void setIncludeNodeMeta(boolean includeNodeMeta) {
+		this.includeNodeMeta = includeNodeMeta;
+	}
+
+	/**
+	 * Sets whether the tagged addresses of the node are decoded. Defaults to
+	 * {@code false}.
+	 * @param includeTaggedAddresses whether to decode the tagged addresses
+	 */
+	public void setIncludeTaggedAddresses(boolean includeTaggedAddresses) {
+		this.includeTaggedAddresses = includeTaggedAddresses;
+	}
+
+	public HealthServices decode(InputStream body) {
+		try (JsonParser parser = JSON_MAPPER.createParser(body)) {
+			return decode(parser);
+		}
+	}
+
+	public HealthServices decode(byte[] body) {
+		try (JsonParser parser = JSON_MAPPER.createParser(body)) {
+			return decode(parser);
+		}
+	}
+
+	private HealthServices decode(JsonParser parser) {
+		HealthServices healthServices = new HealthServices();
+		JsonToken token = parser.nextToken();
+		if (token == null || token == JsonToken.VALUE_NULL) {
+			return healthServices;
+		}
+		expect(parser, token, JsonToken.START_ARRAY);
+		Values values = new Values();
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			expect(parser, token, JsonToken.START_OBJECT);
+			healthServices.add(readHealthService(parser, values));
+		}
+		return healthServices;
+	}
+
+	private HealthService readHealthService(JsonParser parser, Values values) {
+		HealthService healthService = new HealthService();
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.VALUE_NULL) {
+				continue;
+			}
+			switch (name) {
+				case "Node":
+					healthService.setNode(readNode(parser, values));
+					break;
+				case "Service":
+					healthService.setService(readService(parser, values));
+					break;
+				case "Checks":
+					if (this.includeChecks) {
+						healthService.setChecks(readChecks(parser, values));
+					}
+					else {
+						parser.skipChildren();
+					}
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+		return healthService;
+	}
+
+	private HealthService.Node readNode(JsonParser parser, Values values) {
+		HealthService.Node node = new HealthService.Node();
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.VALUE_NULL) {
+				continue;
+			}
+			switch (name) {
+				case "Node":
+					node.setNode(parser.getValueAsString());
+					break;
+				case "Address":
+					node.setAddress(parser.getValueAsString());
+					break;
+				case "Datacenter":
+					node.setDatacenter(values.share(parser.getValueAsString()));
+					break;
+				case "TaggedAddresses":
+					if (this.includeTaggedAddresses) {
+						node.setTaggedAddresses(readMap(parser, values));
+					}
+					else {
+						parser.skipChildren();
+					}
+					break;
+				case "Meta":
+					if (this.includeNodeMeta) {
+						node.setMeta(readMap(parser, values));
+					}
+					else {
+						parser.skipChildren();
+					}
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+		return node;
+	}
+
+	private HealthService.Service readService(JsonParser parser, Values values) {
+		HealthService.Service service = new HealthService.Service();
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.VALUE_NULL) {
+				continue;
+			}
+			switch (name) {
+				case "ID":
+					service.setId(parser.getValueAsString());
+					break;
+				case "Service":
+					service.setService(values.share(parser.getValueAsString()));
+					break;
+				case "Tags":
+					service.setTags(values.share(readStrings(parser, values)));
+					break;
+				case "Address":
+					service.setAddress(parser.getValueAsString());
+					break;
+				case "Meta":
+					service.setMeta(readMap(parser, values));
+					break;
+				case "Port":
+					service.setPort(parser.getValueAsInt());
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+		return service;
+	}
+
+	private List<Check> readChecks(JsonParser parser, Values values) {
+		List<Check> checks = new ArrayList<>(2);
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			Check check = new Check();
+			while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+				String name = parser.currentName();
+				JsonToken token = parser.nextToken();
+				if (token == JsonToken.VALUE_NULL) {
+					continue;
+				}
+				switch (name) {
+					case "Node":
+						check.setNode(parser.getValueAsString());
+						break;
+					case "CheckID":
+						check.setCheckId(values.share(parser.getValueAsString()));
+						break;
+					case "Name":
+						check.setName(values.share(parser.getValueAsString()));
+						break;
+					case "Status":
+						check.setStatus(toStatus(parser.getValueAsString()));
+						break;
+					case "ServiceID":
+						check.setServiceId(parser.getValueAsString());
+						break;
+					case "ServiceName":
+						check.setServiceName(values.share(parser.getValueAsString()));
+						break;
+					case "Notes":
+						if (this.includeCheckOutput) {
+							check.setNotes(parser.getValueAsString());
+						}
+						break;
+					case "Output":
+						if (this.includeCheckOutput) {
+							check.setOutput(parser.getValueAsString());
+						}
+						break;
+					default:
+						parser.skipChildren();
+				}
+			}
+			checks.add(check);
+		}
+		return checks;
+	}
+
+	private List<String> readStrings(JsonParser parser, Values values) {
+		List<String> strings = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			strings.add(values.share(parser.getValueAsString()));
+		}
+		return strings;
+	}
+
+	private Map<String, String> readMap(JsonParser parser, Values values) {
+		Map<String, String> map = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			parser.nextToken();
+			map.put(name, values.share(parser.getValueAsString()));
+		}
+		return map;
+	}
+
+	private static CheckStatus toStatus(String status) {
+		try {
+			return CheckStatus.valueOf(status.toUpperCase(Locale.ROOT));
+		}
+		catch (IllegalArgumentException ex) {
+			return CheckStatus.UNKNOWN;
+		}
+	}
+
+	private static void expect(JsonParser parser, JsonToken token, JsonToken expected) {
+		if (token != expected) {
+			throw new ConsulException("Expected " + expected + " in health services but got " + token + " at "
+					+ parser.currentLocation());
+		}
+	}
+
+	/**
+	 * Values seen while decoding one response.
+	 */
+	private static final class Values {
+
+		private final Map<String, String> strings = new HashMap<>();
+
+		private final Map<List<String>, List<String>> lists = new HashMap<>();
+
+		String share(String value) {
+			if (value == null) {
+				return null;
+			}
+			String shared = this.strings.putIfAbsent(value, value);
+			return (shared != null) ? shared : value;
+		}
+
+		List<String> share(List<String> value) {
+			if (value.isEmpty()) {
+				return Collections.emptyList();
+			}
+			// shared between instances, so it must not be changed through one of them
+			return this.lists.computeIfAbsent(value, Collections::unmodifiableList);
+		}
+
+	}
+
+}
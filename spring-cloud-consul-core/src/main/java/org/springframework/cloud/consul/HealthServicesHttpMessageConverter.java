@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.io.IOException;
+
+import tools.jackson.core.JacksonException;
+
+import org.springframework.cloud.consul.model.http.health.HealthServices;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+/**
+ * Reads {@link HealthServices} with a {@link HealthServiceDecoder}, straight from the
+ * response stream. Other types, including {@code List<HealthService>}, are left to the
+ * Jackson converter.
+ */
+public class HealthServicesHttpMessageConverter extends AbstractHttpMessageConverter<HealthServices> {
+
+	private final HealthServiceDecoder decoder;
+
+	public HealthServicesHttpMessageConverter() {
+		this(new HealthServiceDecoder());
+	}
+
+	public HealthServicesHttpMessageConverter(HealthServiceDecoder decoder) {
+		super(MediaType.APPLICATION_JSON);
+		this.decoder = decoder;
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return HealthServices.class == clazz;
+	}
+
+	@Override
+	protected boolean canWrite(MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected HealthServices readInternal(Class<? extends HealthServices> clazz, HttpInputMessage inputMessage)
+			throws IOException, HttpMessageNotReadableException {
+		try {
+			return this.decoder.decode(inputMessage.getBody());
+		}
+		catch (JacksonException | ConsulException ex) {
+			throw new HttpMessageNotReadableException("Could not decode health services: " + ex.getMessage(), ex,
+					inputMessage);
+		}
+	}
+
+	@Override
+	protected void writeInternal(HealthServices healthServices, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		throw new HttpMessageNotWritableException("Health services are only read");
+	}
+
+}
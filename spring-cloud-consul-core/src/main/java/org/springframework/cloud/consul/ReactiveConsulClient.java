@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.util.List;
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.agent.Service;
+import org.springframework.cloud.consul.model.http.catalog.CatalogService;
+import org.springframework.cloud.consul.model.http.catalog.Node;
+import org.springframework.cloud.consul.model.http.event.Event;
+import org.springframework.cloud.consul.model.http.format.WaitTimeFormat;
+import org.springframework.cloud.consul.model.http.health.Check;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.service.annotation.GetExchange;
+
+import static org.springframework.cloud.consul.ConsulClient.ACL_TOKEN_HEADER;
+
+/**
+ * Non-blocking counterpart of the read operations of {@link ConsulClient}, backed by a
+ * {@code WebClient}.
+ */
+public interface ReactiveConsulClient {
+
+	@GetExchange("/v1/status/leader")
+	Mono<ResponseEntity<String>> getStatusLeader();
+
+	@GetExchange("/v1/status/peers")
+	Mono<ResponseEntity<List<String>>> getStatusPeers();
+
+	@GetExchange("/v1/catalog/datacenters")
+	Mono<ResponseEntity<List<String>>> getCatalogDatacenters(
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken);
+
+	@GetExchange("/v1/catalog/services")
+	Mono<ResponseEntity<Map<String, List<String>>>> getCatalogServices();
+
+	@GetExchange("/v1/catalog/services")
+	Mono<ResponseEntity<Map<String, List<String>>>> getCatalogServices(
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken, QueryParams queryParams);
+
+	@GetExchange("/v1/agent/services")
+	Mono<ResponseEntity<Map<String, Service>>> getAgentServices();
+
+	@GetExchange("/v1/catalog/service/{serviceId}")
+	Mono<ResponseEntity<List<CatalogService>>> getCatalogService(@PathVariable String serviceId);
+
+	@GetExchange("/v1/catalog/nodes")
+	Mono<ResponseEntity<List<Node>>> getCatalogNodes();
+
+	@GetExchange("/v1/health/checks/{serviceName}")
+	Mono<ResponseEntity<List<Check>>> getHealthChecksForService(@PathVariable String serviceName);
+
+	@GetExchange("/v1/health/service/{serviceName}")
+	Mono<ResponseEntity<List<HealthService>>> getHealthServices(@PathVariable String serviceName);
+
+	@GetExchange("/v1/health/service/{serviceName}")
+	Mono<ResponseEntity<List<HealthService>>> getHealthServices(@PathVariable String serviceName,
+			@RequestParam boolean passing, @RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken,
+			@RequestParam(required = false) List<String> tag, QueryParams queryParams);
+
+	@GetExchange("/v1/kv/{context}")
+	Mono<ResponseEntity<List<GetValue>>> getKVValue(@PathVariable String context,
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken);
+
+	@GetExchange("/v1/kv/{context}?recurse")
+	Mono<ResponseEntity<List<GetValue>>> getKVValues(@PathVariable String context,
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken);
+
+	@GetExchange("/v1/kv/{context}?recurse")
+	Mono<ResponseEntity<List<GetValue>>> getKVValues(@PathVariable String context,
+			@RequestHeader(name = ACL_TOKEN_HEADER, required = false) String aclToken,
+			@RequestParam("wait") @WaitTimeFormat Long waitTime, @RequestParam("index") long index);
+
+	@GetExchange("/v1/events")
+	Mono<ResponseEntity<List<Event>>> eventList();
+
+	@GetExchange("/v1/events")
+	Mono<ResponseEntity<List<Event>>> eventList(int eventTimeout, long index);
+
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.AbstractBufferingClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * {@link ClientHttpRequestFactory} that talks HTTP/1.1 to a consul agent listening on a
+ * Unix domain socket, as configured with {@code addresses.http = "unix://..."} on the
+ * agent. The host and port of the request URI are ignored, only its path and query are
+ * sent. Every request opens its own connection, which on a local socket is cheap.
+ *
+ * @see ConsulProperties#getSocketPath()
+ */
+public class UnixDomainSocketClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final UnixDomainSocketAddress address;
+
+	private final Duration readTimeout;
+
+	private final Duration blockingQueryReadTimeout;
+
+	/**
+	 * Creates a request factory for the given socket.
+	 * @param socketPath the socket file of the agent
+	 * @param readTimeout the read timeout of calls that are not blocking queries, or
+	 * {@code null} to wait indefinitely
+	 * @param blockingQueryReadTimeout the read timeout of blocking queries, or
+	 * {@code null} to wait indefinitely
+	 */
+	public UnixDomainSocketClientHttpRequestFactory(Path socketPath, Duration readTimeout,
+			Duration blockingQueryReadTimeout) {
+		this.address = UnixDomainSocketAddress.of(socketPath);
+		this.readTimeout = readTimeout;
+		this.blockingQueryReadTimeout = blockingQueryReadTimeout;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+		Duration timeout = ConsulClientHttpRequestFactory.isBlockingQuery(uri) ? this.blockingQueryReadTimeout
+				: this.readTimeout;
+		return new UnixDomainSocketClientHttpRequest(uri, httpMethod, timeout);
+	}
+
+	private final class UnixDomainSocketClientHttpRequest extends AbstractBufferingClientHttpRequest {
+
+		private final URI uri;
+
+		private final HttpMethod method;
+
+		private final Duration timeout;
+
+		private UnixDomainSocketClientHttpRequest(URI uri, HttpMethod method, Duration timeout) {
+			this.uri = uri;
+			this.method = method;
+			this.timeout = timeout;
+		}
+
+		@Override
+		public HttpMethod getMethod() {
+			return this.method;
+		}
+
+		@Override
+		public URI getURI() {
+			return this.uri;
+		}
+
+		@Override
+		protected ClientHttpResponse executeInternal(HttpHeaders headers, byte[] body) throws IOException {
+			try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+				channel.connect(UnixDomainSocketClientHttpRequestFactory.this.address);
+				writeRequest(channel, headers, body);
+				try (InputStream in = new ChannelInputStream(channel, this.timeout)) {
+					return readResponse(in);
+				}
+			}
+		}
+
+		private void writeRequest(SocketChannel channel, HttpHeaders headers, byte[] body) throws IOException {
+			String target = this.uri.getRawPath();
+			if (target == null || target.isEmpty()) {
+				target = "/";
+			}
+			if (this.uri.getRawQuery() != null) {
+				target = target + "?" + this.uri.getRawQuery();
+			}
+			StringBuilder request = new StringBuilder();
+			request.append(this.method.name()).append(' ').append(target).append(" HTTP/1.1\r\n");
+			request.append("Host: localhost\r\n");
+			request.append("Connection: close\r\n");
+			for (Map.Entry<String, List<String>> header : headers.headerSet()) {
+				if (HttpHeaders.HOST.equalsIgnoreCase(header.getKey())
+						|| HttpHeaders.CONNECTION.equalsIgnoreCase(header.getKey())
+						|| HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())) {
+					continue;
+				}
+				for (String value : header.getValue()) {
+					request.append(header.getKey()).append(": ").append(value).append("\r\n");
+				}
+			}
+			if (body.length > 0 || this.method == HttpMethod.PUT || this.method == HttpMethod.POST) {
+				request.append("Content-Length: ").append(body.length).append("\r\n");
+			}
+			request.append("\r\n");
+			writeFully(channel, ByteBuffer.wrap(request.toString().getBytes(StandardCharsets.ISO_8859_1)));
+			writeFully(channel, ByteBuffer.wrap(body));
+		}
+
+		private void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		private ClientHttpResponse readResponse(InputStream in) throws IOException {
+			String statusLine = readLine(in);
+			String[] status = statusLine.split(" ", 3);
+			if (status.length < 2 || !status[0].startsWith("HTTP/")) {
+				throw new IOException("Invalid HTTP status line from consul: " + statusLine);
+			}
+			HttpHeaders headers = new HttpHeaders();
+			for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+				int colon = line.indexOf(':');
+				if (colon > 0) {
+					headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+				}
+			}
+			byte[] body;
+			if ("chunked".equalsIgnoreCase(headers.getFirst(HttpHeaders.TRANSFER_ENCODING))) {
+				body = readChunked(in);
+			}
+			else if (headers.getContentLength() >= 0) {
+				body = in.readNBytes((int) headers.getContentLength());
+			}
+			else {
+				body = in.readAllBytes();
+			}
+			return new UnixDomainSocketClientHttpResponse(HttpStatusCode.valueOf(Integer.parseInt(status[1])),
+					status.length > 2 ? status[2] : "", headers, body);
+		}
+
+		private byte[] readChunked(InputStream in) throws IOException {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			while (true) {
+				String sizeLine = readLine(in);
+				int extension = sizeLine.indexOf(';');
+				int size = Integer.parseInt((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(),
+						16);
+				if (size == 0) {
+					String trailer = readLine(in);
+					while (!trailer.isEmpty()) {
+						trailer = readLine(in);
+					}
+					return body.toByteArray();
+				}
+				byte[] chunk = in.readNBytes(size);
+				if (chunk.length < size) {
+					throw new EOFException("Unexpected end of chunked response from consul");
+				}
+				body.write(chunk);
+				readLine(in);
+			}
+		}
+
+		private String readLine(InputStream in) throws IOException {
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) != '\n') {
+				if (b == -1) {
+					throw new EOFException("Unexpected end of response from consul");
+				}
+				if (b != '\r') {
+					line.write(b);
+				}
+			}
+			return line.toString(StandardCharsets.ISO_8859_1);
+		}
+
+	}
+
+	/**
+	 * Reads from a socket channel, giving up when no data arrives within the timeout.
+	 */
+	private static final class ChannelInputStream extends InputStream {
+
+		private final SocketChannel channel;
+
+		private final long timeoutMillis;
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+		private Selector selector;
+
+		private ChannelInputStream(SocketChannel channel, Duration timeout) {
+			this.channel = channel;
+			this.timeoutMillis = timeout != null ? timeout.toMillis() : 0;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return this.buffer.get() & 0xff;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			int count = Math.min(len, this.buffer.remaining());
+			this.buffer.get(bytes, off, count);
+			return count;
+		}
+
+		private boolean fill() throws IOException {
+			if (this.buffer.hasRemaining()) {
+				return true;
+			}
+			this.buffer.clear();
+			try {
+				int read = readChannel();
+				return read > 0;
+			}
+			finally {
+				this.buffer.flip();
+			}
+		}
+
+		private int readChannel() throws IOException {
+			if (this.timeoutMillis <= 0) {
+				return this.channel.read(this.buffer);
+			}
+			if (this.selector == null) {
+				this.channel.configureBlocking(false);
+				this.selector = Selector.open();
+				this.channel.register(this.selector, SelectionKey.OP_READ);
+			}
+			while (true) {
+				int read = this.channel.read(this.buffer);
+				if (read != 0) {
+					return read;
+				}
+				if (this.selector.select(this.timeoutMillis) == 0) {
+					throw new SocketTimeoutException("Read timed out after " + this.timeoutMillis + "ms");
+				}
+				this.selector.selectedKeys().clear();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.selector != null) {
+				this.selector.close();
+			}
+		}
+
+	}
+
+	private static final class UnixDomainSocketClientHttpResponse implements ClientHttpResponse {
+
+		private final HttpStatusCode statusCode;
+
+		private final String statusText;
+
+		private final HttpHeaders headers;
+
+		private final byte[] body;
+
+		private UnixDomainSocketClientHttpResponse(HttpStatusCode statusCode, String statusText, HttpHeaders headers,
+				byte[] body) {
+			this.statusCode = statusCode;
+			this.statusText = statusText;
+			this.headers = headers;
+			this.body = body;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() {
+			return this.statusCode;
+		}
+
+		@Override
+		public String getStatusText() {
+			return this.statusText;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		@Override
+		public InputStream getBody() {
+			return new ByteArrayInputStream(this.body);
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
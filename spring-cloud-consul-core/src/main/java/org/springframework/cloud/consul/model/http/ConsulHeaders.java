@@ -44,6 +44,17 @@ public final class ConsulHeaders {
 	 */
 	public static String LAST_CONTACT_HEADER = "X-Consul-Lastcontact";
 
+	/**
+	 * Header name for the agent cache result of a cached query, {@code HIT} or
+	 * {@code MISS}.
+	 */
+	public static String CACHE_HEADER = "X-Cache";
+
+	/**
+	 * Header name for the age, in seconds, of a response served from the agent cache.
+	 */
+	public static String AGE_HEADER = "Age";
+
 	public static Long getConsulIndex(HttpEntity<?> entity) {
 		String header = entity.getHeaders().getFirst(INDEX_HEADER);
 		return parseUnsignedLong(header);
@@ -59,6 +70,28 @@ public final class ConsulHeaders {
 		return parseUnsignedLong(header);
 	}
 
+	/**
+	 * Returns whether the agent answered a cached query from its cache.
+	 * @param entity the response
+	 * @return {@code true} on a hit, {@code false} on a miss, or {@code null} if the
+	 * query was not cached
+	 */
+	public static Boolean getConsulCacheHit(HttpEntity<?> entity) {
+		String header = entity.getHeaders().getFirst(CACHE_HEADER);
+		if ("HIT".equals(header)) {
+			return true;
+		}
+		if ("MISS".equals(header)) {
+			return false;
+		}
+		return null;
+	}
+
+	public static Long getConsulCacheAge(HttpEntity<?> entity) {
+		String header = entity.getHeaders().getFirst(AGE_HEADER);
+		return parseUnsignedLong(header);
+	}
+
 	private static Long parseUnsignedLong(String value) {
 		if (StringUtils.hasText(value)) {
 			try {
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.agent;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.springframework.cloud.consul.model.http.coordinate.Coordinate;
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * The parts of {@code /v1/agent/self} that describe the local agent.
+ */
+public class Self {
+
+	@JsonProperty("Config")
+	private Config config;
+
+	@JsonProperty("Coord")
+	private Coordinate coord;
+
+	public Config getConfig() {
+		return config;
+	}
+
+	public void setConfig(Config config) {
+		this.config = config;
+	}
+
+	public Coordinate getCoord() {
+		return coord;
+	}
+
+	public void setCoord(Coordinate coord) {
+		this.coord = coord;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("config", config).append("coord", coord).toString();
+	}
+
+	public static class Config {
+
+		@JsonProperty("NodeName")
+		private String nodeName;
+
+		@JsonProperty("Datacenter")
+		private String datacenter;
+
+		public String getNodeName() {
+			return nodeName;
+		}
+
+		public void setNodeName(String nodeName) {
+			this.nodeName = nodeName;
+		}
+
+		public String getDatacenter() {
+			return datacenter;
+		}
+
+		public void setDatacenter(String datacenter) {
+			this.datacenter = datacenter;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("nodeName", nodeName).append("datacenter", datacenter).toString();
+		}
+
+	}
+
+}
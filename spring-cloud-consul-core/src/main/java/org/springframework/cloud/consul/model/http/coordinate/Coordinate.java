@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.coordinate;
+
+import java.time.Duration;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * A network coordinate of a node, computed by consul with the Vivaldi algorithm.
+ *
+ * @see <a href="https://developer.hashicorp.com/consul/docs/architecture/coordinates">Network
+ * Coordinates</a>
+ */
+public class Coordinate {
+
+	@JsonProperty("Vec")
+	private List<Double> vec;
+
+	@JsonProperty("Error")
+	private double error;
+
+	@JsonProperty("Adjustment")
+	private double adjustment;
+
+	@JsonProperty("Height")
+	private double height;
+
+	public List<Double> getVec() {
+		return vec;
+	}
+
+	public void setVec(List<Double> vec) {
+		this.vec = vec;
+	}
+
+	public double getError() {
+		return error;
+	}
+
+	public void setError(double error) {
+		this.error = error;
+	}
+
+	public double getAdjustment() {
+		return adjustment;
+	}
+
+	public void setAdjustment(double adjustment) {
+		this.adjustment = adjustment;
+	}
+
+	public double getHeight() {
+		return height;
+	}
+
+	public void setHeight(double height) {
+		this.height = height;
+	}
+
+	/**
+	 * Estimates the round trip time to the node of another coordinate, the same way
+	 * consul does: the Euclidean distance of the vectors plus both heights, corrected by
+	 * both adjustments unless that makes it negative.
+	 * @param other the other coordinate
+	 * @return the estimated round trip time, or {@code null} if the coordinates do not
+	 * have the same dimensions
+	 */
+	public Duration distanceTo(Coordinate other) {
+		if (this.vec == null || other.vec == null || this.vec.size() != other.vec.size()) {
+			return null;
+		}
+		double sum = 0;
+		for (int i = 0; i < this.vec.size(); i++) {
+			double diff = this.vec.get(i) - other.vec.get(i);
+			sum += diff * diff;
+		}
+		double distance = Math.sqrt(sum) + this.height + other.height;
+		double adjusted = distance + this.adjustment + other.adjustment;
+		if (adjusted > 0) {
+			distance = adjusted;
+		}
+		return Duration.ofNanos(Math.round(distance * 1.0e9));
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("vec", vec)
+			.append("error", error)
+			.append("adjustment", adjustment)
+			.append("height", height)
+			.toString();
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.coordinate;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * An entry of {@code /v1/coordinate/nodes}.
+ */
+public class NodeCoordinate {
+
+	@JsonProperty("Node")
+	private String node;
+
+	@JsonProperty("Segment")
+	private String segment;
+
+	@JsonProperty("Coord")
+	private Coordinate coord;
+
+	public String getNode() {
+		return node;
+	}
+
+	public void setNode(String node) {
+		this.node = node;
+	}
+
+	public String getSegment() {
+		return segment;
+	}
+
+	public void setSegment(String segment) {
+		this.segment = segment;
+	}
+
+	public Coordinate getCoord() {
+		return coord;
+	}
+
+	public void setCoord(Coordinate coord) {
+		this.coord = coord;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("node", node)
+			.append("segment", segment)
+			.append("coord", coord)
+			.toString();
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.health;
+
+import java.util.ArrayList;
+
+/**
+ * Health services decoded by the
+ * {@link org.springframework.cloud.consul.HealthServiceDecoder streaming decoder}, which
+ * only fills in the fields service discovery reads.
+ */
+public class HealthServices extends ArrayList<HealthService> {
+
+	private static final long serialVersionUID = 1L;
+
+	public HealthServices() {
+	}
+
+	public HealthServices(int initialCapacity) {
+		super(initialCapacity);
+	}
+
+}
@@ -30,6 +30,15 @@ public class GetValue {
 	@JsonProperty("Value")
 	private String value;
 
+	@JsonProperty("CreateIndex")
+	private long createIndex;
+
+	@JsonProperty("ModifyIndex")
+	private long modifyIndex;
+
+	@JsonProperty("Flags")
+	private long flags;
+
 	public String getKey() {
 		return key;
 	}
@@ -46,6 +55,30 @@ public class GetValue {
 		this.value = value;
 	}
 
+	public long getCreateIndex() {
+		return createIndex;
+	}
+
+	public void setCreateIndex(long createIndex) {
+		this.createIndex = createIndex;
+	}
+
+	public long getModifyIndex() {
+		return modifyIndex;
+	}
+
+	public void setModifyIndex(long modifyIndex) {
+		this.modifyIndex = modifyIndex;
+	}
+
+	public long getFlags() {
+		return flags;
+	}
+
+	public void setFlags(long flags) {
+		this.flags = flags;
+	}
+
 	public String getDecodedValue(Charset charset) {
 		if (this.value == null) {
 			return null;
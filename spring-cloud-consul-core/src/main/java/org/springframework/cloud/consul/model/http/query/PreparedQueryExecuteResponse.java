@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.query;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.util.StringUtils;
+
+/**
+ * The response to the execution of a prepared query from
+ * {@code /v1/query/{query}/execute}. The nodes have the same shape as the response of
+ * {@code /v1/health/service}.
+ */
+public class PreparedQueryExecuteResponse {
+
+	@JsonProperty("Service")
+	private String service;
+
+	@JsonProperty("Nodes")
+	private List<HealthService> nodes;
+
+	@JsonProperty("DNS")
+	private Dns dns;
+
+	@JsonProperty("Datacenter")
+	private String datacenter;
+
+	@JsonProperty("Failovers")
+	private Integer failovers;
+
+	public String getService() {
+		return service;
+	}
+
+	public void setService(String service) {
+		this.service = service;
+	}
+
+	public List<HealthService> getNodes() {
+		return nodes;
+	}
+
+	public void setNodes(List<HealthService> nodes) {
+		this.nodes = nodes;
+	}
+
+	public Dns getDns() {
+		return dns;
+	}
+
+	public void setDns(Dns dns) {
+		this.dns = dns;
+	}
+
+	public String getDatacenter() {
+		return datacenter;
+	}
+
+	public void setDatacenter(String datacenter) {
+		this.datacenter = datacenter;
+	}
+
+	public Integer getFailovers() {
+		return failovers;
+	}
+
+	public void setFailovers(Integer failovers) {
+		this.failovers = failovers;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("service", service)
+			.append("nodes", nodes)
+			.append("dns", dns)
+			.append("datacenter", datacenter)
+			.append("failovers", failovers)
+			.toString();
+	}
+
+	public static class Dns {
+
+		private static final Pattern DURATION_PART = Pattern
+			.compile("(\\d+(?:\\.\\d*)?|\\.\\d+)(ns|us|\\u00b5s|ms|s|m|h)");
+
+		@JsonProperty("TTL")
+		private String ttl;
+
+		public String getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(String ttl) {
+			this.ttl = ttl;
+		}
+
+		/**
+		 * Parses the TTL, which consul writes as a Go duration such as {@code 10s} or
+		 * {@code 1m30s}.
+		 * @return the TTL, or {@code null} if the query does not set one or it cannot be
+		 * parsed
+		 */
+		public Duration getTtlDuration() {
+			if (!StringUtils.hasText(ttl)) {
+				return null;
+			}
+			String value = ttl.trim().toLowerCase(Locale.ROOT);
+			if (value.equals("0")) {
+				return Duration.ZERO;
+			}
+			Matcher matcher = DURATION_PART.matcher(value);
+			double nanos = 0;
+			int end = 0;
+			while (matcher.find() && matcher.start() == end) {
+				nanos += Double.parseDouble(matcher.group(1)) * nanosPerUnit(matcher.group(2));
+				end = matcher.end();
+			}
+			return (end > 0 && end == value.length()) ? Duration.ofNanos(Math.round(nanos)) : null;
+		}
+
+		private static long nanosPerUnit(String unit) {
+			switch (unit) {
+				case "ns":
+					return 1L;
+				case "ms":
+					return 1_000_000L;
+				case "s":
+					return 1_000_000_000L;
+				case "m":
+					return 60_000_000_000L;
+				case "h":
+					return 3_600_000_000_000L;
+				default:
+					// us and the micro sign
+					return 1_000L;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("ttl", ttl).toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.txn;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * An operation of a {@code /v1/txn} transaction. Only KV operations are supported.
+ */
+public class TxnOperation {
+
+	@JsonProperty("KV")
+	private KVOperation kv;
+
+	public TxnOperation() {
+	}
+
+	public TxnOperation(KVOperation kv) {
+		this.kv = kv;
+	}
+
+	/**
+	 * Reads a single key. The whole transaction fails if the key does not exist.
+	 * @param key the key
+	 * @return the operation
+	 */
+	public static TxnOperation kvGet(String key) {
+		return new TxnOperation(new KVOperation("get", key));
+	}
+
+	/**
+	 * Reads all keys starting with the given prefix, which may be none.
+	 * @param prefix the prefix
+	 * @return the operation
+	 */
+	public static TxnOperation kvGetTree(String prefix) {
+		return new TxnOperation(new KVOperation("get-tree", prefix));
+	}
+
+	public KVOperation getKv() {
+		return kv;
+	}
+
+	public void setKv(KVOperation kv) {
+		this.kv = kv;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("kv", kv).toString();
+	}
+
+	public static class KVOperation {
+
+		@JsonProperty("Verb")
+		private String verb;
+
+		@JsonProperty("Key")
+		private String key;
+
+		public KVOperation() {
+		}
+
+		public KVOperation(String verb, String key) {
+			this.verb = verb;
+			this.key = key;
+		}
+
+		public String getVerb() {
+			return verb;
+		}
+
+		public void setVerb(String verb) {
+			this.verb = verb;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public void setKey(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("verb", verb).append("key", key).toString();
+		}
+
+	}
+
+}
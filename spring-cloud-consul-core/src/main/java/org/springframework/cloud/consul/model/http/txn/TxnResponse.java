@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.txn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.springframework.cloud.consul.model.http.kv.GetValue;
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * The response to a {@code /v1/txn} transaction. A transaction that was rolled back has
+ * errors and no results.
+ */
+public class TxnResponse {
+
+	@JsonProperty("Results")
+	private List<Result> results;
+
+	@JsonProperty("Errors")
+	private List<Error> errors;
+
+	public List<Result> getResults() {
+		return results;
+	}
+
+	public void setResults(List<Result> results) {
+		this.results = results;
+	}
+
+	public List<Error> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<Error> errors) {
+		this.errors = errors;
+	}
+
+	/**
+	 * Returns the values read by the KV operations, in the order of the operations.
+	 * @return the values, empty if there are none
+	 */
+	public List<GetValue> getKVValues() {
+		List<GetValue> values = new ArrayList<>();
+		if (results != null) {
+			for (Result result : results) {
+				if (result.getKv() != null) {
+					values.add(result.getKv());
+				}
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("results", results).append("errors", errors).toString();
+	}
+
+	public static class Result {
+
+		@JsonProperty("KV")
+		private GetValue kv;
+
+		public GetValue getKv() {
+			return kv;
+		}
+
+		public void setKv(GetValue kv) {
+			this.kv = kv;
+		}
+
+	}
+
+	public static class Error {
+
+		@JsonProperty("OpIndex")
+		private int opIndex;
+
+		@JsonProperty("What")
+		private String what;
+
+		public int getOpIndex() {
+			return opIndex;
+		}
+
+		public void setOpIndex(int opIndex) {
+			this.opIndex = opIndex;
+		}
+
+		public String getWhat() {
+			return what;
+		}
+
+		public void setWhat(String what) {
+			this.what = what;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("opIndex", opIndex).append("what", what).toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link BlockingQueryWatcher}.
+ */
+public class BlockingQueryWatcherTests {
+
+	private final Deque<Object> responses = new ArrayDeque<>();
+
+	private final List<QueryParams> queries = new ArrayList<>();
+
+	private final List<Long> changes = new ArrayList<>();
+
+	private final List<RuntimeException> errors = new ArrayList<>();
+
+	private final BlockingQueryWatcher<String> watcher = new BlockingQueryWatcher<>("test", this::fetch,
+			(response, previousIndex, newIndex) -> this.changes.add(newIndex), null);
+
+	@Test
+	public void listenerIsCalledWhenIndexChanges() {
+		// no backoff after the early return with the same index
+		this.watcher.setDelay(Duration.ZERO);
+		respond(10L, 10L, 12L);
+
+		assertThat(this.watcher.poll()).isTrue();
+		assertThat(this.watcher.poll()).isFalse();
+		assertThat(this.watcher.poll()).isTrue();
+
+		assertThat(this.changes).containsExactly(10L, 12L);
+		assertThat(this.queries).extracting(QueryParams::getIndex)
+			.containsExactly(BlockingQueryWatcher.NO_INDEX, 10L, 10L);
+		assertThat(this.watcher.getIndex()).isEqualTo(12);
+	}
+
+	@Test
+	public void waitTimeIsJitteredDownInWholeSeconds() {
+		this.watcher.setWaitTime(Duration.ofSeconds(50));
+		for (int i = 0; i < 20; i++) {
+			respond((long) i + 1);
+			this.watcher.poll();
+		}
+
+		assertThat(this.queries).extracting(QueryParams::getWaitTime)
+			.allSatisfy(waitTime -> assertThat(waitTime).isBetween(45L, 50L));
+	}
+
+	@Test
+	public void indexGoingBackwardsResetsWatch() {
+		this.watcher.setIndex(100);
+		respond(5L, 6L);
+
+		assertThat(this.watcher.poll()).isFalse();
+		assertThat(this.watcher.getIndex()).isZero();
+		assertThat(this.watcher.poll()).isTrue();
+
+		assertThat(this.queries).extracting(QueryParams::getIndex).containsExactly(100L, 0L);
+		assertThat(this.changes).containsExactly(6L);
+	}
+
+	@Test
+	public void indexGoingBackwardsIsAChangeWhenNotMonotonic() {
+		this.watcher.setMonotonicIndex(false);
+		this.watcher.setIndex(100);
+		respond(5L);
+
+		assertThat(this.watcher.poll()).isTrue();
+		assertThat(this.watcher.getIndex()).isEqualTo(5);
+	}
+
+	@Test
+	public void indexOfZeroIsNotSentBack() {
+		respond(0L, 1L);
+
+		this.watcher.poll();
+		this.watcher.poll();
+
+		assertThat(this.changes).containsExactly(0L);
+		assertThat(this.queries.get(1).getIndex()).isEqualTo(1);
+	}
+
+	@Test
+	public void failedQueryBacksOff() {
+		this.watcher.setErrorHandler((ex, firstQuery) -> this.errors.add(ex));
+		this.watcher.setDelay(Duration.ofMinutes(1));
+		this.responses.add(new IllegalStateException("agent down"));
+		respond(10L);
+
+		assertThat(this.watcher.poll()).isFalse();
+		assertThat(this.watcher.poll()).isFalse();
+
+		assertThat(this.errors).hasSize(1);
+		assertThat(this.queries).hasSize(1);
+	}
+
+	@Test
+	public void earlyReturnWithSameIndexBacksOff() {
+		this.watcher.setDelay(Duration.ofMinutes(1));
+		respond(10L, 10L, 12L);
+
+		assertThat(this.watcher.poll()).isTrue();
+		assertThat(this.watcher.poll()).isFalse();
+		assertThat(this.watcher.poll()).isFalse();
+
+		assertThat(this.queries).hasSize(2);
+		assertThat(this.changes).containsExactly(10L);
+	}
+
+	@Test
+	public void failureIsRethrownWithoutErrorHandler() {
+		this.responses.add(new IllegalStateException("agent down"));
+
+		assertThatIllegalStateException().isThrownBy(this.watcher::poll).withMessage("agent down");
+	}
+
+	@Test
+	public void responseWithoutIndexFails() {
+		this.responses.add(ResponseEntity.ok("value"));
+
+		assertThatIllegalStateException().isThrownBy(this.watcher::poll).withMessageContaining("X-Consul-Index");
+	}
+
+	private void respond(Long... indexes) {
+		for (Long index : indexes) {
+			this.responses.add(ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, index.toString()).body("value"));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private ResponseEntity<String> fetch(QueryParams queryParams) {
+		this.queries.add(queryParams);
+		Object response = this.responses.remove();
+		if (response instanceof RuntimeException) {
+			throw (RuntimeException) response;
+		}
+		return (ResponseEntity<String>) response;
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.cloud.consul.ConsulClient.ConsistencyMode;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CoalescingConsulClient}.
+ */
+public class CoalescingConsulClientTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	private final ConsulClient delegate = mock(ConsulClient.class);
+
+	private final ConsulClient client = CoalescingConsulClient.wrap(this.delegate);
+
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void concurrentIdenticalReadsShareOneCall() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		ResponseEntity<List<HealthService>> response = ResponseEntity.ok(Collections.emptyList());
+		when(this.delegate.getHealthServices(anyString(), anyBoolean(), any(), any(), any())).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return response;
+		});
+
+		CountDownLatch started = new CountDownLatch(8);
+		List<Future<ResponseEntity<List<HealthService>>>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			results.add(this.executor.submit(() -> {
+				started.countDown();
+				return this.client.getHealthServices("payments", true, "token", null,
+						new QueryParams(ConsistencyMode.STALE));
+			}));
+		}
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		await().untilAsserted(() -> verify(this.delegate).getHealthServices("payments", true, "token", null,
+				new QueryParams(ConsistencyMode.STALE)));
+		// give the other callers time to join the call in flight
+		Thread.sleep(200);
+		release.countDown();
+
+		for (Future<ResponseEntity<List<HealthService>>> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(response);
+		}
+		verify(this.delegate, times(1)).getHealthServices(anyString(), anyBoolean(), any(), any(), any());
+		assertThat(inFlight()).isZero();
+	}
+
+	@Test
+	public void differentTokensAreNotCoalesced() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(this.delegate.getHealthServices(anyString(), anyBoolean(), any(), any(), any())).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return ResponseEntity.ok(Collections.emptyList());
+		});
+
+		Future<?> first = this.executor
+			.submit(() -> this.client.getHealthServices("payments", true, "first", null, QueryParams.DEFAULT));
+		Future<?> second = this.executor
+			.submit(() -> this.client.getHealthServices("payments", true, "second", null, QueryParams.DEFAULT));
+		await().untilAsserted(() -> assertThat(inFlight()).isEqualTo(2));
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		second.get(5, TimeUnit.SECONDS);
+
+		verify(this.delegate, times(2)).getHealthServices(anyString(), anyBoolean(), any(), any(), any());
+	}
+
+	@Test
+	public void completedReadsAreNotCached() {
+		when(this.delegate.getStatusLeader()).thenReturn(ResponseEntity.ok("leader"));
+
+		this.client.getStatusLeader();
+		this.client.getStatusLeader();
+
+		verify(this.delegate, times(2)).getStatusLeader();
+	}
+
+	@Test
+	public void failureIsPropagated() {
+		when(this.delegate.getStatusLeader()).thenThrow(new IllegalStateException("agent down"));
+
+		assertThatIllegalStateException().isThrownBy(this.client::getStatusLeader).withMessage("agent down");
+		assertThat(inFlight()).isZero();
+	}
+
+	@Test
+	public void writesGoToDelegate() {
+		this.client.agentCheckPass("service:app", null, "token");
+		this.client.agentCheckPass("service:app", null, "token");
+
+		verify(this.delegate, times(2)).agentCheckPass("service:app", null, "token");
+	}
+
+	private int inFlight() {
+		return ((CoalescingConsulClient) Proxy.getInvocationHandler(this.client)).getInFlightCount();
+	}
+
+}
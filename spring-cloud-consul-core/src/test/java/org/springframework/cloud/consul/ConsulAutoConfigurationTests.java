@@ -17,18 +17,28 @@
 package org.springframework.cloud.consul;
 
 import java.net.URL;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.junit.Test;
 
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.ssl.SslBundle;
+import org.springframework.boot.system.JavaVersion;
 import org.springframework.boot.test.context.FilteredClassLoader;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.cloud.consul.ConsulAutoConfiguration.ConsulClientSettings;
 import org.springframework.cloud.consul.test.ConsulTestcontainers;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Auto-configuration integration tests for {@link ConsulAutoConfiguration}.
@@ -136,4 +146,48 @@ public class ConsulAutoConfigurationTests {
 			.run(context -> assertThat(context).hasNotFailed().doesNotHaveBean(ConsulHealthIndicator.class));
 	}
 
+	@Test
+	public void pooledTransportIsSharedAndClosedWithTheContext() {
+		ConsulClientHttpRequestFactory[] requestFactory = new ConsulClientHttpRequestFactory[1];
+		appContextRunner.withPropertyValues("spring.cloud.consul.http.pooled=true").run(context -> {
+			assertThat(context).hasNotFailed()
+				.hasSingleBean(ConsulClient.class)
+				.hasSingleBean(ConsulClientHttpRequestFactory.class);
+			requestFactory[0] = context.getBean(ConsulClientHttpRequestFactory.class);
+		});
+		// the connection pool was shut down with the context
+		Object clientFactory = ReflectionTestUtils.getField(requestFactory[0], "requestFactory");
+		CloseableHttpClient httpClient = (CloseableHttpClient) ReflectionTestUtils.getField(clientFactory,
+				"httpClient");
+		assertThatThrownBy(() -> httpClient.execute(new HttpGet("http://localhost:1/"), response -> null))
+			.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void pooledTransportNotCreatedByDefault() {
+		appContextRunner.run(context -> assertThat(context).hasNotFailed()
+			.doesNotHaveBean(ConsulClientHttpRequestFactory.class));
+	}
+
+	@Test
+	public void sharedTaskSchedulerNotCreatedByDefault() {
+		appContextRunner.run(context -> assertThat(context).hasNotFailed()
+			.doesNotHaveBean(ConsulAutoConfiguration.CONSUL_TASK_SCHEDULER_NAME));
+	}
+
+	@Test
+	public void sharedTaskSchedulerUsesVirtualThreads() {
+		assumeTrue(JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE));
+		appContextRunner.withPropertyValues("spring.cloud.consul.threads.virtual=true").run(context -> {
+			assertThat(context).hasNotFailed().hasBean(ConsulAutoConfiguration.CONSUL_TASK_SCHEDULER_NAME);
+			ThreadPoolTaskScheduler taskScheduler = context
+				.getBean(ConsulAutoConfiguration.CONSUL_TASK_SCHEDULER_NAME, ThreadPoolTaskScheduler.class);
+			CompletableFuture<Thread> thread = new CompletableFuture<>();
+			taskScheduler.schedule(() -> thread.complete(Thread.currentThread()), Instant.now());
+			// virtual threads are always daemon threads, the pool's platform threads are not
+			assertThat(thread.get(5, TimeUnit.SECONDS).getName()).startsWith("consul-");
+			assertThat(thread.get().isDaemon()).isTrue();
+		});
+	}
+
 }
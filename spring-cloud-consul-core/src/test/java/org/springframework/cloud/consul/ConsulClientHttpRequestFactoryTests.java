@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+import org.springframework.boot.http.client.HttpClientSettings;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link ConsulClientHttpRequestFactory}.
+ */
+public class ConsulClientHttpRequestFactoryTests {
+
+	@Test
+	public void blockingQueriesAreDetected() {
+		assertThat(ConsulClientHttpRequestFactory
+			.isBlockingQuery(URI.create("http://localhost:8500/v1/kv/config/app/?recurse&wait=55s&index=12"))).isTrue();
+		assertThat(ConsulClientHttpRequestFactory
+			.isBlockingQuery(URI.create("http://localhost:8500/v1/catalog/services?index=12"))).isTrue();
+		assertThat(ConsulClientHttpRequestFactory
+			.isBlockingQuery(URI.create("http://localhost:8500/v1/health/service/app?passing=true"))).isFalse();
+		assertThat(ConsulClientHttpRequestFactory
+			.isBlockingQuery(URI.create("http://localhost:8500/v1/kv/index?recurse"))).isFalse();
+		assertThat(ConsulClientHttpRequestFactory.isBlockingQuery(URI.create("http://localhost:8500/v1/status/leader")))
+			.isFalse();
+	}
+
+	@Test
+	public void requestsAreRoutedToTheirPool() throws Exception {
+		ClientHttpRequestFactory requestFactory = mock(ClientHttpRequestFactory.class);
+		ClientHttpRequestFactory blockingQueryRequestFactory = mock(ClientHttpRequestFactory.class);
+		ConsulClientHttpRequestFactory factory = new ConsulClientHttpRequestFactory(requestFactory,
+				blockingQueryRequestFactory);
+
+		URI watch = URI.create("http://localhost:8500/v1/kv/config/app/?recurse&wait=55s&index=12");
+		factory.createRequest(watch, HttpMethod.GET);
+		verify(blockingQueryRequestFactory).createRequest(watch, HttpMethod.GET);
+		verifyNoInteractions(requestFactory);
+
+		URI heartbeat = URI.create("http://localhost:8500/v1/agent/check/pass/service:app");
+		factory.createRequest(heartbeat, HttpMethod.PUT);
+		verify(requestFactory).createRequest(heartbeat, HttpMethod.PUT);
+	}
+
+	@Test
+	public void pooledTransportUsesHttpComponents() throws Exception {
+		ConsulClientHttpRequestFactory factory = ConsulClientHttpRequestFactory.create(HttpClientSettings.defaults(),
+				new ConsulProperties.Http());
+		try {
+			assertThat(factory.createRequest(URI.create("http://localhost:8500/v1/status/leader"), HttpMethod.GET))
+				.isNotNull();
+			Object requestFactory = ReflectionTestUtils.getField(factory, "requestFactory");
+			Object blockingQueryRequestFactory = ReflectionTestUtils.getField(factory, "blockingQueryRequestFactory");
+			assertThat(requestFactory).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+			assertThat(blockingQueryRequestFactory).isInstanceOf(HttpComponentsClientHttpRequestFactory.class)
+				.isNotSameAs(requestFactory);
+		}
+		finally {
+			factory.destroy();
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+/**
+ * Tests for {@link ConsulClientMetrics}.
+ */
+public class ConsulClientMetricsTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final ConsulClientMetrics metrics = new ConsulClientMetrics();
+
+	@Before
+	public void bind() {
+		this.metrics.bindTo(this.registry);
+	}
+
+	@Test
+	public void endpointsAreNormalized() {
+		assertThat(ConsulClientMetrics.getEndpoint("/v1/kv/config/app/")).isEqualTo("/v1/kv");
+		assertThat(ConsulClientMetrics.getEndpoint("/v1/health/service/payments")).isEqualTo("/v1/health/service");
+		assertThat(ConsulClientMetrics.getEndpoint("/v1/catalog/services")).isEqualTo("/v1/catalog/services");
+		assertThat(ConsulClientMetrics.getEndpoint("/v1/agent/check/pass/service:app"))
+			.isEqualTo("/v1/agent/check/pass");
+		assertThat(ConsulClientMetrics.getEndpoint("/v1/agent/services")).isEqualTo("/v1/agent/services");
+		assertThat(ConsulClientMetrics.getEndpoint("/consul/proxy/v1/status/leader")).isEqualTo("/v1/status/leader");
+		assertThat(ConsulClientMetrics.getEndpoint("/")).isEqualTo("UNKNOWN");
+	}
+
+	@Test
+	public void callIsTimedAndAgentHeadersAreExported() throws IOException {
+		MockClientHttpResponse response = new MockClientHttpResponse("[1,2,3]".getBytes(StandardCharsets.UTF_8),
+				HttpStatus.OK);
+		response.getHeaders().set("X-Consul-Lastcontact", "15");
+		response.getHeaders().set("X-Consul-Knownleader", "true");
+
+		try (ClientHttpResponse result = intercept("/v1/health/service/payments?passing=true", response)) {
+			StreamUtils.copyToByteArray(result.getBody());
+		}
+
+		assertThat(this.registry.get("consul.client.requests")
+			.tag("endpoint", "/v1/health/service")
+			.tag("method", "GET")
+			.tag("status", "200")
+			.tag("blocking", "false")
+			.timer()
+			.count()).isEqualTo(1);
+		assertThat(this.registry.get("consul.client.response.size")
+			.tag("endpoint", "/v1/health/service")
+			.summary()
+			.totalAmount()).isEqualTo(7);
+		assertThat(this.registry.get("consul.agent.last-contact").timeGauge().value(TimeUnit.MILLISECONDS))
+			.isEqualTo(15);
+		assertThat(this.registry.get("consul.agent.known-leader").gauge().value()).isEqualTo(1);
+		assertThat(this.registry.get("consul.client.requests.active").tag("blocking", "false").gauge().value())
+			.isZero();
+	}
+
+	@Test
+	public void blockingQueryWakeupsAreCounted() throws IOException {
+		intercept("/v1/kv/config/app/?recurse&wait=55s&index=10", indexResponse("11")).close();
+		intercept("/v1/kv/config/app/?recurse&wait=55s&index=11", indexResponse("11")).close();
+		intercept("/v1/kv/config/app/?recurse&wait=55s&index=11", indexResponse("3")).close();
+
+		assertThat(wakeups("changed")).isEqualTo(1);
+		assertThat(wakeups("unchanged")).isEqualTo(1);
+		assertThat(wakeups("reset")).isEqualTo(1);
+		assertThat(this.registry.get("consul.watch.time-since-last-change").tag("endpoint", "/v1/kv").timeGauge())
+			.isNotNull();
+		assertThat(this.registry.get("consul.client.requests").tag("blocking", "true").timer().count())
+			.isEqualTo(3);
+	}
+
+	@Test
+	public void agentCacheResultsAreCounted() throws IOException {
+		MockClientHttpResponse hit = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+		hit.getHeaders().set("X-Cache", "HIT");
+		hit.getHeaders().set("Age", "3");
+		MockClientHttpResponse miss = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+		miss.getHeaders().set("X-Cache", "MISS");
+
+		intercept("/v1/health/service/payments?cached", hit).close();
+		intercept("/v1/health/service/payments?cached", miss).close();
+		intercept("/v1/health/service/payments", indexResponse("1")).close();
+
+		assertThat(this.registry.get("consul.agent.cache.requests").tag("result", "hit").counter().count())
+			.isEqualTo(1);
+		assertThat(this.registry.get("consul.agent.cache.requests").tag("result", "miss").counter().count())
+			.isEqualTo(1);
+	}
+
+	@Test
+	public void failedCallIsTimed() {
+		URI uri = URI.create("http://localhost:8500/v1/status/leader");
+		ClientHttpRequestExecution execution = (request, body) -> {
+			throw new IOException("connection refused");
+		};
+
+		assertThatIOException()
+			.isThrownBy(() -> this.metrics.intercept(new MockClientHttpRequest(HttpMethod.GET, uri), new byte[0],
+					execution));
+		assertThat(this.registry.get("consul.client.requests").tag("status", "IO_ERROR").timer().count())
+			.isEqualTo(1);
+	}
+
+	private ClientHttpResponse intercept(String pathAndQuery, ClientHttpResponse response) throws IOException {
+		URI uri = URI.create("http://localhost:8500" + pathAndQuery);
+		return this.metrics.intercept(new MockClientHttpRequest(HttpMethod.GET, uri), new byte[0],
+				(request, body) -> response);
+	}
+
+	private MockClientHttpResponse indexResponse(String index) {
+		MockClientHttpResponse response = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+		response.getHeaders().set("X-Consul-Index", index);
+		return response;
+	}
+
+	private double wakeups(String result) {
+		return this.registry.get("consul.watch.wakeups")
+			.tag("endpoint", "/v1/kv")
+			.tag("result", result)
+			.counter()
+			.count();
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import org.springframework.cloud.consul.model.http.health.Check;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link HealthServiceDecoder}.
+ */
+public class HealthServiceDecoderTests {
+
+	private static final String JSON = "[" + instance("payments-1", "10.0.0.1") + ","
+			+ instance("payments-2", "10.0.0.2") + "]";
+
+	private final HealthServiceDecoder decoder = new HealthServiceDecoder();
+
+	@Test
+	public void fieldsUsedByDiscoveryAreDecoded() {
+		HealthServices healthServices = this.decoder.decode(bytes(JSON));
+
+		assertThat(healthServices).hasSize(2);
+		HealthService healthService = healthServices.get(0);
+		assertThat(healthService.getNode().getNode()).isEqualTo("node-payments-1");
+		assertThat(healthService.getNode().getAddress()).isEqualTo("10.0.0.1");
+		assertThat(healthService.getNode().getDatacenter()).isEqualTo("dc1");
+		assertThat(healthService.getService().getId()).isEqualTo("payments-1");
+		assertThat(healthService.getService().getService()).isEqualTo("payments");
+		assertThat(healthService.getService().getAddress()).isEqualTo("10.0.0.1");
+		assertThat(healthService.getService().getPort()).isEqualTo(8080);
+		assertThat(healthService.getService().getTags()).containsExactly("secure=false", "v1");
+		assertThat(healthService.getService().getMeta()).containsEntry("zone", "eu-1").hasSize(1);
+	}
+
+	@Test
+	public void checksAndNodeDetailsAreSkippedByDefault() {
+		HealthService healthService = this.decoder.decode(bytes(JSON)).get(0);
+
+		assertThat(healthService.getChecks()).isNull();
+		assertThat(healthService.getNode().getMeta()).isNull();
+		assertThat(healthService.getNode().getTaggedAddresses()).isNull();
+		assertThat(healthService.getNode().getCreateIndex()).isNull();
+	}
+
+	@Test
+	public void checksAreDecodedWhenIncluded() {
+		this.decoder.setIncludeChecks(true);
+		this.decoder.setIncludeNodeMeta(true);
+		this.decoder.setIncludeTaggedAddresses(true);
+
+		HealthService healthService = this.decoder.decode(bytes(JSON)).get(0);
+
+		assertThat(healthService.getChecks()).singleElement().satisfies(check -> {
+			assertThat(check.getCheckId()).isEqualTo("service:payments-1");
+			assertThat(check.getStatus()).isEqualTo(Check.CheckStatus.PASSING);
+			assertThat(check.getServiceId()).isEqualTo("payments-1");
+			assertThat(check.getOutput()).isNull();
+		});
+		assertThat(healthService.getNode().getMeta()).containsEntry("rack", "r1");
+		assertThat(healthService.getNode().getTaggedAddresses()).containsEntry("wan", "1.2.3.4");
+	}
+
+	@Test
+	public void checkOutputIsDecodedWhenIncluded() {
+		this.decoder.setIncludeChecks(true);
+		this.decoder.setIncludeCheckOutput(true);
+
+		Check check = this.decoder.decode(bytes(JSON)).get(0).getChecks().get(0);
+
+		assertThat(check.getOutput()).isEqualTo("HTTP GET /health: 200 OK");
+	}
+
+	@Test
+	public void decodedServicesMatchDataBinding() {
+		List<HealthService> dataBound = JsonMapper.builder()
+			.build()
+			.readValue(JSON, new TypeReference<List<HealthService>>() {
+			});
+
+		List<HealthService> decoded = this.decoder.decode(bytes(JSON));
+
+		assertThat(decoded).extracting(HealthService::getService)
+			.usingRecursiveFieldByFieldElementComparatorIgnoringFields("enableTagOverride", "createIndex",
+					"modifyIndex")
+			.containsExactlyElementsOf(dataBound.stream().map(HealthService::getService).toList());
+	}
+
+	@Test
+	public void repeatedValuesAreShared() {
+		HealthServices healthServices = this.decoder.decode(bytes(JSON));
+
+		HealthService.Service first = healthServices.get(0).getService();
+		HealthService.Service second = healthServices.get(1).getService();
+		assertThat(second.getService()).isSameAs(first.getService());
+		assertThat(second.getTags()).isSameAs(first.getTags());
+	}
+
+	@Test
+	public void emptyAndNullResponsesAreEmpty() {
+		assertThat(this.decoder.decode(bytes("[]"))).isEmpty();
+		assertThat(this.decoder.decode(bytes("null"))).isEmpty();
+		assertThat(this.decoder.decode(new byte[0])).isEmpty();
+	}
+
+	@Test
+	public void responseThatIsNotAnArrayFails() {
+		assertThatExceptionOfType(ConsulException.class).isThrownBy(() -> this.decoder.decode(bytes("{}")))
+			.withMessageContaining("START_ARRAY");
+	}
+
+	private static byte[] bytes(String json) {
+		return json.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String instance(String id, String address) {
+		return """
+				{"Node":{"ID":"4b0b2c5e","Node":"node-%1$s","Address":"%2$s","Datacenter":"dc1",
+				"TaggedAddresses":{"lan":"%2$s","wan":"1.2.3.4"},"Meta":{"rack":"r1"},"CreateIndex":5,"ModifyIndex":6},
+				"Service":{"ID":"%1$s","Service":"payments","Tags":["secure=false","v1"],"Address":"%2$s",
+				"Meta":{"zone":"eu-1"},"Port":8080,"Weights":{"Passing":1,"Warning":1},"EnableTagOverride":false,
+				"Proxy":{"Expose":{}},"Connect":{},"CreateIndex":7,"ModifyIndex":8},
+				"Checks":[{"Node":"node-%1$s","CheckID":"service:%1$s","Name":"Service check","Status":"passing",
+				"Notes":"","Output":"HTTP GET /health: 200 OK","ServiceID":"%1$s","ServiceName":"payments",
+				"ServiceTags":["v1"],"Definition":{"Interval":"10s"},"CreateIndex":9,"ModifyIndex":9}]}
+				""".formatted(id, address);
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the query parameters the {@link ConsulClient} sends to an agent.
+ */
+public class QueryParamsArgumentResolverTests {
+
+	private final List<URI> requests = new CopyOnWriteArrayList<>();
+
+	private HttpServer server;
+
+	private ConsulClient client;
+
+	@Before
+	public void startServer() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/", this::handle);
+		this.server.start();
+		ConsulProperties properties = new ConsulProperties();
+		properties.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+		properties.setPort(this.server.getAddress().getPort());
+		this.client = ConsulAutoConfiguration.createNewConsulClient(properties);
+	}
+
+	@After
+	public void stopServer() {
+		this.server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		this.requests.add(exchange.getRequestURI());
+		byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.getResponseHeaders().add("X-Consul-Index", "7");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	@Test
+	public void filterIsEncoded() {
+		String filter = "Service.Meta.zone == \"eu-1\" and \"primary\" in Service.Tags";
+		ResponseEntity<List<HealthService>> response = this.client.getHealthServices("payments", true, null, null,
+				QueryParams.DEFAULT.withFilter(filter));
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(this.requests).hasSize(1);
+		URI request = this.requests.get(0);
+		assertThat(request.getPath()).isEqualTo("/v1/health/service/payments");
+		assertThat(request.getRawQuery()).doesNotContain(" ", "\"");
+		assertThat(request.getQuery()).contains("filter=" + filter);
+	}
+
+}
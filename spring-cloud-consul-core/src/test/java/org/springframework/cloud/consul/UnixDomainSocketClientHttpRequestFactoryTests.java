@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link UnixDomainSocketClientHttpRequestFactory}.
+ */
+public class UnixDomainSocketClientHttpRequestFactoryTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<String> requests = new CopyOnWriteArrayList<>();
+
+	private Path socket;
+
+	private ServerSocketChannel server;
+
+	private Thread serverThread;
+
+	private volatile Function<String, String> handler;
+
+	@Before
+	public void startServer() throws IOException {
+		this.socket = this.folder.getRoot().toPath().resolve("consul.sock");
+		this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		this.server.bind(UnixDomainSocketAddress.of(this.socket));
+		this.serverThread = new Thread(this::serve, "stub-consul-agent");
+		this.serverThread.setDaemon(true);
+		this.serverThread.start();
+	}
+
+	@After
+	public void stopServer() throws IOException {
+		this.server.close();
+	}
+
+	@Test
+	public void requestIsSentOverTheSocket() throws Exception {
+		this.handler = request -> response("200 OK", "X-Consul-Index: 42\r\n", "\"127.0.0.1:8300\"");
+		UnixDomainSocketClientHttpRequestFactory factory = new UnixDomainSocketClientHttpRequestFactory(this.socket,
+				Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+		ClientHttpRequest request = factory.createRequest(URI.create("http://localhost/v1/kv/app?recurse&dc=dc1"),
+				HttpMethod.GET);
+		request.getHeaders().set("X-Consul-Token", "secret");
+		try (ClientHttpResponse response = request.execute()) {
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(response.getHeaders().getFirst("X-Consul-Index")).isEqualTo("42");
+			assertThat(StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8))
+				.isEqualTo("\"127.0.0.1:8300\"");
+		}
+		assertThat(this.requests).hasSize(1);
+		assertThat(this.requests.get(0)).startsWith("GET /v1/kv/app?recurse&dc=dc1 HTTP/1.1\r\n")
+			.contains("Host: localhost\r\n")
+			.contains("X-Consul-Token: secret\r\n");
+	}
+
+	@Test
+	public void chunkedResponseIsDecoded() throws Exception {
+		this.handler = request -> "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+				+ "4\r\n[\"a\"\r\n5\r\n,\"b\"]\r\n0\r\n\r\n";
+		UnixDomainSocketClientHttpRequestFactory factory = new UnixDomainSocketClientHttpRequestFactory(this.socket,
+				Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+		ClientHttpRequest request = factory.createRequest(URI.create("http://localhost/v1/catalog/services"),
+				HttpMethod.GET);
+		try (ClientHttpResponse response = request.execute()) {
+			assertThat(StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8)).isEqualTo("[\"a\",\"b\"]");
+		}
+	}
+
+	@Test
+	public void readTimesOutWhenAgentDoesNotAnswer() {
+		this.handler = request -> null;
+		UnixDomainSocketClientHttpRequestFactory factory = new UnixDomainSocketClientHttpRequestFactory(this.socket,
+				Duration.ofMillis(200), Duration.ofSeconds(30));
+
+		assertThatExceptionOfType(SocketTimeoutException.class).isThrownBy(() -> factory
+			.createRequest(URI.create("http://localhost/v1/status/leader"), HttpMethod.GET)
+			.execute());
+	}
+
+	@Test
+	public void consulClientUsesSocketPath() {
+		this.handler = request -> response("200 OK", "Content-Type: application/json\r\n", "\"127.0.0.1:8300\"");
+		ConsulProperties properties = new ConsulProperties();
+		properties.setScheme("unix");
+		properties.setSocketPath("unix://" + this.socket);
+
+		ConsulClient client = ConsulAutoConfiguration.createNewConsulClient(properties);
+		ResponseEntity<String> leader = client.getStatusLeader();
+
+		assertThat(leader.getBody()).isEqualTo("\"127.0.0.1:8300\"");
+		assertThat(this.requests).hasSize(1);
+		assertThat(this.requests.get(0)).startsWith("GET /v1/status/leader HTTP/1.1\r\n");
+	}
+
+	@Test
+	public void unixSchemeRequiresSocketPath() {
+		ConsulProperties properties = new ConsulProperties();
+		properties.setScheme("unix");
+
+		assertThatExceptionOfType(IllegalStateException.class)
+			.isThrownBy(() -> ConsulAutoConfiguration.getUnixSocketPath(properties));
+	}
+
+	@Test
+	public void reactiveClientUsesHostAndPortWithSocketPath() {
+		ConsulProperties properties = new ConsulProperties();
+		properties.setScheme("unix");
+		properties.setSocketPath("unix://" + this.socket);
+		properties.setHost("consul.local");
+		properties.setPort(8600);
+
+		assertThat(ConsulAutoConfiguration.createConsulClientBaseUrl(properties)).isEqualTo("http://localhost");
+		assertThat(ConsulAutoConfiguration.createConsulClientTcpBaseUrl(properties))
+			.isEqualTo("http://consul.local:8600");
+	}
+
+	private static String response(String status, String headers, String body) {
+		return "HTTP/1.1 " + status + "\r\n" + headers + "Content-Length: "
+				+ body.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + body;
+	}
+
+	private void serve() {
+		while (this.server.isOpen()) {
+			try (SocketChannel channel = this.server.accept()) {
+				String request = readRequest(channel);
+				this.requests.add(request);
+				String response = this.handler.apply(request);
+				if (response == null) {
+					// keep the connection open without answering until the server stops
+					while (this.server.isOpen()) {
+						Thread.sleep(50);
+					}
+					return;
+				}
+				ByteBuffer buffer = ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8));
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			catch (IOException ex) {
+				return;
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private String readRequest(SocketChannel channel) throws IOException {
+		ByteArrayOutputStream request = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		while (!request.toString(StandardCharsets.ISO_8859_1).contains("\r\n\r\n")) {
+			buffer.clear();
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+			request.write(buffer.array(), 0, buffer.position());
+		}
+		return request.toString(StandardCharsets.ISO_8859_1);
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.coordinate;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link Coordinate}.
+ */
+public class CoordinateTests {
+
+	@Test
+	public void distanceIsEuclideanPlusHeights() {
+		Coordinate a = coordinate(0, 0, 0.0001, 0);
+		Coordinate b = coordinate(0.003, 0.004, 0.0001, 0);
+
+		assertThat(a.distanceTo(b)).isEqualTo(Duration.ofNanos(5_200_000));
+		assertThat(b.distanceTo(a)).isEqualTo(a.distanceTo(b));
+	}
+
+	@Test
+	public void adjustmentsAreApplied() {
+		Coordinate a = coordinate(0, 0, 0.0001, -0.0001);
+		Coordinate b = coordinate(0.003, 0.004, 0.0001, -0.0001);
+
+		assertThat(a.distanceTo(b)).isEqualTo(Duration.ofNanos(5_000_000));
+	}
+
+	@Test
+	public void adjustmentsThatMakeTheDistanceNegativeAreIgnored() {
+		Coordinate a = coordinate(0, 0, 0, -0.01);
+		Coordinate b = coordinate(0.003, 0.004, 0, -0.01);
+
+		assertThat(a.distanceTo(b)).isEqualTo(Duration.ofNanos(5_000_000));
+	}
+
+	@Test
+	public void coordinatesOfDifferentDimensionsHaveNoDistance() {
+		Coordinate a = coordinate(0, 0, 0, 0);
+		Coordinate b = new Coordinate();
+		b.setVec(List.of(0.0, 0.0, 0.0));
+
+		assertThat(a.distanceTo(b)).isNull();
+		assertThat(a.distanceTo(new Coordinate())).isNull();
+	}
+
+	private static Coordinate coordinate(double x, double y, double height, double adjustment) {
+		Coordinate coordinate = new Coordinate();
+		coordinate.setVec(List.of(x, y));
+		coordinate.setHeight(height);
+		coordinate.setAdjustment(adjustment);
+		return coordinate;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.model.http.query;
+
+import java.time.Duration;
+
+import org.junit.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PreparedQueryExecuteResponse}.
+ */
+public class PreparedQueryExecuteResponseTests {
+
+	@Test
+	public void responseIsDecoded() {
+		String json = """
+				{"Service":"payments","Nodes":[{"Node":{"Node":"node1","Address":"10.0.0.1"},
+				"Service":{"ID":"payments-1","Service":"payments","Port":8080},"Checks":[]}],
+				"DNS":{"TTL":"10s"},"Datacenter":"dc2","Failovers":1}
+				""";
+
+		PreparedQueryExecuteResponse response = JsonMapper.builder()
+			.build()
+			.readValue(json, PreparedQueryExecuteResponse.class);
+
+		assertThat(response.getService()).isEqualTo("payments");
+		assertThat(response.getNodes()).singleElement()
+			.satisfies(node -> assertThat(node.getService().getId()).isEqualTo("payments-1"));
+		assertThat(response.getDatacenter()).isEqualTo("dc2");
+		assertThat(response.getFailovers()).isEqualTo(1);
+		assertThat(response.getDns().getTtlDuration()).isEqualTo(Duration.ofSeconds(10));
+	}
+
+	@Test
+	public void goDurationsAreParsed() {
+		assertThat(ttl("1m30s")).isEqualTo(Duration.ofSeconds(90));
+		assertThat(ttl("1h")).isEqualTo(Duration.ofHours(1));
+		assertThat(ttl("1.5s")).isEqualTo(Duration.ofMillis(1500));
+		assertThat(ttl("250ms")).isEqualTo(Duration.ofMillis(250));
+		assertThat(ttl("5\u00b5s")).isEqualTo(Duration.ofNanos(5000));
+		assertThat(ttl("0")).isEqualTo(Duration.ZERO);
+	}
+
+	@Test
+	public void missingOrInvalidTtlsAreNull() {
+		assertThat(ttl(null)).isNull();
+		assertThat(ttl("")).isNull();
+		assertThat(ttl("10")).isNull();
+		assertThat(ttl("10s later")).isNull();
+	}
+
+	private static Duration ttl(String ttl) {
+		PreparedQueryExecuteResponse.Dns dns = new PreparedQueryExecuteResponse.Dns();
+		dns.setTtl(ttl);
+		return dns.getTtlDuration();
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link ConsulCatalogWatch} when services were added to or removed
+ * from the catalog, or the tags of a service changed. Catalog updates that leave the
+ * services and their tags as they were, such as instances moving or checks changing
+ * state, do not publish it.
+ */
+public class CatalogServicesChangedEvent extends ApplicationEvent {
+
+	private final long index;
+
+	private final Map<String, List<String>> services;
+
+	private final Set<String> added;
+
+	private final Set<String> removed;
+
+	private final Set<String> retagged;
+
+	/**
+	 * Create a new ApplicationEvent.
+	 * @param source the object on which the event initially occurred (never {@code null})
+	 * @param index the catalog index of the change
+	 * @param services the services in the catalog with their tags
+	 * @param added the names of the services that were added
+	 * @param removed the names of the services that were removed
+	 * @param retagged the names of the services whose tags changed
+	 */
+	public CatalogServicesChangedEvent(Object source, long index, Map<String, List<String>> services,
+			Set<String> added, Set<String> removed, Set<String> retagged) {
+		super(source);
+		this.index = index;
+		this.services = Collections.unmodifiableMap(services);
+		this.added = Collections.unmodifiableSet(added);
+		this.removed = Collections.unmodifiableSet(removed);
+		this.retagged = Collections.unmodifiableSet(retagged);
+	}
+
+	/**
+	 * Compares two versions of the catalog services.
+	 * @param source the object on which the event initially occurred
+	 * @param index the catalog index of the current services
+	 * @param previous the services before, empty for the first query
+	 * @param current the services now
+	 * @return the event, or {@code null} if neither the services nor their tags changed
+	 */
+	static CatalogServicesChangedEvent between(Object source, long index, Map<String, List<String>> previous,
+			Map<String, List<String>> current) {
+		Set<String> added = new TreeSet<>();
+		Set<String> retagged = new TreeSet<>();
+		for (Map.Entry<String, List<String>> service : current.entrySet()) {
+			if (!previous.containsKey(service.getKey())) {
+				added.add(service.getKey());
+			}
+			else if (!sameTags(previous.get(service.getKey()), service.getValue())) {
+				retagged.add(service.getKey());
+			}
+		}
+		Set<String> removed = new TreeSet<>(previous.keySet());
+		removed.removeAll(current.keySet());
+		if (added.isEmpty() && removed.isEmpty() && retagged.isEmpty()) {
+			return null;
+		}
+		return new CatalogServicesChangedEvent(source, index, current, added, removed, retagged);
+	}
+
+	private static boolean sameTags(List<String> previous, List<String> current) {
+		if (previous == null || current == null) {
+			return Objects.equals(previous, current);
+		}
+		// the catalog merges the tags of all instances, their order carries no meaning
+		return previous.equals(current) || new HashSet<>(previous).equals(new HashSet<>(current));
+	}
+
+	public long getIndex() {
+		return this.index;
+	}
+
+	public Map<String, List<String>> getServices() {
+		return this.services;
+	}
+
+	public Set<String> getAdded() {
+		return this.added;
+	}
+
+	public Set<String> getRemoved() {
+		return this.removed;
+	}
+
+	public Set<String> getRetagged() {
+		return this.retagged;
+	}
+
+	/**
+	 * Returns the names of all services that were added, removed or retagged.
+	 * @return the changed services
+	 */
+	public Set<String> getChanged() {
+		Set<String> changed = new TreeSet<>(this.added);
+		changed.addAll(this.removed);
+		changed.addAll(this.retagged);
+		return changed;
+	}
+
+	@Override
+	public String toString() {
+		return "CatalogServicesChangedEvent{index=" + Long.toUnsignedString(this.index) + ", added=" + this.added
+				+ ", removed=" + this.removed + ", retagged=" + this.retagged + "}";
+	}
+
+}
@@ -16,21 +16,19 @@
 
 package org.springframework.cloud.consul.discovery;
 
-import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 
-import io.micrometer.core.annotation.Timed;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.consul.BlockingQueryWatcher;
 import org.springframework.cloud.consul.ConsulClient;
 import org.springframework.cloud.consul.ConsulClient.QueryParams;
-import org.springframework.cloud.consul.model.http.ConsulHeaders;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.SmartLifecycle;
@@ -39,6 +37,12 @@ import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
+ * Watches the services in the catalog with a {@link BlockingQueryWatcher} and publishes
+ * a {@link HeartbeatEvent} carrying the catalog index whenever it moves. The catalog
+ * index moves on any catalog update, including instances changing health, so every new
+ * response is also compared with the previous one and only a change of the services or
+ * their tags publishes a {@link CatalogServicesChangedEvent} first.
+ *
  * @author Spencer Gibb
  */
 public class ConsulCatalogWatch implements ApplicationEventPublisherAware, SmartLifecycle {
@@ -49,15 +53,13 @@ public class ConsulCatalogWatch implements ApplicationEventPublisherAware, Smart
 
 	private final ConsulClient consul;
 
-	private final TaskScheduler taskScheduler;
-
-	private final AtomicReference<BigInteger> catalogServicesIndex = new AtomicReference<>();
+	private final BlockingQueryWatcher<Map<String, List<String>>> watcher;
 
 	private final AtomicBoolean running = new AtomicBoolean(false);
 
-	private ApplicationEventPublisher publisher;
+	private volatile Map<String, List<String>> services = Collections.emptyMap();
 
-	private ScheduledFuture<?> watchFuture;
+	private ApplicationEventPublisher publisher;
 
 	public ConsulCatalogWatch(ConsulDiscoveryProperties properties, ConsulClient consul) {
 		this(properties, consul, getTaskScheduler());
@@ -66,7 +68,11 @@ public class ConsulCatalogWatch implements ApplicationEventPublisherAware, Smart
 	public ConsulCatalogWatch(ConsulDiscoveryProperties properties, ConsulClient consul, TaskScheduler taskScheduler) {
 		this.properties = properties;
 		this.consul = consul;
-		this.taskScheduler = taskScheduler;
+		this.watcher = new BlockingQueryWatcher<>("catalog services", this::getCatalogServices, this::onChange,
+				taskScheduler);
+		this.watcher.setWaitTime(Duration.ofSeconds(properties.getCatalogServicesWatchTimeout()));
+		this.watcher.setDelay(Duration.ofMillis(properties.getCatalogServicesWatchDelay()));
+		this.watcher.setErrorHandler((e, firstQuery) -> log.error("Error watching Consul CatalogServices", e));
 	}
 
 	private static ThreadPoolTaskScheduler getTaskScheduler() {
@@ -94,15 +100,14 @@ public class ConsulCatalogWatch implements ApplicationEventPublisherAware, Smart
 	@Override
 	public void start() {
 		if (this.running.compareAndSet(false, true)) {
-			this.watchFuture = this.taskScheduler.scheduleWithFixedDelay(this::catalogServicesWatch,
-					this.properties.getCatalogServicesWatchDelay());
+			this.watcher.start();
 		}
 	}
 
 	@Override
 	public void stop() {
-		if (this.running.compareAndSet(true, false) && this.watchFuture != null) {
-			this.watchFuture.cancel(true);
+		if (this.running.compareAndSet(true, false)) {
+			this.watcher.stop();
 		}
 	}
 
@@ -116,30 +121,44 @@ public class ConsulCatalogWatch implements ApplicationEventPublisherAware, Smart
 		return 0;
 	}
 
-	@Timed("consul.watch-catalog-services")
+	/**
+	 * Runs one blocking query of the catalog services, unless the watch is backing off
+	 * after a failure or after queries that returned early with the same index. The watch
+	 * runs on its own once started, this is mostly useful to trigger a check by hand.
+	 */
 	public void catalogServicesWatch() {
-		try {
-			long index = -1;
-			if (this.catalogServicesIndex.get() != null) {
-				index = this.catalogServicesIndex.get().longValue();
-			}
+		this.watcher.poll();
+	}
 
-			QueryParams queryParams = new QueryParams(this.properties.getCatalogServicesWatchTimeout(), index);
-			ResponseEntity<Map<String, List<String>>> response = this.consul
-				.getCatalogServices(properties.getAclToken(), queryParams);
-			Long consulIndex = ConsulHeaders.getConsulIndex(response);
-			if (consulIndex != null) {
-				this.catalogServicesIndex.set(BigInteger.valueOf(consulIndex));
-			}
+	/**
+	 * Returns the services with their tags as of the latest catalog change.
+	 * @return the services, empty until the first query returned
+	 */
+	public Map<String, List<String>> getServices() {
+		return this.services;
+	}
+
+	private ResponseEntity<Map<String, List<String>>> getCatalogServices(QueryParams queryParams) {
+		return this.consul.getCatalogServices(this.properties.getAclToken(), queryParams);
+	}
 
-			if (log.isTraceEnabled()) {
-				log.trace("Received services update from consul: " + response.getBody() + ", index: " + consulIndex);
+	private void onChange(ResponseEntity<Map<String, List<String>>> response, long previousIndex, long newIndex) {
+		Map<String, List<String>> services = (response.getBody() != null) ? response.getBody()
+				: Collections.emptyMap();
+		CatalogServicesChangedEvent event = CatalogServicesChangedEvent.between(this, newIndex, this.services,
+				services);
+		this.services = services;
+		if (event != null) {
+			if (log.isDebugEnabled()) {
+				log.debug("Catalog services changed: " + event);
 			}
-			this.publisher.publishEvent(new HeartbeatEvent(this, consulIndex));
+			this.publisher.publishEvent(event);
 		}
-		catch (Exception e) {
-			log.error("Error watching Consul CatalogServices", e);
+		else if (log.isTraceEnabled()) {
+			log.trace("Catalog index changed to " + newIndex + " without changes to services or tags");
 		}
+		// heartbeat listeners expect one for every catalog update, as before
+		this.publisher.publishEvent(new HeartbeatEvent(this, newIndex));
 	}
 
 }
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.consul.discovery;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -29,6 +30,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import static org.springframework.cloud.consul.ConsulAutoConfiguration.CONSUL_TASK_SCHEDULER_NAME;
+
 /**
  * Auto configuration for the catalog watcher.
  *
@@ -50,11 +53,15 @@ public class ConsulCatalogWatchAutoConfiguration {
 	@Bean
 	@ConditionalOnMissingBean
 	public ConsulCatalogWatch consulCatalogWatch(ConsulDiscoveryProperties discoveryProperties,
-			ConsulClient consulClient, @Qualifier(CATALOG_WATCH_TASK_SCHEDULER_NAME) TaskScheduler taskScheduler) {
-		return new ConsulCatalogWatch(discoveryProperties, consulClient, taskScheduler);
+			ConsulClient consulClient,
+			@Qualifier(CATALOG_WATCH_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> taskScheduler,
+			@Qualifier(CONSUL_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> consulTaskScheduler) {
+		return new ConsulCatalogWatch(discoveryProperties, consulClient,
+				consulTaskScheduler.getIfAvailable(taskScheduler::getObject));
 	}
 
 	@Bean(name = CATALOG_WATCH_TASK_SCHEDULER_NAME)
+	@ConditionalOnProperty(name = "spring.cloud.consul.threads.virtual", havingValue = "false", matchIfMissing = true)
 	public TaskScheduler catalogWatchTaskScheduler() {
 		return new ThreadPoolTaskScheduler();
 	}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Fails over to the instances of other datacenters when too few instances of a service
+ * are in the local datacenter.
+ * <p>
+ * The remote datacenters are queried in parallel and waited for up to a deadline. Their
+ * instances are cached per datacenter, so that a service that stays below the threshold
+ * only crosses the WAN when its cached instances expire. Queries that miss the deadline
+ * still update the cache when they complete, and a failed query leaves the previous
+ * instances cached.
+ */
+public class ConsulDatacenterFailover implements DisposableBean {
+
+	private static final Log log = LogFactory.getLog(ConsulDatacenterFailover.class);
+
+	private final ConsulClient client;
+
+	private final ConsulDiscoveryProperties properties;
+
+	private final Executor executor;
+
+	private final ThreadPoolTaskExecutor ownExecutor;
+
+	// keyed by service id and datacenter
+
+	private final Map<String, CachedInstances> cache = new ConcurrentHashMap<>();
+
+	private final Map<String, CompletableFuture<List<ServiceInstance>>> pending = new ConcurrentHashMap<>();
+
+	public ConsulDatacenterFailover(ConsulClient client, ConsulDiscoveryProperties properties) {
+		this(client, properties, null);
+	}
+
+	/**
+	 * Creates a failover that runs its queries on the given executor.
+	 * @param client the consul client
+	 * @param properties the discovery properties
+	 * @param executor the executor of the remote queries, or {@code null} to create a
+	 * pool that is shut down with the failover
+	 */
+	public ConsulDatacenterFailover(ConsulClient client, ConsulDiscoveryProperties properties, Executor executor) {
+		this.client = client;
+		this.properties = properties;
+		this.ownExecutor = (executor != null) ? null : getTaskExecutor();
+		this.executor = (executor != null) ? executor : this.ownExecutor;
+	}
+
+	private static ThreadPoolTaskExecutor getTaskExecutor() {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(4);
+		taskExecutor.setThreadNamePrefix("consul-failover-");
+		taskExecutor.initialize();
+		return taskExecutor;
+	}
+
+	/**
+	 * Adds the instances of the remote datacenters, in the configured order, after the
+	 * local instances until there are at least {@code failover.min-instances} of them.
+	 * @param serviceId the service id
+	 * @param localInstances the instances in the local datacenter
+	 * @return the local instances, followed by remote instances if there are too few
+	 */
+	public List<ServiceInstance> getInstances(String serviceId, List<ServiceInstance> localInstances) {
+		ConsulDiscoveryProperties.Failover failover = this.properties.getFailover();
+		if (localInstances.size() >= failover.getMinInstances() || failover.getDatacenters().isEmpty()) {
+			return localInstances;
+		}
+		Map<String, List<ServiceInstance>> remote = getRemoteInstances(serviceId, failover);
+		List<ServiceInstance> instances = new ArrayList<>(localInstances);
+		for (Map.Entry<String, List<ServiceInstance>> datacenter : remote.entrySet()) {
+			if (instances.size() >= failover.getMinInstances()) {
+				break;
+			}
+			if (log.isDebugEnabled() && !datacenter.getValue().isEmpty()) {
+				log.debug("Failing over " + serviceId + " to " + datacenter.getValue().size()
+						+ " instances in datacenter " + datacenter.getKey());
+			}
+			instances.addAll(datacenter.getValue());
+		}
+		return instances;
+	}
+
+	private Map<String, List<ServiceInstance>> getRemoteInstances(String serviceId,
+			ConsulDiscoveryProperties.Failover failover) {
+		Map<String, CompletableFuture<List<ServiceInstance>>> queries = new LinkedHashMap<>();
+		for (String datacenter : failover.getDatacenters()) {
+			CachedInstances cached = this.cache.get(key(serviceId, datacenter));
+			if (cached != null && !cached.isExpired(failover.getCacheTtl())) {
+				queries.put(datacenter, CompletableFuture.completedFuture(cached.instances));
+			}
+			else {
+				queries.put(datacenter, query(serviceId, datacenter));
+			}
+		}
+		try {
+			CompletableFuture.allOf(queries.values().toArray(new CompletableFuture<?>[0]))
+				.get(failover.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		catch (TimeoutException | ExecutionException ex) {
+			// answered below from what completed in time and from the cache
+		}
+		Map<String, List<ServiceInstance>> remote = new LinkedHashMap<>();
+		queries.forEach((datacenter, query) -> {
+			List<ServiceInstance> instances = query.isDone() && !query.isCompletedExceptionally() ? query.join()
+					: null;
+			if (instances == null) {
+				// a stale answer is better than none while the datacenter is slow
+				CachedInstances cached = this.cache.get(key(serviceId, datacenter));
+				instances = (cached != null) ? cached.instances : Collections.emptyList();
+			}
+			remote.put(datacenter, instances);
+		});
+		return remote;
+	}
+
+	private static String key(String serviceId, String datacenter) {
+		return serviceId + "@" + datacenter;
+	}
+
+	private CompletableFuture<List<ServiceInstance>> query(String serviceId, String datacenter) {
+		String key = key(serviceId, datacenter);
+		CompletableFuture<List<ServiceInstance>> query = this.pending.get(key);
+		if (query != null) {
+			// one query at a time, however many lookups are waiting for the datacenter
+			return query;
+		}
+		CompletableFuture<List<ServiceInstance>> started = new CompletableFuture<>();
+		query = this.pending.putIfAbsent(key, started);
+		if (query != null) {
+			return query;
+		}
+		this.executor.execute(() -> {
+			try {
+				started.complete(fetch(serviceId, datacenter));
+			}
+			catch (RuntimeException ex) {
+				started.completeExceptionally(ex);
+			}
+			finally {
+				this.pending.remove(key, started);
+			}
+		});
+		return started;
+	}
+
+	private List<ServiceInstance> fetch(String serviceId, String datacenter) {
+		try {
+			String[] queryTags = this.properties.getQueryTagsForService(serviceId);
+			List<String> tags = (queryTags != null) ? Arrays.asList(queryTags) : null;
+			QueryParams queryParams = new QueryParams(datacenter,
+					ConsulDiscoveryClient.getConsistencyMode(this.properties))
+				.withFilter(this.properties.getQueryFilterForService(serviceId));
+			queryParams = ConsulDiscoveryClient.withAgentCache(queryParams, this.properties);
+			ResponseEntity<List<HealthService>> response = ConsulDiscoveryClient.getHealthServices(this.client,
+					this.properties, serviceId, tags, queryParams);
+			List<ServiceInstance> instances = new ArrayList<>();
+			if (response.getBody() != null) {
+				for (HealthService healthService : response.getBody()) {
+					instances.add(new ConsulServiceInstance(healthService, serviceId));
+				}
+			}
+			CachedInstances cached = new CachedInstances(Collections.unmodifiableList(instances));
+			this.cache.put(key(serviceId, datacenter), cached);
+			return cached.instances;
+		}
+		catch (RuntimeException ex) {
+			log.warn("Error querying instances of '" + serviceId + "' in datacenter " + datacenter + ": "
+					+ ex.getMessage());
+			throw ex;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.ownExecutor != null) {
+			this.ownExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * The instances of a service in one remote datacenter.
+	 */
+	private static final class CachedInstances {
+
+		private final List<ServiceInstance> instances;
+
+		private final long fetchedAt = System.nanoTime();
+
+		private CachedInstances(List<ServiceInstance> instances) {
+			this.instances = instances;
+		}
+
+		private boolean isExpired(Duration ttl) {
+			return System.nanoTime() - this.fetchedAt > ttl.toNanos();
+		}
+
+	}
+
+}
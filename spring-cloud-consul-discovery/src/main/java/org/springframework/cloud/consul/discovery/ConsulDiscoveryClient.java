@@ -27,6 +27,7 @@ import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.consul.ConsulClient;
 import org.springframework.cloud.consul.ConsulClient.QueryParams;
 import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
 import org.springframework.http.ResponseEntity;
 
 /**
@@ -41,9 +42,53 @@ public class ConsulDiscoveryClient implements DiscoveryClient {
 
 	private final ConsulDiscoveryProperties properties;
 
+	private final ConsulServiceInstanceCache instanceCache;
+
+	private final ConsulHealthView healthView;
+
+	private final ConsulNodeCoordinates coordinates;
+
+	private final ConsulZoneAffinity zoneAffinity;
+
+	private final ConsulDatacenterFailover failover;
+
+	private final ConsulPreparedQueries preparedQueries;
+
+	/**
+	 * Creates a discovery client that queries consul for every lookup, with prepared
+	 * queries and zone affinity as configured in the properties.
+	 * @param client the consul client
+	 * @param properties the discovery properties
+	 */
 	public ConsulDiscoveryClient(ConsulClient client, ConsulDiscoveryProperties properties) {
+		this(client, properties, null, null, null, null, new ConsulPreparedQueries(client, properties),
+				new ConsulZoneAffinity(properties));
+	}
+
+	/**
+	 * Creates a discovery client with the given collaborators, each of them may be
+	 * {@code null} to leave its feature out.
+	 * @param client the consul client
+	 * @param properties the discovery properties
+	 * @param instanceCache the instance cache to answer lookups from
+	 * @param healthView the health view to answer lookups from once ready
+	 * @param coordinates the coordinates to sort instances by
+	 * @param failover the failover to other datacenters
+	 * @param preparedQueries the prepared queries of services mapped to one
+	 * @param zoneAffinity the selection of instances in the local zone
+	 */
+	public ConsulDiscoveryClient(ConsulClient client, ConsulDiscoveryProperties properties,
+			ConsulServiceInstanceCache instanceCache, ConsulHealthView healthView, ConsulNodeCoordinates coordinates,
+			ConsulDatacenterFailover failover, ConsulPreparedQueries preparedQueries,
+			ConsulZoneAffinity zoneAffinity) {
 		this.client = client;
 		this.properties = properties;
+		this.instanceCache = instanceCache;
+		this.healthView = healthView;
+		this.coordinates = coordinates;
+		this.failover = failover;
+		this.preparedQueries = preparedQueries;
+		this.zoneAffinity = zoneAffinity;
 	}
 
 	@Override
@@ -51,14 +96,104 @@ public class ConsulDiscoveryClient implements DiscoveryClient {
 		return "Spring Cloud Consul Discovery Client";
 	}
 
+	/**
+	 * Returns the instances of a service. Prepared query results, the health view, the
+	 * instance cache, failover and zone affinity may all hand out shared immutable
+	 * snapshots, so the instances are always returned in a list of the caller's own, as
+	 * when querying consul.
+	 */
 	@Override
 	public List<ServiceInstance> getInstances(final String serviceId) {
-		ConsulDiscoveryProperties.ConsistencyMode consistencyModeProp = this.properties.getConsistencyMode();
+		String preparedQuery = (this.preparedQueries != null) ? this.preparedQueries.getQuery(serviceId) : null;
+		if (preparedQuery != null) {
+			// the servers already failed over and ranked the instances
+			return new ArrayList<>(this.preparedQueries.getInstances(serviceId, preparedQuery));
+		}
+		List<ServiceInstance> instances;
+		if (this.healthView != null && this.healthView.isReady()) {
+			instances = this.healthView.getInstances(serviceId);
+		}
+		else if (this.instanceCache != null) {
+			instances = this.instanceCache.getInstances(serviceId);
+		}
+		else {
+			QueryParams queryParams = new QueryParams(getConsistencyMode(this.properties));
+			instances = getInstances(serviceId, withAgentCache(queryParams, this.properties));
+		}
+		if (this.failover != null) {
+			instances = this.failover.getInstances(serviceId, instances);
+		}
+		if (this.zoneAffinity != null) {
+			// sorted within each zone, so zone preference is kept
+			instances = this.zoneAffinity.select(serviceId, instances, this.coordinates);
+		}
+		else if (this.coordinates != null) {
+			instances = this.coordinates.sort(instances);
+		}
+		return new ArrayList<>(instances);
+	}
+
+	public static ConsulClient.ConsistencyMode getConsistencyMode(ConsulDiscoveryProperties properties) {
+		ConsulDiscoveryProperties.ConsistencyMode consistencyModeProp = properties.getConsistencyMode();
 		ConsulClient.ConsistencyMode consistencyMode = ConsulClient.ConsistencyMode.DEFAULT;
 		if (consistencyModeProp != null) {
 			consistencyMode = ConsulClient.ConsistencyMode.valueOf(consistencyModeProp.name().toUpperCase(Locale.ROOT));
 		}
-		return getInstances(serviceId, new QueryParams(consistencyMode));
+		return consistencyMode;
+	}
+
+	/**
+	 * Lets the local agent answer the query from its cache when
+	 * {@code spring.cloud.consul.discovery.agent-cache.enabled} is set and the consistency
+	 * mode allows it.
+	 * @param queryParams the query parameters
+	 * @param properties the discovery properties
+	 * @return the query parameters, for a cached query if enabled
+	 */
+	public static QueryParams withAgentCache(QueryParams queryParams, ConsulDiscoveryProperties properties) {
+		ConsulDiscoveryProperties.AgentCache agentCache = properties.getAgentCache();
+		if (!agentCache.isEnabled() || queryParams.getConsistencyMode() == ConsulClient.ConsistencyMode.CONSISTENT) {
+			return queryParams;
+		}
+		return queryParams.withCache(agentCache.getMaxAge(), agentCache.getStaleIfError());
+	}
+
+	/**
+	 * Asks the servers to sort the instances by round trip time from the local agent
+	 * when {@code spring.cloud.consul.discovery.near-agent} is set and the query does
+	 * not name another node.
+	 * @param queryParams the query parameters
+	 * @param properties the discovery properties
+	 * @return the query parameters, sorted near the agent if enabled
+	 */
+	public static QueryParams withNearAgent(QueryParams queryParams, ConsulDiscoveryProperties properties) {
+		if (!properties.isNearAgent() || queryParams.getNear() != null) {
+			return queryParams;
+		}
+		return queryParams.withNear(QueryParams.NEAR_AGENT);
+	}
+
+	/**
+	 * Queries the instances of a service, decoded by the streaming decoder if
+	 * {@code spring.cloud.consul.discovery.streaming-decoder} is turned on, and sorted
+	 * near the local agent if enabled.
+	 * @param client the consul client
+	 * @param properties the discovery properties
+	 * @param serviceId the service id
+	 * @param tags the tags the instances must have, or {@code null}
+	 * @param queryParams the query parameters
+	 * @return the instances
+	 */
+	public static ResponseEntity<List<HealthService>> getHealthServices(ConsulClient client,
+			ConsulDiscoveryProperties properties, String serviceId, List<String> tags, QueryParams queryParams) {
+		QueryParams params = withNearAgent(queryParams, properties);
+		if (!properties.isStreamingDecoder()) {
+			return client.getHealthServices(serviceId, properties.isQueryPassing(), properties.getAclToken(), tags,
+					params);
+		}
+		ResponseEntity<HealthServices> response = client.getHealthServiceInstances(serviceId,
+				properties.isQueryPassing(), properties.getAclToken(), tags, params);
+		return new ResponseEntity<>(response.getBody(), response.getHeaders(), response.getStatusCode());
 	}
 
 	public List<ServiceInstance> getInstances(final String serviceId, final QueryParams queryParams) {
@@ -76,8 +211,9 @@ public class ConsulDiscoveryClient implements DiscoveryClient {
 			tags = Arrays.asList(queryTags);
 		}
 
-		ResponseEntity<List<HealthService>> healthServices = client.getHealthServices(serviceId,
-				properties.isQueryPassing(), properties.getAclToken(), tags, queryParams);
+		QueryParams params = queryParams != null ? queryParams : QueryParams.DEFAULT;
+		ResponseEntity<List<HealthService>> healthServices = getHealthServices(client, properties, serviceId, tags,
+				params.withFilter(properties.getQueryFilterForService(serviceId)));
 
 		for (HealthService service : healthServices.getBody()) {
 			instances.add(new ConsulServiceInstance(service, serviceId));
@@ -85,13 +221,16 @@ public class ConsulDiscoveryClient implements DiscoveryClient {
 	}
 
 	public List<ServiceInstance> getAllInstances() {
+		if (this.healthView != null && this.healthView.isReady()) {
+			return new ArrayList<>(this.healthView.getAllInstances());
+		}
 		List<ServiceInstance> instances = new ArrayList<>();
 		Map<String, List<String>> catalogServices = client
-			.getCatalogServices(properties.getAclToken(), QueryParams.DEFAULT)
+			.getCatalogServices(properties.getAclToken(), withAgentCache(QueryParams.DEFAULT, properties))
 			.getBody();
 
 		for (String serviceId : catalogServices.keySet()) {
-			addInstancesToList(instances, serviceId, null);
+			addInstancesToList(instances, serviceId, withAgentCache(QueryParams.DEFAULT, properties));
 		}
 		return instances;
 	}
@@ -99,7 +238,7 @@ public class ConsulDiscoveryClient implements DiscoveryClient {
 	@Override
 	public List<String> getServices() {
 		Map<String, List<String>> catalogServices = client
-			.getCatalogServices(properties.getAclToken(), QueryParams.DEFAULT)
+			.getCatalogServices(properties.getAclToken(), withAgentCache(QueryParams.DEFAULT, properties))
 			.getBody();
 		return new ArrayList<>(catalogServices.keySet());
 	}
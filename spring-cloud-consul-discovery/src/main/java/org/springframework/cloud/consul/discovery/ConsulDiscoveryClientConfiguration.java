@@ -16,9 +16,12 @@
 
 package org.springframework.cloud.consul.discovery;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.CommonsClientAutoConfiguration;
 import org.springframework.cloud.client.ConditionalOnBlockingDiscoveryEnabled;
@@ -31,6 +34,10 @@ import org.springframework.cloud.consul.ConsulAutoConfiguration;
 import org.springframework.cloud.consul.ConsulClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import static org.springframework.cloud.consul.ConsulAutoConfiguration.CONSUL_TASK_SCHEDULER_NAME;
 
 /**
  * @author Spencer Gibb
@@ -47,6 +54,11 @@ import org.springframework.context.annotation.Configuration;
 @AutoConfigureAfter({ UtilAutoConfiguration.class, ConsulAutoConfiguration.class })
 public class ConsulDiscoveryClientConfiguration {
 
+	/**
+	 * Name of the service instance cache task scheduler bean.
+	 */
+	public static final String INSTANCE_CACHE_TASK_SCHEDULER_NAME = "instanceCacheTaskScheduler";
+
 	@Bean
 	@ConditionalOnMissingBean
 	public ConsulDiscoveryProperties consulDiscoveryProperties(InetUtils inetUtils) {
@@ -56,8 +68,100 @@ public class ConsulDiscoveryClientConfiguration {
 	@Bean
 	@ConditionalOnMissingBean
 	public ConsulDiscoveryClient consulDiscoveryClient(ConsulClient consulClient,
+			ConsulDiscoveryProperties discoveryProperties, ObjectProvider<ConsulServiceInstanceCache> instanceCache,
+			ObjectProvider<ConsulHealthView> healthView, ObjectProvider<ConsulNodeCoordinates> coordinates,
+			ObjectProvider<ConsulDatacenterFailover> failover, ObjectProvider<ConsulPreparedQueries> preparedQueries,
+			ObjectProvider<ConsulZoneAffinity> zoneAffinity) {
+		return new ConsulDiscoveryClient(consulClient, discoveryProperties, instanceCache.getIfAvailable(),
+				healthView.getIfAvailable(), coordinates.getIfAvailable(), failover.getIfAvailable(),
+				preparedQueries.getIfAvailable(), zoneAffinity.getIfAvailable());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public ConsulPreparedQueries consulPreparedQueries(ConsulClient consulClient,
 			ConsulDiscoveryProperties discoveryProperties) {
-		return new ConsulDiscoveryClient(consulClient, discoveryProperties);
+		return new ConsulPreparedQueries(consulClient, discoveryProperties);
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty("spring.cloud.consul.discovery.zone-affinity.enabled")
+	protected static class ConsulZoneAffinityConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ConsulZoneAffinity consulZoneAffinity(ConsulDiscoveryProperties discoveryProperties) {
+			return new ConsulZoneAffinity(discoveryProperties);
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty("spring.cloud.consul.discovery.health-view.enabled")
+	protected static class ConsulHealthViewConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ConsulHealthView consulHealthView(ConsulClient consulClient,
+				ConsulDiscoveryProperties discoveryProperties,
+				@Qualifier(CONSUL_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> consulTaskScheduler) {
+			return new ConsulHealthView(consulClient, discoveryProperties, consulTaskScheduler.getIfAvailable());
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty("spring.cloud.consul.discovery.coordinates.enabled")
+	protected static class ConsulNodeCoordinatesConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ConsulNodeCoordinates consulNodeCoordinates(ConsulClient consulClient,
+				ConsulDiscoveryProperties discoveryProperties,
+				@Qualifier(CONSUL_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> consulTaskScheduler) {
+			return new ConsulNodeCoordinates(consulClient, discoveryProperties, consulTaskScheduler.getIfAvailable());
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty("spring.cloud.consul.discovery.failover.enabled")
+	protected static class ConsulDatacenterFailoverConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ConsulDatacenterFailover consulDatacenterFailover(ConsulClient consulClient,
+				ConsulDiscoveryProperties discoveryProperties) {
+			return new ConsulDatacenterFailover(consulClient, discoveryProperties);
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty("spring.cloud.consul.discovery.cache.enabled")
+	protected static class ConsulServiceInstanceCacheConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ConsulServiceInstanceCache consulServiceInstanceCache(ConsulClient consulClient,
+				ConsulDiscoveryProperties discoveryProperties,
+				@Qualifier(INSTANCE_CACHE_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> taskScheduler,
+				@Qualifier(CONSUL_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> consulTaskScheduler) {
+			return new ConsulServiceInstanceCache(consulClient, discoveryProperties,
+					taskScheduler.getIfAvailable(consulTaskScheduler::getObject));
+		}
+
+		@Bean(name = INSTANCE_CACHE_TASK_SCHEDULER_NAME)
+		@ConditionalOnMissingBean(name = INSTANCE_CACHE_TASK_SCHEDULER_NAME)
+		@ConditionalOnProperty(name = "spring.cloud.consul.threads.virtual", havingValue = "false",
+				matchIfMissing = true)
+		public TaskScheduler instanceCacheTaskScheduler(ConsulDiscoveryProperties discoveryProperties) {
+			ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+			taskScheduler.setPoolSize(discoveryProperties.getCache().getWatchPoolSize());
+			taskScheduler.setThreadNamePrefix("consul-instance-cache-");
+			return taskScheduler;
+		}
+
 	}
 
 }
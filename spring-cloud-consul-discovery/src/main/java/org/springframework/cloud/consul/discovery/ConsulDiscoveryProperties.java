@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.consul.discovery;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -121,8 +122,8 @@ public class ConsulDiscoveryProperties {
 	/** The delay between calls to watch consul catalog in millis, default is 1000. */
 	private int catalogServicesWatchDelay = 1000;
 
-	/** The number of seconds to block while watching consul catalog, default is 2. */
-	private int catalogServicesWatchTimeout = 2;
+	/** The number of seconds to block while watching consul catalog, default is 55. */
+	private int catalogServicesWatchTimeout = 55;
 
 	/** Service name. */
 	private String serviceName;
@@ -177,12 +178,37 @@ public class ConsulDiscoveryProperties {
 	 */
 	private String defaultQueryTag;
 
+	/**
+	 * Map of serviceId's -> filter expression the Consul servers apply to the instances
+	 * of the service before returning them, for example {@code Service.Meta.zone ==
+	 * "eu-1"}. Instances that do not match are never sent, which shrinks the response.
+	 */
+	private Map<String, String> serverListQueryFilters = new HashMap<>();
+
+	/**
+	 * Filter expression to query with if one is not listed in serverListQueryFilters.
+	 */
+	private String defaultQueryFilter;
+
 	/**
 	 * Add the 'passing` parameter to /v1/health/service/serviceName. This pushes health
 	 * check passing to the server.
 	 */
 	private boolean queryPassing = false;
 
+	/**
+	 * Decode instance lookups with the streaming decoder, which skips the checks, node
+	 * meta and tagged addresses of every instance, so that
+	 * ConsulServiceInstance#getHealthService() no longer has them.
+	 */
+	private boolean streamingDecoder = false;
+
+	/**
+	 * Ask the servers to sort the instances of a service by estimated round trip time
+	 * from the local agent, nearest first.
+	 */
+	private boolean nearAgent = false;
+
 	/** Register as a service in consul. */
 	private boolean register = true;
 
@@ -210,6 +236,27 @@ public class ConsulDiscoveryProperties {
 	 */
 	private int order = 0;
 
+	/** Local service instance cache used by the discovery client. */
+	private InstanceCache cache = new InstanceCache();
+
+	/** Cached queries answered by the Consul agent instead of the servers. */
+	private AgentCache agentCache = new AgentCache();
+
+	/** In-memory view of every service instance in the datacenter. */
+	private HealthView healthView = new HealthView();
+
+	/** Local cache of the network coordinates used to rank instances by latency. */
+	private Coordinates coordinates = new Coordinates();
+
+	/** Preference for instances in the same zone as this application. */
+	private ZoneAffinity zoneAffinity = new ZoneAffinity();
+
+	/** Failover to the instances of other datacenters. */
+	private Failover failover = new Failover();
+
+	/** Prepared queries that look up services instead of the health endpoint. */
+	private PreparedQueries preparedQueries = new PreparedQueries();
+
 	@SuppressWarnings("unused")
 	private ConsulDiscoveryProperties() {
 		this(new InetUtils(new InetUtilsProperties()));
@@ -261,6 +308,23 @@ public class ConsulDiscoveryProperties {
 		return StringUtils.tokenizeToStringArray(queryTagStr, ",");
 	}
 
+	/**
+	 * Gets the filter expression to use when looking up the instances for a particular
+	 * service. If the service has an entry in {@link #serverListQueryFilters} that will be
+	 * used. Otherwise the content of {@link #defaultQueryFilter} will be used.
+	 * @param serviceId the service whose instances are being looked up
+	 * @return the filter expression or null if none is configured for the service and
+	 * there is no default filter
+	 */
+	@Nullable
+	public String getQueryFilterForService(String serviceId) {
+		String filter = this.serverListQueryFilters.get(serviceId);
+		if (filter == null) {
+			filter = this.defaultQueryFilter;
+		}
+		return StringUtils.hasText(filter) ? filter : null;
+	}
+
 	public String getHostname() {
 		return this.preferIpAddress ? this.ipAddress : this.hostname;
 	}
@@ -535,6 +599,22 @@ public class ConsulDiscoveryProperties {
 		this.defaultQueryTag = defaultQueryTag;
 	}
 
+	public Map<String, String> getServerListQueryFilters() {
+		return this.serverListQueryFilters;
+	}
+
+	public void setServerListQueryFilters(Map<String, String> serverListQueryFilters) {
+		this.serverListQueryFilters = serverListQueryFilters;
+	}
+
+	public String getDefaultQueryFilter() {
+		return this.defaultQueryFilter;
+	}
+
+	public void setDefaultQueryFilter(String defaultQueryFilter) {
+		this.defaultQueryFilter = defaultQueryFilter;
+	}
+
 	public boolean isQueryPassing() {
 		return this.queryPassing;
 	}
@@ -543,6 +623,22 @@ public class ConsulDiscoveryProperties {
 		this.queryPassing = queryPassing;
 	}
 
+	public boolean isStreamingDecoder() {
+		return this.streamingDecoder;
+	}
+
+	public void setStreamingDecoder(boolean streamingDecoder) {
+		this.streamingDecoder = streamingDecoder;
+	}
+
+	public boolean isNearAgent() {
+		return this.nearAgent;
+	}
+
+	public void setNearAgent(boolean nearAgent) {
+		this.nearAgent = nearAgent;
+	}
+
 	public boolean isRegister() {
 		return this.register;
 	}
@@ -591,6 +687,62 @@ public class ConsulDiscoveryProperties {
 		this.order = order;
 	}
 
+	public InstanceCache getCache() {
+		return this.cache;
+	}
+
+	public void setCache(InstanceCache cache) {
+		this.cache = cache;
+	}
+
+	public AgentCache getAgentCache() {
+		return this.agentCache;
+	}
+
+	public void setAgentCache(AgentCache agentCache) {
+		this.agentCache = agentCache;
+	}
+
+	public HealthView getHealthView() {
+		return this.healthView;
+	}
+
+	public void setHealthView(HealthView healthView) {
+		this.healthView = healthView;
+	}
+
+	public Coordinates getCoordinates() {
+		return this.coordinates;
+	}
+
+	public void setCoordinates(Coordinates coordinates) {
+		this.coordinates = coordinates;
+	}
+
+	public ZoneAffinity getZoneAffinity() {
+		return this.zoneAffinity;
+	}
+
+	public void setZoneAffinity(ZoneAffinity zoneAffinity) {
+		this.zoneAffinity = zoneAffinity;
+	}
+
+	public Failover getFailover() {
+		return this.failover;
+	}
+
+	public void setFailover(Failover failover) {
+		this.failover = failover;
+	}
+
+	public PreparedQueries getPreparedQueries() {
+		return this.preparedQueries;
+	}
+
+	public void setPreparedQueries(PreparedQueries preparedQueries) {
+		this.preparedQueries = preparedQueries;
+	}
+
 	public Map<String, String> getManagementMetadata() {
 		return this.managementMetadata;
 	}
@@ -618,10 +770,13 @@ public class ConsulDiscoveryProperties {
 	@Override
 	public String toString() {
 		return new ToStringCreator(this).append("aclToken", this.aclToken != null ? "******" : null)
+			.append("agentCache", this.agentCache)
+			.append("cache", this.cache)
 			.append("catalogServicesWatchDelay", this.catalogServicesWatchDelay)
 			.append("catalogServicesWatchTimeout", this.catalogServicesWatchTimeout)
 			.append("consistencyMode", this.consistencyMode)
 			.append("datacenters", this.datacenters)
+			.append("defaultQueryFilter", this.defaultQueryFilter)
 			.append("defaultQueryTag", this.defaultQueryTag)
 			.append("defaultZoneMetadataName", this.defaultZoneMetadataName)
 			.append("deregister", this.deregister)
@@ -636,6 +791,11 @@ public class ConsulDiscoveryProperties {
 			.append("healthCheckTimeout", this.healthCheckTimeout)
 			.append("healthCheckTlsSkipVerify", this.healthCheckTlsSkipVerify)
 			.append("healthCheckUrl", this.healthCheckUrl)
+			.append("healthView", this.healthView)
+			.append("coordinates", this.coordinates)
+			.append("zoneAffinity", this.zoneAffinity)
+			.append("failover", this.failover)
+			.append("preparedQueries", this.preparedQueries)
 			.append("hostname", this.hostname)
 			.append("includeHostnameInInstanceId", this.includeHostnameInInstanceId)
 			.append("instanceId", this.instanceId)
@@ -658,7 +818,10 @@ public class ConsulDiscoveryProperties {
 			.append("registerHealthCheck", this.registerHealthCheck)
 			.append("scheme", this.scheme)
 			.append("serviceName", this.serviceName)
+			.append("serverListQueryFilters", this.serverListQueryFilters)
 			.append("serverListQueryTags", this.serverListQueryTags)
+			.append("streamingDecoder", this.streamingDecoder)
+			.append("nearAgent", this.nearAgent)
 			.append("tags", this.tags)
 			.toString();
 	}
@@ -685,6 +848,421 @@ public class ConsulDiscoveryProperties {
 
 	}
 
+	/**
+	 * Properties related to the local service instance cache.
+	 */
+	public static class InstanceCache {
+
+		/** Answer instance lookups from a watch-driven local cache. */
+		private boolean enabled = false;
+
+		/** The number of seconds to block while watching a cached service, default is 55. */
+		private int watchTimeout = 55;
+
+		/** The delay between calls to watch a cached service in millis, default is 1000. */
+		private int watchDelay = 1000;
+
+		/**
+		 * The initial number of threads used to watch cached services, default is 10. The
+		 * pool grows to one thread per cached service.
+		 */
+		private int watchPoolSize = 10;
+
+		/**
+		 * How old a cached instance list may get before a lookup fetches it again. Needs
+		 * to be greater than the watch timeout.
+		 */
+		private Duration maxStaleness = Duration.ofMinutes(2);
+
+		/** How long a service may go without lookups before it is evicted. */
+		private Duration idleTimeout = Duration.ofMinutes(10);
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getWatchTimeout() {
+			return this.watchTimeout;
+		}
+
+		public void setWatchTimeout(int watchTimeout) {
+			this.watchTimeout = watchTimeout;
+		}
+
+		public int getWatchDelay() {
+			return this.watchDelay;
+		}
+
+		public void setWatchDelay(int watchDelay) {
+			this.watchDelay = watchDelay;
+		}
+
+		public int getWatchPoolSize() {
+			return this.watchPoolSize;
+		}
+
+		public void setWatchPoolSize(int watchPoolSize) {
+			this.watchPoolSize = watchPoolSize;
+		}
+
+		public Duration getMaxStaleness() {
+			return this.maxStaleness;
+		}
+
+		public void setMaxStaleness(Duration maxStaleness) {
+			this.maxStaleness = maxStaleness;
+		}
+
+		public Duration getIdleTimeout() {
+			return this.idleTimeout;
+		}
+
+		public void setIdleTimeout(Duration idleTimeout) {
+			this.idleTimeout = idleTimeout;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("enabled", this.enabled)
+				.append("watchTimeout", this.watchTimeout)
+				.append("watchDelay", this.watchDelay)
+				.append("watchPoolSize", this.watchPoolSize)
+				.append("maxStaleness", this.maxStaleness)
+				.append("idleTimeout", this.idleTimeout)
+				.toString();
+		}
+
+	}
+
+	/**
+	 * Properties related to cached queries served by the Consul agent.
+	 */
+	public static class AgentCache {
+
+		/**
+		 * Let the local agent answer service lookups from its cache, so they do not reach
+		 * the Consul servers. Ignored with the consistent consistency mode.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * How old a response from the agent cache may be before the agent fetches a new
+		 * one from the servers. Left to the agent if not set.
+		 */
+		private Duration maxAge;
+
+		/**
+		 * How old a response from the agent cache may be when the agent cannot reach the
+		 * servers. Left to the agent if not set.
+		 */
+		private Duration staleIfError;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getMaxAge() {
+			return this.maxAge;
+		}
+
+		public void setMaxAge(Duration maxAge) {
+			this.maxAge = maxAge;
+		}
+
+		public Duration getStaleIfError() {
+			return this.staleIfError;
+		}
+
+		public void setStaleIfError(Duration staleIfError) {
+			this.staleIfError = staleIfError;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("enabled", this.enabled)
+				.append("maxAge", this.maxAge)
+				.append("staleIfError", this.staleIfError)
+				.toString();
+		}
+
+	}
+
+	/**
+	 * Properties related to the health view of the whole datacenter.
+	 */
+	public static class HealthView {
+
+		/**
+		 * Answer all instance lookups from a view of every service in the datacenter,
+		 * kept current by blocking queries of the health state and the catalog.
+		 */
+		private boolean enabled = false;
+
+		/** How long each blocking query of the view may wait. */
+		private Duration watchTimeout = Duration.ofSeconds(55);
+
+		/** The delay between two blocking queries of the view. */
+		private Duration watchDelay = Duration.ofSeconds(1);
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getWatchTimeout() {
+			return this.watchTimeout;
+		}
+
+		public void setWatchTimeout(Duration watchTimeout) {
+			this.watchTimeout = watchTimeout;
+		}
+
+		public Duration getWatchDelay() {
+			return this.watchDelay;
+		}
+
+		public void setWatchDelay(Duration watchDelay) {
+			this.watchDelay = watchDelay;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("enabled", this.enabled)
+				.append("watchTimeout", this.watchTimeout)
+				.append("watchDelay", this.watchDelay)
+				.toString();
+		}
+
+	}
+
+	/**
+	 * Properties related to the network coordinates of the nodes.
+	 */
+	public static class Coordinates {
+
+		/**
+		 * Sort the instances returned by the discovery client by the round trip time
+		 * estimated from the network coordinates of their nodes, nearest first.
+		 */
+		private boolean enabled = false;
+
+		/** How long each blocking query of the coordinates may wait. */
+		private Duration watchTimeout = Duration.ofSeconds(55);
+
+		/**
+		 * The delay between two blocking queries of the coordinates. Consul updates them
+		 * every few seconds, in batches.
+		 */
+		private Duration watchDelay = Duration.ofSeconds(15);
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getWatchTimeout() {
+			return this.watchTimeout;
+		}
+
+		public void setWatchTimeout(Duration watchTimeout) {
+			this.watchTimeout = watchTimeout;
+		}
+
+		public Duration getWatchDelay() {
+			return this.watchDelay;
+		}
+
+		public void setWatchDelay(Duration watchDelay) {
+			this.watchDelay = watchDelay;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("enabled", this.enabled)
+				.append("watchTimeout", this.watchTimeout)
+				.append("watchDelay", this.watchDelay)
+				.toString();
+		}
+
+	}
+
+	/**
+	 * Properties related to zone affinity.
+	 */
+	public static class ZoneAffinity {
+
+		/**
+		 * Return only the instances whose zone metadata matches the instance zone of this
+		 * application, when there are enough of them.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * The least number of same-zone instances to return only them. With fewer, the
+		 * instances of other zones are returned after them.
+		 */
+		private int minInstances = 1;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMinInstances() {
+			return this.minInstances;
+		}
+
+		public void setMinInstances(int minInstances) {
+			this.minInstances = minInstances;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("enabled", this.enabled)
+				.append("minInstances", this.minInstances)
+				.toString();
+		}
+
+	}
+
+	/**
+	 * Properties related to failover to other datacenters.
+	 */
+	public static class Failover {
+
+		/**
+		 * Add the instances of the failover datacenters when there are too few instances
+		 * in the local datacenter.
+		 */
+		private boolean enabled = false;
+
+		/** The datacenters to fail over to, in order of preference. */
+		private List<String> datacenters = new ArrayList<>();
+
+		/**
+		 * The least number of instances in the local datacenter to not fail over. Below
+		 * it, the instances of the failover datacenters are added in order until there
+		 * are enough.
+		 */
+		private int minInstances = 1;
+
+		/** How long a lookup waits for the failover datacenters to answer. */
+		private Duration timeout = Duration.ofSeconds(2);
+
+		/** How long the instances of a failover datacenter are cached. */
+		private Duration cacheTtl = Duration.ofSeconds(30);
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public List<String> getDatacenters() {
+			return this.datacenters;
+		}
+
+		public void setDatacenters(List<String> datacenters) {
+			this.datacenters = datacenters;
+		}
+
+		public int getMinInstances() {
+			return this.minInstances;
+		}
+
+		public void setMinInstances(int minInstances) {
+			this.minInstances = minInstances;
+		}
+
+		public Duration getTimeout() {
+			return this.timeout;
+		}
+
+		public void setTimeout(Duration timeout) {
+			this.timeout = timeout;
+		}
+
+		public Duration getCacheTtl() {
+			return this.cacheTtl;
+		}
+
+		public void setCacheTtl(Duration cacheTtl) {
+			this.cacheTtl = cacheTtl;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("enabled", this.enabled)
+				.append("datacenters", this.datacenters)
+				.append("minInstances", this.minInstances)
+				.append("timeout", this.timeout)
+				.append("cacheTtl", this.cacheTtl)
+				.toString();
+		}
+
+	}
+
+	/**
+	 * Properties related to prepared queries.
+	 */
+	public static class PreparedQueries {
+
+		/**
+		 * Map of serviceId's -> name or id of the prepared query that looks up its
+		 * instances.
+		 */
+		private Map<String, String> services = new HashMap<>();
+
+		/**
+		 * How long the result of a prepared query is cached when the query sets no DNS
+		 * TTL. Zero executes the query on every lookup.
+		 */
+		private Duration defaultTtl = Duration.ZERO;
+
+		public Map<String, String> getServices() {
+			return this.services;
+		}
+
+		public void setServices(Map<String, String> services) {
+			this.services = services;
+		}
+
+		public Duration getDefaultTtl() {
+			return this.defaultTtl;
+		}
+
+		public void setDefaultTtl(Duration defaultTtl) {
+			this.defaultTtl = defaultTtl;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("services", this.services)
+				.append("defaultTtl", this.defaultTtl)
+				.toString();
+		}
+
+	}
+
 	public enum ConsistencyMode {
 
 		/**
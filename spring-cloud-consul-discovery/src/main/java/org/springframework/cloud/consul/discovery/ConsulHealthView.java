@@ -0,0 +1,327 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.consul.BlockingQueryWatcher;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.health.Check;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
+
+/**
+ * In-memory view of the instances of every service in the datacenter, for applications
+ * that need all of them, such as dashboards and edge routers.
+ * <p>
+ * Rather than one query per service, the view watches two blocking queries: the checks
+ * of the datacenter from {@code /v1/health/state/any} and the services from
+ * {@code /v1/catalog/services}. When they change, only the services that were added,
+ * whose checks changed or that run on a node whose checks changed are queried again
+ * from {@code /v1/health/service}. Services without checks do not show in the health
+ * state, they are queried again when the catalog changes. Lookups are answered from an
+ * immutable snapshot.
+ */
+public class ConsulHealthView implements SmartLifecycle, DisposableBean {
+
+	private static final Log log = LogFactory.getLog(ConsulHealthView.class);
+
+	private final ConsulClient client;
+
+	private final ConsulDiscoveryProperties properties;
+
+	private final ThreadPoolTaskScheduler ownTaskScheduler;
+
+	private final BlockingQueryWatcher<List<Check>> healthWatcher;
+
+	private final BlockingQueryWatcher<Map<String, List<String>>> catalogWatcher;
+
+	private final AtomicBoolean running = new AtomicBoolean(false);
+
+	// the following are guarded by this
+
+	private final Map<String, List<ServiceInstance>> instances = new HashMap<>();
+
+	private Set<String> catalogServices = Collections.emptySet();
+
+	private Map<String, Set<String>> serviceChecks = Collections.emptyMap();
+
+	private Map<String, Set<String>> nodeChecks = Collections.emptyMap();
+
+	private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap());
+
+	private volatile boolean ready;
+
+	public ConsulHealthView(ConsulClient client, ConsulDiscoveryProperties properties) {
+		this(client, properties, null);
+	}
+
+	/**
+	 * Creates a view that runs its blocking queries on the given scheduler.
+	 * @param client the consul client
+	 * @param properties the discovery properties
+	 * @param taskScheduler the scheduler of the blocking queries, or {@code null} to
+	 * create one that is shut down with the view
+	 */
+	public ConsulHealthView(ConsulClient client, ConsulDiscoveryProperties properties, TaskScheduler taskScheduler) {
+		this.client = client;
+		this.properties = properties;
+		this.ownTaskScheduler = (taskScheduler != null) ? null : getTaskScheduler();
+		if (taskScheduler == null) {
+			taskScheduler = this.ownTaskScheduler;
+		}
+		ConsulDiscoveryProperties.HealthView healthView = properties.getHealthView();
+		this.healthWatcher = new BlockingQueryWatcher<>("health state", this::getHealthState, this::onHealthChange,
+				taskScheduler);
+		this.healthWatcher.setWaitTime(healthView.getWatchTimeout());
+		this.healthWatcher.setDelay(healthView.getWatchDelay());
+		this.healthWatcher.setErrorHandler((e, firstQuery) -> log.warn("Error watching Consul health state", e));
+		this.catalogWatcher = new BlockingQueryWatcher<>("catalog services for the health view",
+				this::getCatalogServices, this::onCatalogChange, taskScheduler);
+		this.catalogWatcher.setWaitTime(healthView.getWatchTimeout());
+		this.catalogWatcher.setDelay(healthView.getWatchDelay());
+		this.catalogWatcher.setErrorHandler((e, firstQuery) -> log.warn("Error watching Consul catalog services", e));
+	}
+
+	private static ThreadPoolTaskScheduler getTaskScheduler() {
+		// one thread for each of the two blocking queries
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.setPoolSize(2);
+		taskScheduler.setThreadNamePrefix("consul-health-view-");
+		taskScheduler.initialize();
+		return taskScheduler;
+	}
+
+	/**
+	 * @return whether the services of the catalog were loaded
+	 */
+	public boolean isReady() {
+		return this.ready;
+	}
+
+	/**
+	 * Returns the instances of a service.
+	 * @param serviceId the service id
+	 * @return an immutable snapshot of the service instances, empty for an unknown
+	 * service
+	 */
+	public List<ServiceInstance> getInstances(String serviceId) {
+		return this.snapshot.instances.getOrDefault(serviceId, Collections.emptyList());
+	}
+
+	/**
+	 * @return an immutable snapshot of the instances of all services
+	 */
+	public List<ServiceInstance> getAllInstances() {
+		return this.snapshot.allInstances;
+	}
+
+	/**
+	 * @return the ids of the services in the view
+	 */
+	public Set<String> getServices() {
+		return this.snapshot.instances.keySet();
+	}
+
+	@Override
+	public void start() {
+		if (this.running.compareAndSet(false, true)) {
+			this.catalogWatcher.start();
+			this.healthWatcher.start();
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (this.running.compareAndSet(true, false)) {
+			this.catalogWatcher.stop();
+			this.healthWatcher.stop();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running.get();
+	}
+
+	@Override
+	public void destroy() {
+		if (this.ownTaskScheduler != null) {
+			this.ownTaskScheduler.shutdown();
+		}
+	}
+
+	/**
+	 * Runs one query of the catalog and one of the health state, mostly useful to update
+	 * the view by hand.
+	 */
+	void poll() {
+		this.catalogWatcher.poll();
+		this.healthWatcher.poll();
+	}
+
+	private ResponseEntity<List<Check>> getHealthState(QueryParams queryParams) {
+		return this.client.getHealthChecksState("any", this.properties.getAclToken(), queryParams);
+	}
+
+	private ResponseEntity<Map<String, List<String>>> getCatalogServices(QueryParams queryParams) {
+		return this.client.getCatalogServices(this.properties.getAclToken(), queryParams);
+	}
+
+	private synchronized void onCatalogChange(ResponseEntity<Map<String, List<String>>> response, long previousIndex,
+			long newIndex) {
+		Set<String> services = (response.getBody() != null) ? response.getBody().keySet() : Collections.emptySet();
+		Set<String> changed = new TreeSet<>();
+		for (String service : services) {
+			if (!this.catalogServices.contains(service) || !this.serviceChecks.containsKey(service)) {
+				changed.add(service);
+			}
+		}
+		boolean removed = this.instances.keySet().retainAll(services);
+		this.catalogServices = new HashSet<>(services);
+		reload(changed);
+		if (removed && changed.isEmpty()) {
+			// nothing to query again, but the deregistered services must leave the view
+			this.snapshot = new Snapshot(this.instances);
+		}
+		this.ready = true;
+	}
+
+	private synchronized void onHealthChange(ResponseEntity<List<Check>> response, long previousIndex, long newIndex) {
+		Map<String, Set<String>> serviceChecks = new HashMap<>();
+		Map<String, Set<String>> nodeChecks = new HashMap<>();
+		List<Check> checks = (response.getBody() != null) ? response.getBody() : Collections.emptyList();
+		for (Check check : checks) {
+			String state = check.getCheckId() + "=" + check.getStatus();
+			if (StringUtils.hasText(check.getServiceId())) {
+				serviceChecks.computeIfAbsent(check.getServiceName(), service -> new HashSet<>())
+					.add(check.getNode() + "/" + check.getServiceId() + "/" + state);
+			}
+			else {
+				nodeChecks.computeIfAbsent(check.getNode(), node -> new HashSet<>()).add(state);
+			}
+		}
+		Set<String> changed = new TreeSet<>();
+		if (previousIndex != BlockingQueryWatcher.NO_INDEX) {
+			for (String service : this.catalogServices) {
+				if (!Objects.equals(this.serviceChecks.get(service), serviceChecks.get(service))
+						|| nodeChecksChanged(service, nodeChecks)) {
+					changed.add(service);
+				}
+			}
+		}
+		this.serviceChecks = serviceChecks;
+		this.nodeChecks = nodeChecks;
+		reload(changed);
+	}
+
+	private boolean nodeChecksChanged(String service, Map<String, Set<String>> nodeChecks) {
+		for (ServiceInstance instance : this.instances.getOrDefault(service, Collections.emptyList())) {
+			String node = getNode(instance);
+			if (!Objects.equals(this.nodeChecks.get(node), nodeChecks.get(node))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String getNode(ServiceInstance instance) {
+		if (instance instanceof ConsulServiceInstance) {
+			HealthService healthService = ((ConsulServiceInstance) instance).getHealthService();
+			if (healthService != null && healthService.getNode() != null) {
+				return healthService.getNode().getNode();
+			}
+		}
+		return null;
+	}
+
+	private void reload(Collection<String> services) {
+		if (services.isEmpty()) {
+			return;
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Updating the health view of " + services.size() + " services: " + services);
+		}
+		for (String service : services) {
+			try {
+				this.instances.put(service, fetch(service));
+			}
+			catch (RuntimeException ex) {
+				// keep the previous instances, the service is queried again on its next change
+				log.warn("Error querying instances of '" + service + "' for the health view: " + ex.getMessage());
+			}
+		}
+		this.snapshot = new Snapshot(this.instances);
+	}
+
+	private List<ServiceInstance> fetch(String serviceId) {
+		String[] queryTags = this.properties.getQueryTagsForService(serviceId);
+		List<String> tags = (queryTags != null) ? Arrays.asList(queryTags) : null;
+		QueryParams queryParams = new QueryParams(ConsulDiscoveryClient.getConsistencyMode(this.properties))
+			.withFilter(this.properties.getQueryFilterForService(serviceId));
+		queryParams = ConsulDiscoveryClient.withAgentCache(queryParams, this.properties);
+		ResponseEntity<List<HealthService>> response = ConsulDiscoveryClient.getHealthServices(this.client,
+				this.properties, serviceId, tags, queryParams);
+		List<ServiceInstance> instances = new ArrayList<>();
+		if (response.getBody() != null) {
+			for (HealthService healthService : response.getBody()) {
+				instances.add(new ConsulServiceInstance(healthService, serviceId));
+			}
+		}
+		return Collections.unmodifiableList(instances);
+	}
+
+	/**
+	 * Immutable instances of all services.
+	 */
+	private static final class Snapshot {
+
+		private final Map<String, List<ServiceInstance>> instances;
+
+		private final List<ServiceInstance> allInstances;
+
+		Snapshot(Map<String, List<ServiceInstance>> instances) {
+			this.instances = Collections.unmodifiableMap(new HashMap<>(instances));
+			List<ServiceInstance> allInstances = new ArrayList<>();
+			instances.values().forEach(allInstances::addAll);
+			this.allInstances = Collections.unmodifiableList(allInstances);
+		}
+
+	}
+
+}
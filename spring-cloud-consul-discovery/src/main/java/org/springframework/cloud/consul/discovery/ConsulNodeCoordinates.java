@@ -0,0 +1,216 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.consul.BlockingQueryWatcher;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.agent.Self;
+import org.springframework.cloud.consul.model.http.coordinate.Coordinate;
+import org.springframework.cloud.consul.model.http.coordinate.NodeCoordinate;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
+
+/**
+ * Local cache of the network coordinates of the nodes in the datacenter, watched with a
+ * blocking query of {@code /v1/coordinate/nodes}. Each time the coordinates change, the
+ * round trip time from the local agent to every node is estimated once, so that ranking
+ * instances by latency is only a lookup per instance.
+ *
+ * @see Coordinate#distanceTo(Coordinate)
+ */
+public class ConsulNodeCoordinates implements SmartLifecycle, DisposableBean {
+
+	private static final Log log = LogFactory.getLog(ConsulNodeCoordinates.class);
+
+	private final ConsulClient client;
+
+	private final ConsulDiscoveryProperties properties;
+
+	private final ThreadPoolTaskScheduler ownTaskScheduler;
+
+	private final BlockingQueryWatcher<List<NodeCoordinate>> watcher;
+
+	private final AtomicBoolean running = new AtomicBoolean(false);
+
+	private volatile String localNode;
+
+	private volatile Map<String, Duration> rtts = Collections.emptyMap();
+
+	public ConsulNodeCoordinates(ConsulClient client, ConsulDiscoveryProperties properties) {
+		this(client, properties, null);
+	}
+
+	/**
+	 * Creates coordinates that run their blocking query on the given scheduler.
+	 * @param client the consul client
+	 * @param properties the discovery properties
+	 * @param taskScheduler the scheduler of the blocking query, or {@code null} to create
+	 * one that is shut down with the coordinates
+	 */
+	public ConsulNodeCoordinates(ConsulClient client, ConsulDiscoveryProperties properties,
+			TaskScheduler taskScheduler) {
+		this.client = client;
+		this.properties = properties;
+		this.ownTaskScheduler = (taskScheduler != null) ? null : getTaskScheduler();
+		if (taskScheduler == null) {
+			taskScheduler = this.ownTaskScheduler;
+		}
+		ConsulDiscoveryProperties.Coordinates coordinates = properties.getCoordinates();
+		this.watcher = new BlockingQueryWatcher<>("node coordinates", this::getCoordinateNodes, this::onChange,
+				taskScheduler);
+		this.watcher.setWaitTime(coordinates.getWatchTimeout());
+		this.watcher.setDelay(coordinates.getWatchDelay());
+		this.watcher.setErrorHandler((e, firstQuery) -> log.warn("Error watching Consul node coordinates", e));
+	}
+
+	private static ThreadPoolTaskScheduler getTaskScheduler() {
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.setThreadNamePrefix("consul-coordinates-");
+		taskScheduler.initialize();
+		return taskScheduler;
+	}
+
+	/**
+	 * Returns the estimated round trip time from the local agent to a node.
+	 * @param node the node name
+	 * @return the round trip time, or {@code null} if a coordinate is not known yet
+	 */
+	public Duration getRtt(String node) {
+		return (node != null) ? this.rtts.get(node) : null;
+	}
+
+	/**
+	 * Sorts instances by the estimated round trip time to their node, nearest first.
+	 * The sort is stable, instances whose node has no coordinate keep their order after
+	 * the others.
+	 * @param instances the instances, not modified
+	 * @return the sorted instances, or the same list when there are no coordinates yet
+	 */
+	public List<ServiceInstance> sort(List<ServiceInstance> instances) {
+		Map<String, Duration> rtts = this.rtts;
+		if (rtts.isEmpty() || instances.size() < 2) {
+			return instances;
+		}
+		List<ServiceInstance> sorted = new ArrayList<>(instances);
+		sorted.sort(Comparator.comparing((ServiceInstance instance) -> rtts.get(getNode(instance)),
+				Comparator.nullsLast(Comparator.<Duration>naturalOrder())));
+		return sorted;
+	}
+
+	private static String getNode(ServiceInstance instance) {
+		if (instance instanceof ConsulServiceInstance) {
+			HealthService healthService = ((ConsulServiceInstance) instance).getHealthService();
+			if (healthService != null && healthService.getNode() != null) {
+				return healthService.getNode().getNode();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void start() {
+		if (this.running.compareAndSet(false, true)) {
+			this.watcher.start();
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (this.running.compareAndSet(true, false)) {
+			this.watcher.stop();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running.get();
+	}
+
+	@Override
+	public void destroy() {
+		if (this.ownTaskScheduler != null) {
+			this.ownTaskScheduler.shutdown();
+		}
+	}
+
+	/**
+	 * Runs one query of the coordinates, mostly useful to update them by hand.
+	 */
+	void poll() {
+		this.watcher.poll();
+	}
+
+	private ResponseEntity<List<NodeCoordinate>> getCoordinateNodes(QueryParams queryParams) {
+		if (this.localNode == null) {
+			// fails the query, and so retries it, until the agent answers
+			Self self = this.client.getAgentSelf(this.properties.getAclToken()).getBody();
+			if (self == null || self.getConfig() == null || !StringUtils.hasText(self.getConfig().getNodeName())) {
+				throw new IllegalStateException("Unable to get the node name of the local agent");
+			}
+			this.localNode = self.getConfig().getNodeName();
+		}
+		return this.client.getCoordinateNodes(this.properties.getAclToken(), queryParams);
+	}
+
+	private void onChange(ResponseEntity<List<NodeCoordinate>> response, long previousIndex, long newIndex) {
+		Map<String, Coordinate> coordinates = new HashMap<>();
+		List<NodeCoordinate> nodes = (response.getBody() != null) ? response.getBody() : Collections.emptyList();
+		for (NodeCoordinate node : nodes) {
+			// a node is listed once per network segment, the default segment comes first
+			if (node.getCoord() != null) {
+				coordinates.putIfAbsent(node.getNode(), node.getCoord());
+			}
+		}
+		Coordinate local = coordinates.get(this.localNode);
+		if (local == null) {
+			log.debug("No coordinate for the local node '" + this.localNode + "' yet");
+			this.rtts = Collections.emptyMap();
+			return;
+		}
+		Map<String, Duration> rtts = new HashMap<>();
+		for (Map.Entry<String, Coordinate> coordinate : coordinates.entrySet()) {
+			Duration rtt = local.distanceTo(coordinate.getValue());
+			if (rtt != null) {
+				rtts.put(coordinate.getKey(), rtt);
+			}
+		}
+		this.rtts = Collections.unmodifiableMap(rtts);
+		if (log.isTraceEnabled()) {
+			log.trace("Estimated round trip times from '" + this.localNode + "': " + rtts);
+		}
+	}
+
+}
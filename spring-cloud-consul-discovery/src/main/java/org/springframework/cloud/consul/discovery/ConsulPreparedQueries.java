@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.query.PreparedQueryExecuteResponse;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Looks up the instances of services mapped to a prepared query in
+ * {@code spring.cloud.consul.discovery.prepared-queries.services}. The servers apply the
+ * failover, near sorting and tag templates of the query.
+ * <p>
+ * Results are cached for the DNS TTL of the query. When it expires the query is executed
+ * again, and if the returned index did not change the cached instances are kept as they
+ * were. A failed execution returns the previous instances when there are some.
+ */
+public class ConsulPreparedQueries {
+
+	private static final Log log = LogFactory.getLog(ConsulPreparedQueries.class);
+
+	private final ConsulClient client;
+
+	private final ConsulDiscoveryProperties properties;
+
+	private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+
+	public ConsulPreparedQueries(ConsulClient client, ConsulDiscoveryProperties properties) {
+		this.client = client;
+		this.properties = properties;
+	}
+
+	/**
+	 * Returns the name of the prepared query of a service.
+	 * @param serviceId the service id
+	 * @return the query, or {@code null} if the service is not looked up with one
+	 */
+	public String getQuery(String serviceId) {
+		return this.properties.getPreparedQueries().getServices().get(serviceId);
+	}
+
+	/**
+	 * Returns the instances of a service from its prepared query.
+	 * @param serviceId the service id
+	 * @param query the name or id of the prepared query
+	 * @return an immutable snapshot of the instances
+	 */
+	public List<ServiceInstance> getInstances(String serviceId, String query) {
+		String key = serviceId + "@" + query;
+		CachedResult cached = this.results.get(key);
+		if (cached != null && !cached.isExpired()) {
+			return cached.instances;
+		}
+		ResponseEntity<PreparedQueryExecuteResponse> response;
+		try {
+			response = execute(query);
+		}
+		catch (RuntimeException ex) {
+			if (cached == null) {
+				throw ex;
+			}
+			log.warn("Error executing prepared query '" + query + "' for " + serviceId
+					+ ", using the previous instances: " + ex.getMessage());
+			return cached.instances;
+		}
+		Long index = ConsulHeaders.getConsulIndex(response);
+		Duration ttl = getTtl(response.getBody());
+		List<ServiceInstance> instances;
+		if (cached != null && index != null && index.equals(cached.index)) {
+			instances = cached.instances;
+		}
+		else {
+			instances = toInstances(serviceId, response.getBody());
+		}
+		this.results.put(key, new CachedResult(instances, index, ttl));
+		return instances;
+	}
+
+	private ResponseEntity<PreparedQueryExecuteResponse> execute(String query) {
+		QueryParams queryParams = new QueryParams(ConsulDiscoveryClient.getConsistencyMode(this.properties));
+		queryParams = ConsulDiscoveryClient.withAgentCache(queryParams, this.properties);
+		queryParams = ConsulDiscoveryClient.withNearAgent(queryParams, this.properties);
+		return this.client.executePreparedQuery(query, null, this.properties.getAclToken(), queryParams);
+	}
+
+	private Duration getTtl(PreparedQueryExecuteResponse result) {
+		Duration ttl = (result != null && result.getDns() != null) ? result.getDns().getTtlDuration() : null;
+		return (ttl != null && !ttl.isZero()) ? ttl : this.properties.getPreparedQueries().getDefaultTtl();
+	}
+
+	private static List<ServiceInstance> toInstances(String serviceId, PreparedQueryExecuteResponse result) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		if (result != null && result.getNodes() != null) {
+			for (HealthService healthService : result.getNodes()) {
+				instances.add(new ConsulServiceInstance(healthService, serviceId));
+			}
+		}
+		return Collections.unmodifiableList(instances);
+	}
+
+	/**
+	 * The instances returned by one execution of a prepared query.
+	 */
+	private static final class CachedResult {
+
+		private final List<ServiceInstance> instances;
+
+		private final Long index;
+
+		private final long expiresAt;
+
+		private CachedResult(List<ServiceInstance> instances, Long index, Duration ttl) {
+			this.instances = instances;
+			this.index = index;
+			this.expiresAt = System.nanoTime() + ttl.toNanos();
+		}
+
+		private boolean isExpired() {
+			return System.nanoTime() - this.expiresAt >= 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Local cache of the instances of every service looked up through
+ * {@link ConsulDiscoveryClient}. Each cached service is kept current by its own blocking
+ * query, so lookups are answered from an immutable in-memory snapshot. A lookup falls
+ * back to a direct query when the snapshot is older than
+ * {@link ConsulDiscoveryProperties.InstanceCache#getMaxStaleness()}, and services not
+ * looked up for {@link ConsulDiscoveryProperties.InstanceCache#getIdleTimeout()} are
+ * evicted.
+ * <p>
+ * Every watch holds a thread of the scheduler while its query blocks. When the scheduler
+ * is a {@link ThreadPoolTaskScheduler} with fewer threads than there are cached services,
+ * its pool is grown to one thread per cached service, so that watches do not queue up
+ * behind each other and let the snapshots go stale.
+ */
+public class ConsulServiceInstanceCache implements SmartLifecycle, DisposableBean {
+
+	private static final Log log = LogFactory.getLog(ConsulServiceInstanceCache.class);
+
+	private final ConsulClient client;
+
+	private final ConsulDiscoveryProperties properties;
+
+	private final TaskScheduler taskScheduler;
+
+	private final ThreadPoolTaskScheduler ownTaskScheduler;
+
+	private final Map<String, CachedService> services = new ConcurrentHashMap<>();
+
+	private final Map<String, CompletableFuture<CachedService>> pending = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean running = new AtomicBoolean(false);
+
+	public ConsulServiceInstanceCache(ConsulClient client, ConsulDiscoveryProperties properties) {
+		this(client, properties, null);
+	}
+
+	/**
+	 * Creates a cache that runs the watches of the cached services on the given
+	 * scheduler.
+	 * @param client the consul client
+	 * @param properties the discovery properties
+	 * @param taskScheduler the scheduler of the watches, or {@code null} to create one
+	 * that is shut down with the cache
+	 */
+	public ConsulServiceInstanceCache(ConsulClient client, ConsulDiscoveryProperties properties,
+			TaskScheduler taskScheduler) {
+		this.client = client;
+		this.properties = properties;
+		this.ownTaskScheduler = (taskScheduler != null) ? null : getTaskScheduler(properties);
+		this.taskScheduler = (taskScheduler != null) ? taskScheduler : this.ownTaskScheduler;
+	}
+
+	private static ThreadPoolTaskScheduler getTaskScheduler(ConsulDiscoveryProperties properties) {
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.setPoolSize(properties.getCache().getWatchPoolSize());
+		taskScheduler.setThreadNamePrefix("consul-instance-cache-");
+		taskScheduler.initialize();
+		return taskScheduler;
+	}
+
+	/**
+	 * Returns the cached instances of a service, loading and watching the service on
+	 * first use.
+	 * @param serviceId the service to look up
+	 * @return an immutable snapshot of the service instances
+	 */
+	public List<ServiceInstance> getInstances(String serviceId) {
+		CachedService cached = this.services.get(serviceId);
+		if (cached == null) {
+			cached = load(serviceId);
+		}
+		else if (cached.isStale(this.properties.getCache().getMaxStaleness())) {
+			if (log.isDebugEnabled()) {
+				log.debug("Cached instances of " + serviceId + " are stale, querying consul");
+			}
+			try {
+				cached.update(fetch(serviceId, -1), -1);
+			}
+			catch (RuntimeException ex) {
+				// the watch keeps trying, until then the snapshot is better than nothing
+				log.warn("Error refreshing stale instances of " + serviceId + ", serving the cached ones: "
+						+ ex.getMessage());
+			}
+		}
+		cached.touch();
+		return cached.snapshot.instances;
+	}
+
+	private CachedService load(String serviceId) {
+		CompletableFuture<CachedService> started = new CompletableFuture<>();
+		CompletableFuture<CachedService> load = this.pending.putIfAbsent(serviceId, started);
+		if (load != null) {
+			// one query at a time, however many lookups of the service are waiting
+			try {
+				return load.join();
+			}
+			catch (CompletionException ex) {
+				if (ex.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) ex.getCause();
+				}
+				throw ex;
+			}
+		}
+		try {
+			CachedService cached = this.services.get(serviceId);
+			if (cached == null) {
+				cached = new CachedService(serviceId);
+				cached.update(fetch(serviceId, -1), -1);
+				this.services.put(serviceId, cached);
+				if (this.running.get()) {
+					startWatch(cached);
+				}
+			}
+			started.complete(cached);
+			return cached;
+		}
+		catch (RuntimeException ex) {
+			started.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.pending.remove(serviceId, started);
+		}
+	}
+
+	/**
+	 * @return the ids of the services currently held in the cache
+	 */
+	public List<String> getCachedServices() {
+		return new ArrayList<>(this.services.keySet());
+	}
+
+	/**
+	 * Removes a service from the cache and stops watching it.
+	 * @param serviceId the service to evict
+	 */
+	public void evict(String serviceId) {
+		CachedService cached = this.services.remove(serviceId);
+		if (cached != null && cached.watchFuture != null) {
+			cached.watchFuture.cancel(true);
+		}
+	}
+
+	void watch(String serviceId) {
+		CachedService cached = this.services.get(serviceId);
+		if (cached == null || !this.running.get()) {
+			return;
+		}
+		if (cached.isIdle(this.properties.getCache().getIdleTimeout())) {
+			if (log.isDebugEnabled()) {
+				log.debug("Evicting idle service " + serviceId + " from the instance cache");
+			}
+			evict(serviceId);
+			return;
+		}
+		try {
+			long index = cached.snapshot.index;
+			cached.update(fetch(serviceId, index), index);
+		}
+		catch (Exception e) {
+			if (log.isTraceEnabled()) {
+				log.trace("Error watching consul service '" + serviceId + "'", e);
+			}
+			else if (log.isWarnEnabled()) {
+				log.warn("Error watching consul service '" + serviceId + "'. Message: " + e.getMessage());
+			}
+		}
+	}
+
+	private ResponseEntity<List<HealthService>> fetch(String serviceId, long index) {
+		String[] queryTags = this.properties.getQueryTagsForService(serviceId);
+		List<String> tags = null;
+		if (queryTags != null) {
+			tags = Arrays.asList(queryTags);
+		}
+		long waitTime = index == -1 ? -1 : this.properties.getCache().getWatchTimeout();
+		QueryParams queryParams = new QueryParams(null, ConsulDiscoveryClient.getConsistencyMode(this.properties),
+				waitTime, index)
+			.withFilter(this.properties.getQueryFilterForService(serviceId));
+		queryParams = ConsulDiscoveryClient.withAgentCache(queryParams, this.properties);
+		return ConsulDiscoveryClient.getHealthServices(this.client, this.properties, serviceId, tags, queryParams);
+	}
+
+	private void startWatch(CachedService cached) {
+		ensureWatchThreads();
+		cached.watchFuture = this.taskScheduler.scheduleWithFixedDelay(() -> watch(cached.serviceId),
+				Duration.ofMillis(this.properties.getCache().getWatchDelay()));
+	}
+
+	private synchronized void ensureWatchThreads() {
+		if (this.taskScheduler instanceof ThreadPoolTaskScheduler) {
+			ThreadPoolTaskScheduler threadPool = (ThreadPoolTaskScheduler) this.taskScheduler;
+			int services = this.services.size();
+			if (threadPool.getScheduledThreadPoolExecutor().getCorePoolSize() < services) {
+				threadPool.setPoolSize(services);
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		if (this.running.compareAndSet(false, true)) {
+			this.services.values().forEach(this::startWatch);
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (this.running.compareAndSet(true, false)) {
+			for (CachedService cached : this.services.values()) {
+				if (cached.watchFuture != null) {
+					cached.watchFuture.cancel(true);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running.get();
+	}
+
+	@Override
+	public void destroy() {
+		if (this.ownTaskScheduler != null) {
+			this.ownTaskScheduler.shutdown();
+		}
+	}
+
+	private static final class CachedService {
+
+		private final String serviceId;
+
+		private volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), -1);
+
+		private volatile long lastUpdate;
+
+		private volatile long lastAccess = System.nanoTime();
+
+		private volatile ScheduledFuture<?> watchFuture;
+
+		private CachedService(String serviceId) {
+			this.serviceId = serviceId;
+		}
+
+		/**
+		 * Replaces the snapshot with the instances of a response read at a larger index.
+		 * Responses read at an older index, such as a slow refresh overtaken by the
+		 * watch, are ignored, unless the servers answered a blocking query with a
+		 * smaller index than it waited on because they lost state and started over.
+		 * @param response the response
+		 * @param queriedIndex the index the query waited on, or -1
+		 */
+		private synchronized void update(ResponseEntity<List<HealthService>> response, long queriedIndex) {
+			Long newIndex = ConsulHeaders.getConsulIndex(response);
+			long index = this.snapshot.index;
+			boolean reset = newIndex != null && queriedIndex != -1 && Long.compareUnsigned(newIndex, queriedIndex) < 0;
+			if (newIndex == null || index == -1 || reset || Long.compareUnsigned(newIndex, index) > 0) {
+				List<ServiceInstance> instances = new ArrayList<>();
+				if (response.getBody() != null) {
+					for (HealthService healthService : response.getBody()) {
+						instances.add(new ConsulServiceInstance(healthService, this.serviceId));
+					}
+				}
+				this.snapshot = new Snapshot(Collections.unmodifiableList(instances),
+						(newIndex != null) ? newIndex : -1);
+			}
+			this.lastUpdate = System.nanoTime();
+		}
+
+		private void touch() {
+			this.lastAccess = System.nanoTime();
+		}
+
+		private boolean isStale(Duration maxStaleness) {
+			return System.nanoTime() - this.lastUpdate > maxStaleness.toNanos();
+		}
+
+		private boolean isIdle(Duration idleTimeout) {
+			return System.nanoTime() - this.lastAccess > idleTimeout.toNanos();
+		}
+
+	}
+
+	/**
+	 * Instances of a service together with the index they were read at.
+	 */
+	private static final class Snapshot {
+
+		private final List<ServiceInstance> instances;
+
+		private final long index;
+
+		private Snapshot(List<ServiceInstance> instances, long index) {
+			this.instances = instances;
+			this.index = index;
+		}
+
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Selects the instances in the zone of this application, from the zone metadata named
+ * by {@link ConsulDiscoveryProperties#getDefaultZoneMetadataName()}.
+ * <p>
+ * The instances of a service are split by zone once per instance list, recognized by
+ * identity. The instance cache, the health view and the failover cache keep returning the
+ * same immutable list until the service changes, so their lookups reuse the split without
+ * reading any metadata. Lookups sent to consul get a new list every time, so the split is
+ * computed again for each of them, at the cost of one pass over the instance metadata.
+ */
+public class ConsulZoneAffinity {
+
+	private final ConsulDiscoveryProperties properties;
+
+	private final Map<String, ZoneIndex> indexes = new ConcurrentHashMap<>();
+
+	public ConsulZoneAffinity(ConsulDiscoveryProperties properties) {
+		this.properties = properties;
+	}
+
+	/**
+	 * Returns the instances in the local zone if there are at least
+	 * {@code zone-affinity.min-instances} of them, else the instances in the local zone
+	 * followed by the others.
+	 * @param serviceId the service id
+	 * @param instances the instances of the service
+	 * @return the selected instances, or the given instances if zone affinity is disabled
+	 * or this application has no zone
+	 */
+	public List<ServiceInstance> select(String serviceId, List<ServiceInstance> instances) {
+		return select(serviceId, instances, null);
+	}
+
+	/**
+	 * Selects the instances like {@link #select(String, List)} and sorts them nearest
+	 * first within each zone, so that instances of other zones never come before those
+	 * of the local zone.
+	 * @param serviceId the service id
+	 * @param instances the instances of the service
+	 * @param coordinates the coordinates to sort by, or {@code null} to keep the order
+	 * @return the selected instances
+	 */
+	public List<ServiceInstance> select(String serviceId, List<ServiceInstance> instances,
+			ConsulNodeCoordinates coordinates) {
+		ConsulDiscoveryProperties.ZoneAffinity zoneAffinity = this.properties.getZoneAffinity();
+		String zone = this.properties.getInstanceZone();
+		String metadataName = this.properties.getDefaultZoneMetadataName();
+		if (!zoneAffinity.isEnabled() || zone == null || metadataName == null || instances.isEmpty()) {
+			return sort(instances, coordinates);
+		}
+		ZoneIndex index = this.indexes.get(serviceId);
+		if (index == null || !index.matches(instances, zone, metadataName)) {
+			index = new ZoneIndex(instances, zone, metadataName);
+			this.indexes.put(serviceId, index);
+		}
+		if (index.local.size() >= zoneAffinity.getMinInstances()) {
+			return sort(index.local, coordinates);
+		}
+		if (coordinates == null) {
+			return index.spillOver;
+		}
+		List<ServiceInstance> spillOver = new ArrayList<>(coordinates.sort(index.local));
+		spillOver.addAll(coordinates.sort(index.others));
+		return spillOver;
+	}
+
+	private static List<ServiceInstance> sort(List<ServiceInstance> instances, ConsulNodeCoordinates coordinates) {
+		return (coordinates != null) ? coordinates.sort(instances) : instances;
+	}
+
+	/**
+	 * The instances of a service split by zone.
+	 */
+	private static final class ZoneIndex {
+
+		private final List<ServiceInstance> source;
+
+		private final String zone;
+
+		private final String metadataName;
+
+		private final List<ServiceInstance> local;
+
+		private final List<ServiceInstance> others;
+
+		private final List<ServiceInstance> spillOver;
+
+		private ZoneIndex(List<ServiceInstance> source, String zone, String metadataName) {
+			this.source = source;
+			this.zone = zone;
+			this.metadataName = metadataName;
+			List<ServiceInstance> local = new ArrayList<>();
+			List<ServiceInstance> others = new ArrayList<>();
+			for (ServiceInstance instance : source) {
+				Map<String, String> metadata = instance.getMetadata();
+				if (metadata != null && zone.equalsIgnoreCase(metadata.get(metadataName))) {
+					local.add(instance);
+				}
+				else {
+					others.add(instance);
+				}
+			}
+			List<ServiceInstance> spillOver = new ArrayList<>(local);
+			spillOver.addAll(others);
+			this.local = Collections.unmodifiableList(local);
+			this.others = Collections.unmodifiableList(others);
+			this.spillOver = Collections.unmodifiableList(spillOver);
+		}
+
+		private boolean matches(List<ServiceInstance> instances, String zone, String metadataName) {
+			return this.source == instances && this.zone.equals(zone) && this.metadataName.equals(metadataName);
+		}
+
+	}
+
+}
@@ -46,7 +46,7 @@ public class TtlScheduler {
 
 	private final Map<String, ScheduledFuture> serviceHeartbeats = new ConcurrentHashMap<>();
 
-	private final TaskScheduler scheduler = new ConcurrentTaskScheduler(Executors.newSingleThreadScheduledExecutor());
+	private final TaskScheduler scheduler;
 
 	private final HeartbeatProperties heartbeatProperties;
 
@@ -63,6 +63,15 @@ public class TtlScheduler {
 	public TtlScheduler(HeartbeatProperties heartbeatProperties, ConsulDiscoveryProperties discoveryProperties,
 			ConsulClient client, ReregistrationPredicate reregistrationPredicate,
 			ObjectProvider<ApplicationStatusProvider> applicationStatusProviderFactory) {
+		this(heartbeatProperties, discoveryProperties, client, reregistrationPredicate,
+				applicationStatusProviderFactory,
+				new ConcurrentTaskScheduler(Executors.newSingleThreadScheduledExecutor()));
+	}
+
+	public TtlScheduler(HeartbeatProperties heartbeatProperties, ConsulDiscoveryProperties discoveryProperties,
+			ConsulClient client, ReregistrationPredicate reregistrationPredicate,
+			ObjectProvider<ApplicationStatusProvider> applicationStatusProviderFactory, TaskScheduler scheduler) {
+		this.scheduler = scheduler;
 		this.heartbeatProperties = heartbeatProperties;
 		this.discoveryProperties = discoveryProperties;
 		this.client = client;
@@ -16,8 +16,12 @@
 
 package org.springframework.cloud.consul.discovery.configclient;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.DefaultSingletonBeanRegistry;
 import org.springframework.boot.bootstrap.BootstrapContext;
 import org.springframework.boot.bootstrap.BootstrapRegistry;
 import org.springframework.boot.bootstrap.BootstrapRegistryInitializer;
@@ -30,14 +34,20 @@ import org.springframework.cloud.config.client.ConfigServerConfigDataLocationRes
 import org.springframework.cloud.config.client.ConfigServerInstanceProvider;
 import org.springframework.cloud.consul.ConsulAutoConfiguration;
 import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClientHttpRequestFactory;
+import org.springframework.cloud.consul.ConsulClientMetrics;
 import org.springframework.cloud.consul.ConsulProperties;
 import org.springframework.cloud.consul.discovery.ConditionalOnConsulDiscoveryEnabled;
 import org.springframework.cloud.consul.discovery.ConsulDiscoveryClient;
 import org.springframework.cloud.consul.discovery.ConsulDiscoveryProperties;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.util.ClassUtils;
 
 public class ConsulConfigServerBootstrapper implements BootstrapRegistryInitializer {
 
+	private static final boolean METRICS_PRESENT = ClassUtils
+		.isPresent("io.micrometer.core.instrument.binder.MeterBinder", null);
+
 	@Override
 	public void initialize(BootstrapRegistry registry) {
 		if (!ClassUtils.isPresent("org.springframework.cloud.config.client.ConfigServerInstanceProvider", null) ||
@@ -54,12 +64,40 @@ public class ConsulConfigServerBootstrapper implements BootstrapRegistryInitiali
 			return propertyResolver.resolveConfigurationProperties(ConsulProperties.PREFIX, ConsulProperties.class,
 					ConsulProperties::new);
 		});
+		registry.registerIfAbsent(ConsulClientHttpRequestFactory.class, context -> {
+			if (!isDiscoveryEnabled(context)) {
+				return null;
+			}
+			ConsulProperties consulProperties = context.get(ConsulProperties.class);
+			if (!consulProperties.getHttp().isPooled()
+					|| ConsulAutoConfiguration.getUnixSocketPath(consulProperties) != null) {
+				return null;
+			}
+			return ConsulAutoConfiguration.createConsulClientHttpRequestFactory(consulProperties);
+		});
+		if (METRICS_PRESENT) {
+			registry.registerIfAbsent(ConsulClientMetrics.class, context -> {
+				if (!isDiscoveryEnabled(context)) {
+					return null;
+				}
+				ConfigServerConfigDataLocationResolver.PropertyResolver propertyResolver = getPropertyResolver(context);
+				if (!propertyResolver.get("spring.cloud.consul.metrics.enabled", Boolean.class, true)) {
+					return null;
+				}
+				return new ConsulClientMetrics();
+			});
+		}
 		registry.registerIfAbsent(ConsulClient.class, context -> {
 			if (!isDiscoveryEnabled(context)) {
 				return null;
 			}
 			ConsulProperties consulProperties = context.get(ConsulProperties.class);
-			return ConsulAutoConfiguration.createNewConsulClient(consulProperties);
+			List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+			if (METRICS_PRESENT && context.get(ConsulClientMetrics.class) != null) {
+				interceptors.add(context.get(ConsulClientMetrics.class));
+			}
+			return ConsulAutoConfiguration.createNewConsulClient(consulProperties, interceptors,
+					context.get(ConsulClientHttpRequestFactory.class));
 		});
 		registry.registerIfAbsent(ConsulDiscoveryClient.class, context -> {
 			if (!isDiscoveryEnabled(context)) {
@@ -83,6 +121,23 @@ public class ConsulConfigServerBootstrapper implements BootstrapRegistryInitiali
 					.getBeanFactory()
 					.registerSingleton("consulDiscoveryClient", discoveryClient);
 			}
+			ConfigurableListableBeanFactory beanFactory = event.getApplicationContext().getBeanFactory();
+			// the discovery client keeps metering its calls, bind the metrics to the
+			// application's registries
+			if (METRICS_PRESENT && !beanFactory.containsBean(ConsulAutoConfiguration.CONSUL_CLIENT_METRICS_NAME)) {
+				ConsulClientMetrics metrics = event.getBootstrapContext().get(ConsulClientMetrics.class);
+				if (metrics != null) {
+					beanFactory.registerSingleton(ConsulAutoConfiguration.CONSUL_CLIENT_METRICS_NAME, metrics);
+				}
+			}
+			// the discovery client keeps using the pooled transport, close it with the
+			// context
+			ConsulClientHttpRequestFactory requestFactory = event.getBootstrapContext()
+				.get(ConsulClientHttpRequestFactory.class);
+			if (requestFactory != null && beanFactory instanceof DefaultSingletonBeanRegistry) {
+				((DefaultSingletonBeanRegistry) beanFactory)
+					.registerDisposableBean("bootstrapConsulClientHttpRequestFactory", requestFactory);
+			}
 		});
 
 		registry.registerIfAbsent(ConfigServerInstanceProvider.Function.class, context -> {
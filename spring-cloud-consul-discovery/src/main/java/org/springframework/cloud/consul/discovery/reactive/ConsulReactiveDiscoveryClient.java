@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.consul.discovery.reactive;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -26,8 +27,11 @@ import reactor.core.scheduler.Schedulers;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.ReactiveConsulClient;
 import org.springframework.cloud.consul.discovery.ConsulDiscoveryClient;
 import org.springframework.cloud.consul.discovery.ConsulDiscoveryProperties;
+import org.springframework.cloud.consul.discovery.ConsulServiceInstance;
 
 /**
  * Consul version of {@link ReactiveDiscoveryClient}.
@@ -39,17 +43,31 @@ public class ConsulReactiveDiscoveryClient implements ReactiveDiscoveryClient {
 
 	private static final Logger logger = LoggerFactory.getLogger(ConsulReactiveDiscoveryClient.class);
 
-	private final ConsulClient client;
+	private final ReactiveConsulClient client;
 
 	private final ConsulDiscoveryProperties properties;
 
-	// TODO: implement ReactiveConsulClient to remove the need for subscribeOn()
 	private final ConsulDiscoveryClient blockingClient;
 
-	public ConsulReactiveDiscoveryClient(ConsulClient client, ConsulDiscoveryProperties properties) {
+	public ConsulReactiveDiscoveryClient(ReactiveConsulClient client, ConsulDiscoveryProperties properties) {
 		this.client = client;
 		this.properties = properties;
-		blockingClient = new ConsulDiscoveryClient(client, properties);
+		this.blockingClient = null;
+	}
+
+	/**
+	 * Creates a client that offloads the blocking {@link ConsulClient} to
+	 * {@link Schedulers#boundedElastic()}.
+	 * @param client the blocking client
+	 * @param properties the discovery properties
+	 * @deprecated in favor of
+	 * {@link #ConsulReactiveDiscoveryClient(ReactiveConsulClient, ConsulDiscoveryProperties)}
+	 */
+	@Deprecated
+	public ConsulReactiveDiscoveryClient(ConsulClient client, ConsulDiscoveryProperties properties) {
+		this.client = null;
+		this.properties = properties;
+		this.blockingClient = new ConsulDiscoveryClient(client, properties);
 	}
 
 	@Override
@@ -59,24 +77,52 @@ public class ConsulReactiveDiscoveryClient implements ReactiveDiscoveryClient {
 
 	@Override
 	public Flux<ServiceInstance> getInstances(String serviceId) {
-		return Flux.defer(() -> {
-			List<ServiceInstance> instances = blockingClient.getInstances(serviceId);
-			return Flux.fromIterable(instances);
-		}).onErrorResume(exception -> {
+		Flux<ServiceInstance> instances;
+		if (this.blockingClient != null) {
+			instances = Flux.defer(() -> Flux.fromIterable(this.blockingClient.getInstances(serviceId)))
+				.subscribeOn(Schedulers.boundedElastic());
+		}
+		else {
+			instances = Flux.defer(() -> {
+				String[] queryTags = this.properties.getQueryTagsForService(serviceId);
+				List<String> tags = queryTags != null ? Arrays.asList(queryTags) : null;
+				QueryParams queryParams = new QueryParams(ConsulDiscoveryClient.getConsistencyMode(this.properties))
+					.withFilter(this.properties.getQueryFilterForService(serviceId));
+				queryParams = ConsulDiscoveryClient.withAgentCache(queryParams, this.properties);
+				queryParams = ConsulDiscoveryClient.withNearAgent(queryParams, this.properties);
+				return this.client
+					.getHealthServices(serviceId, this.properties.isQueryPassing(), this.properties.getAclToken(), tags,
+							queryParams)
+					.flatMapMany(response -> response.hasBody() ? Flux.fromIterable(response.getBody()) : Flux.empty())
+					.map(healthService -> new ConsulServiceInstance(healthService, serviceId));
+			});
+		}
+		return instances.onErrorResume(exception -> {
 			logger.error("Error getting instances from Consul.", exception);
 			return Flux.empty();
-		}).subscribeOn(Schedulers.boundedElastic());
+		});
 	}
 
 	@Override
 	public Flux<String> getServices() {
-		return Flux.defer(() -> {
-			List<String> services = blockingClient.getServices();
-			return services == null ? Flux.empty() : Flux.fromIterable(services);
-		}).onErrorResume(exception -> {
+		Flux<String> services;
+		if (this.blockingClient != null) {
+			services = Flux.defer(() -> {
+				List<String> serviceIds = this.blockingClient.getServices();
+				return serviceIds == null ? Flux.<String>empty() : Flux.fromIterable(serviceIds);
+			}).subscribeOn(Schedulers.boundedElastic());
+		}
+		else {
+			services = Flux.defer(() -> this.client
+				.getCatalogServices(this.properties.getAclToken(),
+						ConsulDiscoveryClient.withAgentCache(QueryParams.DEFAULT, this.properties))
+				.flatMapMany(response -> response.hasBody() ? Flux.fromIterable(response.getBody().keySet())
+						: Flux.empty()));
+		}
+		return services.onErrorResume(exception -> {
 			logger.error("Error getting services from Consul.", exception);
 			return Flux.empty();
-		}).subscribeOn(Schedulers.boundedElastic());
+		});
 	}
 
 	@Override
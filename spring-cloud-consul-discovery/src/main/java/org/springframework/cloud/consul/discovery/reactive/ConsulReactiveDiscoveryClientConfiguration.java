@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.consul.discovery.reactive;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -33,6 +34,7 @@ import org.springframework.cloud.commons.util.UtilAutoConfiguration;
 import org.springframework.cloud.consul.ConditionalOnConsulEnabled;
 import org.springframework.cloud.consul.ConsulAutoConfiguration;
 import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ReactiveConsulClient;
 import org.springframework.cloud.consul.discovery.ConditionalOnConsulDiscoveryEnabled;
 import org.springframework.cloud.consul.discovery.ConsulDiscoveryProperties;
 import org.springframework.context.annotation.Bean;
@@ -60,8 +62,14 @@ public class ConsulReactiveDiscoveryClientConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public ConsulReactiveDiscoveryClient consulReactiveDiscoveryClient(ConsulClient client,
+	@SuppressWarnings("deprecation")
+	public ConsulReactiveDiscoveryClient consulReactiveDiscoveryClient(
+			ObjectProvider<ReactiveConsulClient> reactiveClient, ConsulClient client,
 			ConsulDiscoveryProperties discoveryProperties) {
+		ReactiveConsulClient reactiveConsulClient = reactiveClient.getIfAvailable();
+		if (reactiveConsulClient != null) {
+			return new ConsulReactiveDiscoveryClient(reactiveConsulClient, discoveryProperties);
+		}
 		return new ConsulReactiveDiscoveryClient(client, discoveryProperties);
 	}
 
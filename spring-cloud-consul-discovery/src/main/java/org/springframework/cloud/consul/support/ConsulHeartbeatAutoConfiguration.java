@@ -17,6 +17,7 @@
 package org.springframework.cloud.consul.support;
 
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -37,6 +38,9 @@ import org.springframework.cloud.consul.serviceregistry.ApplicationStatusProvide
 import org.springframework.cloud.consul.serviceregistry.ConsulServiceRegistryAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+
+import static org.springframework.cloud.consul.ConsulAutoConfiguration.CONSUL_TASK_SCHEDULER_NAME;
 
 /**
  * Auto configuration for the heartbeat.
@@ -63,7 +67,13 @@ public class ConsulHeartbeatAutoConfiguration {
 	public TtlScheduler ttlScheduler(HeartbeatProperties heartbeatProperties,
 			ConsulDiscoveryProperties discoveryProperties, ConsulClient consulClient,
 			ReregistrationPredicate reRegistrationPredicate,
-			ObjectProvider<ApplicationStatusProvider> applicationStatusProvider) {
+			ObjectProvider<ApplicationStatusProvider> applicationStatusProvider,
+			@Qualifier(CONSUL_TASK_SCHEDULER_NAME) ObjectProvider<TaskScheduler> consulTaskScheduler) {
+		TaskScheduler taskScheduler = consulTaskScheduler.getIfAvailable();
+		if (taskScheduler != null) {
+			return new TtlScheduler(heartbeatProperties, discoveryProperties, consulClient, reRegistrationPredicate,
+					applicationStatusProvider, taskScheduler);
+		}
 		return new TtlScheduler(heartbeatProperties, discoveryProperties, consulClient, reRegistrationPredicate,
 				applicationStatusProvider);
 	}
@@ -16,12 +16,30 @@
 
 package org.springframework.cloud.consul.discovery;
 
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
 import org.springframework.cloud.commons.util.InetUtils;
 import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Spencer Gibb
@@ -44,4 +62,52 @@ public class ConsulCatalogWatchTests {
 		assertThat(watch.isRunning()).isFalse();
 	}
 
+	@Test
+	public void eventsArePublishedOnlyWhenServicesOrTagsChange() {
+		ConsulClient client = mock(ConsulClient.class);
+		ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+		when(client.getCatalogServices(isNull(), any(QueryParams.class)))
+			.thenReturn(response(1, Map.of("a", List.of("x"))), response(2, Map.of("a", List.of("x"))),
+					response(3, Map.of("a", List.of("x", "y"), "b", List.of())), response(4, Map.of("b", List.of())));
+		ConsulCatalogWatch watch = new ConsulCatalogWatch(
+				new ConsulDiscoveryProperties(new InetUtils(new InetUtilsProperties())), client,
+				mock(TaskScheduler.class));
+		watch.setApplicationEventPublisher(publisher);
+
+		watch.catalogServicesWatch();
+		watch.catalogServicesWatch();
+		watch.catalogServicesWatch();
+		watch.catalogServicesWatch();
+
+		ArgumentCaptor<ApplicationEvent> events = ArgumentCaptor.forClass(ApplicationEvent.class);
+		verify(publisher, times(7)).publishEvent(events.capture());
+		List<CatalogServicesChangedEvent> changes = events.getAllValues()
+			.stream()
+			.filter(CatalogServicesChangedEvent.class::isInstance)
+			.map(CatalogServicesChangedEvent.class::cast)
+			.toList();
+		assertThat(changes).extracting(CatalogServicesChangedEvent::getIndex).containsExactly(1L, 3L, 4L);
+		assertThat(changes.get(0).getAdded()).containsExactly("a");
+		assertThat(changes.get(1).getAdded()).containsExactly("b");
+		assertThat(changes.get(1).getRetagged()).containsExactly("a");
+		assertThat(changes.get(2).getRemoved()).containsExactly("a");
+		assertThat(changes.get(2).getServices()).containsOnlyKeys("b");
+		assertThat(events.getAllValues()).filteredOn(HeartbeatEvent.class::isInstance)
+			.extracting(event -> ((HeartbeatEvent) event).getValue())
+			.containsExactly(1L, 2L, 3L, 4L);
+	}
+
+	@Test
+	public void tagOrderIsNotAChange() {
+		Map<String, List<String>> previous = Map.of("a", List.of("x", "y"));
+		Map<String, List<String>> current = Map.of("a", List.of("y", "x"));
+
+		assertThat(CatalogServicesChangedEvent.between(this, 2, previous, current)).isNull();
+	}
+
+	private static ResponseEntity<Map<String, List<String>>> response(long index,
+			Map<String, List<String>> services) {
+		return ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, String.valueOf(index)).body(services);
+	}
+
 }
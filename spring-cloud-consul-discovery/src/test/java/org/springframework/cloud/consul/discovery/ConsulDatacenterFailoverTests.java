@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ConsulDatacenterFailover}.
+ */
+class ConsulDatacenterFailoverTests {
+
+	private ConsulClient client;
+
+	private ConsulDiscoveryProperties properties;
+
+	private final List<Runnable> queries = new ArrayList<>();
+
+	@BeforeEach
+	void setup() {
+		this.client = mock(ConsulClient.class);
+		this.properties = new ConsulDiscoveryProperties(new InetUtils(new InetUtilsProperties()));
+		this.properties.setStreamingDecoder(true);
+		this.properties.getFailover().setDatacenters(List.of("dc2", "dc3"));
+		this.properties.getFailover().setMinInstances(2);
+		when(this.client.getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				inDatacenter("dc2")))
+			.thenReturn(instances("dc2-1"));
+		when(this.client.getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				inDatacenter("dc3")))
+			.thenReturn(instances("dc3-1", "dc3-2"));
+	}
+
+	@Test
+	void enoughLocalInstancesDoNotFailOver() {
+		ConsulDatacenterFailover failover = new ConsulDatacenterFailover(this.client, this.properties, Runnable::run);
+		List<ServiceInstance> local = List.of(instance("dc1-1"), instance("dc1-2"));
+
+		assertThat(failover.getInstances("payments", local)).isSameAs(local);
+		verify(this.client, never()).getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				inDatacenter("dc2"));
+	}
+
+	@Test
+	void datacentersAreAddedInOrderUntilThereAreEnoughInstances() {
+		ConsulDatacenterFailover failover = new ConsulDatacenterFailover(this.client, this.properties, Runnable::run);
+
+		assertThat(failover.getInstances("payments", List.of())).extracting(ServiceInstance::getInstanceId)
+			.containsExactly("dc2-1", "dc3-1", "dc3-2");
+		assertThat(failover.getInstances("payments", List.of(instance("dc1-1"))))
+			.extracting(ServiceInstance::getInstanceId)
+			.containsExactly("dc1-1", "dc2-1");
+	}
+
+	@Test
+	void remoteInstancesAreCachedPerDatacenter() {
+		ConsulDatacenterFailover failover = new ConsulDatacenterFailover(this.client, this.properties, Runnable::run);
+
+		failover.getInstances("payments", List.of());
+		failover.getInstances("payments", List.of());
+
+		verify(this.client, times(1)).getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				inDatacenter("dc2"));
+	}
+
+	@Test
+	void slowDatacentersAreNotWaitedForPastTheTimeout() {
+		this.properties.getFailover().setTimeout(Duration.ofMillis(10));
+		ConsulDatacenterFailover failover = new ConsulDatacenterFailover(this.client, this.properties,
+				this.queries::add);
+		List<ServiceInstance> local = List.of(instance("dc1-1"));
+
+		assertThat(failover.getInstances("payments", local)).containsExactlyElementsOf(local);
+
+		// the late answers are cached for the next lookup
+		this.queries.forEach(Runnable::run);
+		assertThat(failover.getInstances("payments", local)).extracting(ServiceInstance::getInstanceId)
+			.containsExactly("dc1-1", "dc2-1");
+	}
+
+	private static QueryParams inDatacenter(String datacenter) {
+		return argThat(queryParams -> queryParams != null && datacenter.equals(queryParams.getDatacenter()));
+	}
+
+	private static ServiceInstance instance(String id) {
+		return new ConsulServiceInstance(healthService(id), "payments");
+	}
+
+	private static ResponseEntity<HealthServices> instances(String... ids) {
+		HealthServices healthServices = new HealthServices();
+		for (String id : ids) {
+			healthServices.add(healthService(id));
+		}
+		return ResponseEntity.ok(healthServices);
+	}
+
+	private static HealthService healthService(String id) {
+		HealthService.Node node = new HealthService.Node();
+		node.setNode("node-" + id);
+		HealthService.Service service = new HealthService.Service();
+		service.setId(id);
+		service.setService("payments");
+		service.setAddress("10.0.0.1");
+		service.setPort(8080);
+		HealthService healthService = new HealthService();
+		healthService.setNode(node);
+		healthService.setService(service);
+		return healthService;
+	}
+
+}
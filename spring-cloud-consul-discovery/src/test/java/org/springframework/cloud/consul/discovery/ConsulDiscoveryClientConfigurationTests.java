@@ -116,6 +116,21 @@ public class ConsulDiscoveryClientConfigurationTests {
 		assertBeanNotPresent(HeartbeatProperties.class);
 	}
 
+	@Test
+	public void preparedQueriesAndZoneAffinityAreBeans() {
+		TestPropertyValues.of("spring.cloud.consul.discovery.zone-affinity.enabled=true").applyTo(this.context);
+		setupContext();
+		assertBeanIsPresent(ConsulPreparedQueries.class);
+		assertBeanIsPresent(ConsulZoneAffinity.class);
+	}
+
+	@Test
+	public void zoneAffinityNotLoadedByDefault() {
+		setupContext();
+		assertBeanIsPresent(ConsulPreparedQueries.class);
+		assertBeanNotPresent(ConsulZoneAffinity.class);
+	}
+
 	private void setupContext(Class<?>... config) {
 		ConfigurationPropertySources.attach(this.context.getEnvironment());
 		this.context.register(UtilAutoConfiguration.class, PropertyPlaceholderAutoConfiguration.class,
@@ -136,6 +136,28 @@ class ConsulDiscoveryPropertiesTests {
 		assertThat(properties.getDatacenters().get(SERVICE_NAME_IN_MAP)).isEqualTo(MAP_DC);
 	}
 
+	@Test
+	void getFilterReturnsNullWhenNoDefaultAndNotInMap() {
+		assertThat(properties.getQueryFilterForService(SERVICE_NAME_NOT_IN_MAP)).isNull();
+	}
+
+	@Test
+	void getFilterReturnsMapValueWhenInMapAndDefaultOtherwise() {
+		properties.setDefaultQueryFilter("Service.Meta.zone == \"eu-1\"");
+		properties
+			.setServerListQueryFilters(Collections.singletonMap(SERVICE_NAME_IN_MAP, "\"canary\" in Service.Tags"));
+		assertThat(properties.getQueryFilterForService(SERVICE_NAME_IN_MAP)).isEqualTo("\"canary\" in Service.Tags");
+		assertThat(properties.getQueryFilterForService(SERVICE_NAME_NOT_IN_MAP))
+			.isEqualTo("Service.Meta.zone == \"eu-1\"");
+	}
+
+	@Test
+	void getFilterReturnsNullWhenMapValueIsSetToEmptyString() {
+		properties.setDefaultQueryFilter("Service.Meta.zone == \"eu-1\"");
+		properties.setServerListQueryFilters(Collections.singletonMap(SERVICE_NAME_IN_MAP, ""));
+		assertThat(properties.getQueryFilterForService(SERVICE_NAME_IN_MAP)).isNull();
+	}
+
 	@Test
 	void addManagementTag() {
 		properties.getManagementTags().add("newTag");
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.health.Check;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ConsulHealthView}.
+ */
+class ConsulHealthViewTests {
+
+	private ConsulClient client;
+
+	private ConsulDiscoveryProperties properties;
+
+	private ConsulHealthView view;
+
+	@BeforeEach
+	void setup() {
+		this.client = mock(ConsulClient.class);
+		this.properties = new ConsulDiscoveryProperties(new InetUtils(new InetUtilsProperties()));
+		this.properties.setStreamingDecoder(true);
+		this.view = new ConsulHealthView(this.client, this.properties, mock(TaskScheduler.class));
+		when(this.client.getCatalogServices(isNull(), any(QueryParams.class)))
+			.thenReturn(indexed(1, Map.of("payments", List.of(), "billing", List.of())));
+		when(this.client.getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(instances("payments", "node1", "10.0.0.1"));
+		when(this.client.getHealthServiceInstances(eq("billing"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(instances("billing", "node2", "10.0.0.2"));
+	}
+
+	@Test
+	void allInstancesAreLoadedOnce() {
+		when(this.client.getHealthChecksState(eq("any"), isNull(), any(QueryParams.class)))
+			.thenReturn(indexed(5, List.of(check("node1", "payments", "passing"))));
+
+		assertThat(this.view.isReady()).isFalse();
+		this.view.poll();
+		this.view.poll();
+
+		assertThat(this.view.isReady()).isTrue();
+		assertThat(this.view.getServices()).containsOnly("payments", "billing");
+		assertThat(this.view.getInstances("payments")).extracting(ServiceInstance::getHost)
+			.containsExactly("10.0.0.1");
+		assertThat(this.view.getAllInstances()).hasSize(2);
+		assertThat(this.view.getInstances("unknown")).isEmpty();
+		verify(this.client, times(1)).getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+	}
+
+	@Test
+	void onlyServicesWithChangedChecksAreQueriedAgain() {
+		Check billing = check("node2", "billing", "passing");
+		when(this.client.getHealthChecksState(eq("any"), isNull(), any(QueryParams.class)))
+			.thenReturn(indexed(5, List.of(check("node1", "payments", "passing"), billing)),
+					indexed(6, List.of(check("node1", "payments", "critical"), billing)));
+
+		this.view.poll();
+		this.view.poll();
+
+		verify(this.client, times(2)).getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+		verify(this.client, times(1)).getHealthServiceInstances(eq("billing"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+	}
+
+	@Test
+	void servicesOnNodeWithChangedChecksAreQueriedAgain() {
+		Check payments = check("node1", "payments", "passing");
+		Check billing = check("node2", "billing", "passing");
+		when(this.client.getHealthChecksState(eq("any"), isNull(), any(QueryParams.class)))
+			.thenReturn(indexed(5, List.of(payments, billing)),
+					indexed(6, List.of(payments, billing, check("node2", null, "critical"))));
+
+		this.view.poll();
+		this.view.poll();
+
+		verify(this.client, times(1)).getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+		verify(this.client, times(2)).getHealthServiceInstances(eq("billing"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+	}
+
+	@Test
+	void deregisteredServicesAreRemoved() {
+		when(this.client.getCatalogServices(isNull(), any(QueryParams.class)))
+			.thenReturn(indexed(1, Map.of("payments", List.of(), "billing", List.of())),
+					indexed(2, Map.of("payments", List.of())));
+		when(this.client.getHealthChecksState(eq("any"), isNull(), any(QueryParams.class)))
+			.thenReturn(
+					indexed(5, List.of(check("node1", "payments", "passing"), check("node2", "billing", "passing"))));
+
+		this.view.poll();
+		assertThat(this.view.getInstances("billing")).hasSize(1);
+		this.view.poll();
+
+		assertThat(this.view.getInstances("billing")).isEmpty();
+		assertThat(this.view.getServices()).containsOnly("payments");
+		assertThat(this.view.getAllInstances()).hasSize(1);
+		verify(this.client, times(1)).getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+	}
+
+	@Test
+	void discoveryClientAnswersFromReadyView() {
+		when(this.client.getHealthChecksState(eq("any"), isNull(), any(QueryParams.class)))
+			.thenReturn(indexed(5, List.of()));
+		ConsulDiscoveryClient discoveryClient = new ConsulDiscoveryClient(this.client, this.properties, null,
+				this.view, null, null, null, null);
+
+		this.view.poll();
+		List<ServiceInstance> all = discoveryClient.getAllInstances();
+		List<ServiceInstance> billing = discoveryClient.getInstances("billing");
+
+		assertThat(all).hasSize(2);
+		assertThat(billing).isEqualTo(this.view.getInstances("billing"));
+		// callers get a list of their own, as with a query
+		billing.clear();
+		assertThat(this.view.getInstances("billing")).hasSize(1);
+		verify(this.client, times(1)).getCatalogServices(isNull(), any(QueryParams.class));
+	}
+
+	@Test
+	void ownTaskSchedulerIsShutDownWithTheView() {
+		ConsulHealthView view = new ConsulHealthView(this.client, this.properties);
+		ThreadPoolTaskScheduler taskScheduler = (ThreadPoolTaskScheduler) ReflectionTestUtils.getField(view,
+				"ownTaskScheduler");
+
+		view.destroy();
+
+		assertThat(taskScheduler.getScheduledExecutor().isShutdown()).isTrue();
+	}
+
+	private static <T> ResponseEntity<T> indexed(long index, T body) {
+		return ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, String.valueOf(index)).body(body);
+	}
+
+	private static Check check(String node, String service, String status) {
+		Check check = new Check();
+		check.setNode(node);
+		check.setCheckId((service != null) ? "service:" + service : "serfHealth");
+		check.setServiceId((service != null) ? service + "-1" : "");
+		check.setServiceName((service != null) ? service : "");
+		check.setStatus(Check.CheckStatus.valueOf(status.toUpperCase(Locale.ROOT)));
+		return check;
+	}
+
+	private static ResponseEntity<HealthServices> instances(String serviceId, String node, String address) {
+		HealthService.Node healthNode = new HealthService.Node();
+		healthNode.setNode(node);
+		HealthService.Service service = new HealthService.Service();
+		service.setId(serviceId + "-1");
+		service.setService(serviceId);
+		service.setAddress(address);
+		service.setPort(8080);
+		HealthService healthService = new HealthService();
+		healthService.setNode(healthNode);
+		healthService.setService(service);
+		HealthServices healthServices = new HealthServices();
+		healthServices.add(healthService);
+		return indexed(1, healthServices);
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.agent.Self;
+import org.springframework.cloud.consul.model.http.coordinate.Coordinate;
+import org.springframework.cloud.consul.model.http.coordinate.NodeCoordinate;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ConsulNodeCoordinates}.
+ */
+class ConsulNodeCoordinatesTests {
+
+	private ConsulClient client;
+
+	private ConsulDiscoveryProperties properties;
+
+	private ConsulNodeCoordinates coordinates;
+
+	@BeforeEach
+	void setup() {
+		this.client = mock(ConsulClient.class);
+		this.properties = new ConsulDiscoveryProperties(new InetUtils(new InetUtilsProperties()));
+		this.properties.setStreamingDecoder(true);
+		this.coordinates = new ConsulNodeCoordinates(this.client, this.properties, mock(TaskScheduler.class));
+		Self.Config config = new Self.Config();
+		config.setNodeName("local");
+		Self self = new Self();
+		self.setConfig(config);
+		when(this.client.getAgentSelf(isNull())).thenReturn(ResponseEntity.ok(self));
+		when(this.client.getCoordinateNodes(isNull(), any(QueryParams.class)))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "5")
+				.body(List.of(node("local", 0, 0), node("far", 0.004, 0.003), node("near", 0.001, 0),
+						node("other-segment", 0, 0, 0))));
+	}
+
+	@Test
+	void roundTripTimesAreEstimatedFromTheLocalNode() {
+		assertThat(this.coordinates.getRtt("near")).isNull();
+
+		this.coordinates.poll();
+
+		assertThat(this.coordinates.getRtt("local")).isEqualTo(Duration.ZERO);
+		assertThat(this.coordinates.getRtt("near")).isEqualTo(Duration.ofMillis(1));
+		assertThat(this.coordinates.getRtt("far")).isEqualTo(Duration.ofMillis(5));
+		assertThat(this.coordinates.getRtt("other-segment")).isNull();
+		assertThat(this.coordinates.getRtt("unknown")).isNull();
+	}
+
+	@Test
+	void instancesAreSortedNearestFirst() {
+		List<ServiceInstance> instances = List.of(instance("far"), instance("unknown"), instance("near"),
+				new DefaultServiceInstance("plain", "payments", "10.0.0.9", 8080, false), instance("local"));
+
+		assertThat(this.coordinates.sort(instances)).isSameAs(instances);
+		this.coordinates.poll();
+
+		assertThat(this.coordinates.sort(instances)).extracting(ServiceInstance::getInstanceId)
+			.containsExactly("local", "near", "far", "unknown", "plain");
+	}
+
+	@Test
+	void discoveryClientSortsInstances() {
+		HealthServices healthServices = new HealthServices();
+		healthServices.add(healthService("far"));
+		healthServices.add(healthService("near"));
+		when(this.client.getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(ResponseEntity.ok(healthServices));
+		ConsulDiscoveryClient discoveryClient = new ConsulDiscoveryClient(this.client, this.properties, null, null,
+				this.coordinates, null, null, null);
+
+		this.coordinates.poll();
+
+		assertThat(discoveryClient.getInstances("payments")).extracting(ServiceInstance::getInstanceId)
+			.containsExactly("near", "far");
+	}
+
+	@Test
+	void zonePreferenceIsKeptWhenSorting() {
+		this.properties.setInstanceZone("eu-1");
+		this.properties.getZoneAffinity().setEnabled(true);
+		this.properties.getZoneAffinity().setMinInstances(3);
+		ConsulZoneAffinity zoneAffinity = new ConsulZoneAffinity(this.properties);
+		List<ServiceInstance> instances = List.of(instance("near", "eu-2"), instance("far", "eu-1"),
+				instance("local", "eu-2"), instance("unknown", "eu-1"));
+
+		this.coordinates.poll();
+
+		assertThat(zoneAffinity.select("payments", instances, this.coordinates))
+			.extracting(ServiceInstance::getInstanceId)
+			.containsExactly("far", "unknown", "local", "near");
+	}
+
+	@Test
+	void nearAgentIsQueriedWhenEnabled() {
+		this.properties.setNearAgent(true);
+		when(this.client.getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(ResponseEntity.ok(new HealthServices()));
+
+		new ConsulDiscoveryClient(this.client, this.properties).getInstances("payments");
+
+		verify(this.client).getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				argThat(queryParams -> QueryParams.NEAR_AGENT.equals(queryParams.getNear())));
+	}
+
+	@Test
+	void ownTaskSchedulerIsShutDownWithTheCoordinates() {
+		ConsulNodeCoordinates coordinates = new ConsulNodeCoordinates(this.client, this.properties);
+		ThreadPoolTaskScheduler taskScheduler = (ThreadPoolTaskScheduler) ReflectionTestUtils.getField(coordinates,
+				"ownTaskScheduler");
+
+		coordinates.destroy();
+
+		assertThat(taskScheduler.getScheduledExecutor().isShutdown()).isTrue();
+	}
+
+	private static NodeCoordinate node(String name, double x, double y) {
+		Coordinate coordinate = new Coordinate();
+		coordinate.setVec(List.of(x, y));
+		NodeCoordinate node = new NodeCoordinate();
+		node.setNode(name);
+		node.setCoord(coordinate);
+		return node;
+	}
+
+	private static NodeCoordinate node(String name, double x, double y, double z) {
+		NodeCoordinate node = node(name, x, y);
+		node.getCoord().setVec(List.of(x, y, z));
+		return node;
+	}
+
+	private static ServiceInstance instance(String node) {
+		return new ConsulServiceInstance(healthService(node), "payments");
+	}
+
+	private static ServiceInstance instance(String node, String zone) {
+		HealthService healthService = healthService(node);
+		healthService.getService().setMeta(Map.of("zone", zone));
+		return new ConsulServiceInstance(healthService, "payments");
+	}
+
+	private static HealthService healthService(String node) {
+		HealthService.Node healthNode = new HealthService.Node();
+		healthNode.setNode(node);
+		HealthService.Service service = new HealthService.Service();
+		service.setId(node);
+		service.setService("payments");
+		service.setAddress("10.0.0.1");
+		service.setPort(8080);
+		HealthService healthService = new HealthService();
+		healthService.setNode(healthNode);
+		healthService.setService(service);
+		return healthService;
+	}
+
+}
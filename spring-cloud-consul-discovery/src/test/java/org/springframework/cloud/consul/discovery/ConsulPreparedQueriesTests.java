@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.query.PreparedQueryExecuteResponse;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ConsulPreparedQueries}.
+ */
+class ConsulPreparedQueriesTests {
+
+	private ConsulClient client;
+
+	private ConsulDiscoveryProperties properties;
+
+	private ConsulDiscoveryClient discoveryClient;
+
+	@BeforeEach
+	void setup() {
+		this.client = mock(ConsulClient.class);
+		this.properties = new ConsulDiscoveryProperties(new InetUtils(new InetUtilsProperties()));
+		this.properties.setStreamingDecoder(true);
+		this.properties.getPreparedQueries().getServices().put("payments", "payments-failover");
+		this.discoveryClient = new ConsulDiscoveryClient(this.client, this.properties);
+	}
+
+	@Test
+	void mappedServicesAreLookedUpWithTheirQuery() {
+		when(this.client.executePreparedQuery(eq("payments-failover"), isNull(), isNull(), any(QueryParams.class)))
+			.thenReturn(result(5, "10s", "dc2-1", "dc2-2"));
+
+		assertThat(this.discoveryClient.getInstances("payments")).extracting(ServiceInstance::getInstanceId)
+			.containsExactly("dc2-1", "dc2-2");
+		verify(this.client, never()).getHealthServiceInstances(eq("payments"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+	}
+
+	@Test
+	void resultsAreCachedForTheirTtl() {
+		when(this.client.executePreparedQuery(eq("payments-failover"), isNull(), isNull(), any(QueryParams.class)))
+			.thenReturn(result(5, "10s", "dc2-1"));
+
+		List<ServiceInstance> first = this.discoveryClient.getInstances("payments");
+
+		assertThat(this.discoveryClient.getInstances("payments")).isEqualTo(first).isNotSameAs(first);
+		verify(this.client, times(1)).executePreparedQuery(eq("payments-failover"), isNull(), isNull(),
+				any(QueryParams.class));
+	}
+
+	@Test
+	void instancesAreKeptWhileTheIndexIsUnchanged() {
+		when(this.client.executePreparedQuery(eq("payments-failover"), isNull(), isNull(), any(QueryParams.class)))
+			.thenReturn(result(5, "", "dc2-1"), result(5, "", "dc2-1"), result(6, "", "dc1-1"));
+
+		List<ServiceInstance> first = this.discoveryClient.getInstances("payments");
+
+		assertThat(this.discoveryClient.getInstances("payments")).isEqualTo(first).isNotSameAs(first);
+		assertThat(this.discoveryClient.getInstances("payments")).extracting(ServiceInstance::getInstanceId)
+			.containsExactly("dc1-1");
+	}
+
+	@Test
+	void previousInstancesAreReturnedWhenTheQueryFails() {
+		when(this.client.executePreparedQuery(eq("payments-failover"), isNull(), isNull(), any(QueryParams.class)))
+			.thenReturn(result(5, "0s", "dc2-1"))
+			.thenThrow(new IllegalStateException("no cluster leader"));
+
+		List<ServiceInstance> first = this.discoveryClient.getInstances("payments");
+
+		assertThat(this.discoveryClient.getInstances("payments")).isEqualTo(first).isNotSameAs(first);
+		assertThatIllegalStateException()
+			.isThrownBy(() -> new ConsulDiscoveryClient(this.client, this.properties).getInstances("payments"));
+	}
+
+	private static ResponseEntity<PreparedQueryExecuteResponse> result(long index, String ttl, String... ids) {
+		PreparedQueryExecuteResponse.Dns dns = new PreparedQueryExecuteResponse.Dns();
+		dns.setTtl(ttl);
+		PreparedQueryExecuteResponse result = new PreparedQueryExecuteResponse();
+		result.setService("payments");
+		result.setDns(dns);
+		result.setNodes(Arrays.stream(ids).map(ConsulPreparedQueriesTests::healthService).toList());
+		return ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, String.valueOf(index)).body(result);
+	}
+
+	private static HealthService healthService(String id) {
+		HealthService.Node node = new HealthService.Node();
+		node.setNode("node-" + id);
+		HealthService.Service service = new HealthService.Service();
+		service.setId(id);
+		service.setService("payments");
+		service.setAddress("10.0.0.1");
+		service.setPort(8080);
+		HealthService healthService = new HealthService();
+		healthService.setNode(node);
+		healthService.setService(service);
+		return healthService;
+	}
+
+}
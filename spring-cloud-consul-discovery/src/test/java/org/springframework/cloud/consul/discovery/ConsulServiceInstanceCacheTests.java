@@ -0,0 +1,307 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.consul.ConsulClient;
+import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.model.http.ConsulHeaders;
+import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ConsulServiceInstanceCache}.
+ */
+class ConsulServiceInstanceCacheTests {
+
+	private ConsulClient client;
+
+	private ConsulDiscoveryProperties properties;
+
+	private ConsulServiceInstanceCache cache;
+
+	@BeforeEach
+	void setup() {
+		this.client = mock(ConsulClient.class);
+		this.properties = new ConsulDiscoveryProperties(new InetUtils(new InetUtilsProperties()));
+		this.properties.setStreamingDecoder(true);
+		this.cache = new ConsulServiceInstanceCache(this.client, this.properties, mock(TaskScheduler.class));
+		this.cache.start();
+	}
+
+	@Test
+	void lookupsAreServedFromCache() {
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"));
+
+		List<ServiceInstance> first = this.cache.getInstances("myservice");
+		List<ServiceInstance> second = this.cache.getInstances("myservice");
+
+		assertThat(first).hasSize(1);
+		assertThat(first.get(0).getHost()).isEqualTo("10.0.0.1");
+		assertThat(second).isSameAs(first);
+		verify(this.client, times(1)).getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+	}
+
+	@Test
+	void watchUpdatesSnapshotWhenIndexChanges() {
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"))
+			.thenReturn(response(1, "10.0.0.1"))
+			.thenReturn(response(2, "10.0.0.2"));
+
+		List<ServiceInstance> initial = this.cache.getInstances("myservice");
+
+		this.cache.watch("myservice");
+		assertThat(this.cache.getInstances("myservice")).isSameAs(initial);
+
+		this.cache.watch("myservice");
+		List<ServiceInstance> updated = this.cache.getInstances("myservice");
+		assertThat(updated).isNotSameAs(initial);
+		assertThat(updated.get(0).getHost()).isEqualTo("10.0.0.2");
+	}
+
+	@Test
+	void idleServicesAreEvicted() {
+		this.properties.getCache().setIdleTimeout(Duration.ZERO);
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"));
+
+		this.cache.getInstances("myservice");
+		assertThat(this.cache.getCachedServices()).containsExactly("myservice");
+
+		this.cache.watch("myservice");
+		assertThat(this.cache.getCachedServices()).isEmpty();
+	}
+
+	@Test
+	void staleSnapshotIsRefetched() {
+		this.properties.getCache().setMaxStaleness(Duration.ZERO);
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"))
+			.thenReturn(response(2, "10.0.0.2"));
+
+		this.cache.getInstances("myservice");
+		List<ServiceInstance> instances = this.cache.getInstances("myservice");
+
+		assertThat(instances.get(0).getHost()).isEqualTo("10.0.0.2");
+	}
+
+	@Test
+	void staleSnapshotIsServedWhenRefreshFails() {
+		this.properties.getCache().setMaxStaleness(Duration.ZERO);
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"))
+			.thenThrow(new IllegalStateException("agent unavailable"));
+
+		List<ServiceInstance> initial = this.cache.getInstances("myservice");
+
+		assertThat(this.cache.getInstances("myservice")).isSameAs(initial);
+	}
+
+	@Test
+	void olderResponsesDoNotReplaceNewerInstances() {
+		this.properties.getCache().setMaxStaleness(Duration.ZERO);
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"))
+			.thenReturn(response(3, "10.0.0.3"))
+			.thenReturn(response(2, "10.0.0.2"));
+
+		this.cache.getInstances("myservice");
+		this.cache.watch("myservice");
+
+		assertThat(this.cache.getInstances("myservice").get(0).getHost()).isEqualTo("10.0.0.3");
+	}
+
+	@Test
+	void smallerIndexFromWatchResetsSnapshot() {
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(5, "10.0.0.1"))
+			.thenReturn(response(2, "10.0.0.2"));
+
+		this.cache.getInstances("myservice");
+		this.cache.watch("myservice");
+
+		assertThat(this.cache.getInstances("myservice").get(0).getHost()).isEqualTo("10.0.0.2");
+	}
+
+	@Test
+	void filterIsSentWithQueries() {
+		this.properties
+			.setServerListQueryFilters(Collections.singletonMap("myservice", "Service.Meta.zone == \"eu-1\""));
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"));
+
+		this.cache.getInstances("myservice");
+		this.cache.watch("myservice");
+
+		ArgumentCaptor<QueryParams> queryParams = ArgumentCaptor.forClass(QueryParams.class);
+		verify(this.client, times(2)).getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				queryParams.capture());
+		assertThat(queryParams.getAllValues()).extracting(QueryParams::getFilter)
+			.containsOnly("Service.Meta.zone == \"eu-1\"");
+	}
+
+	@Test
+	void agentCacheIsQueriedWhenEnabled() {
+		this.properties.getAgentCache().setEnabled(true);
+		this.properties.getAgentCache().setMaxAge(Duration.ofSeconds(30));
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"));
+
+		this.cache.getInstances("myservice");
+
+		ArgumentCaptor<QueryParams> queryParams = ArgumentCaptor.forClass(QueryParams.class);
+		verify(this.client).getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				queryParams.capture());
+		assertThat(queryParams.getValue().isCached()).isTrue();
+		assertThat(queryParams.getValue().getMaxAge()).isEqualTo(Duration.ofSeconds(30));
+		assertThat(queryParams.getValue().getStaleIfError()).isNull();
+	}
+
+	@Test
+	void fullHealthServicesAreQueriedWithoutStreamingDecoder() {
+		this.properties.setStreamingDecoder(false);
+		when(this.client.getHealthServices(eq("myservice"), anyBoolean(), isNull(), isNull(), any(QueryParams.class)))
+			.thenReturn(ResponseEntity.ok()
+				.header(ConsulHeaders.INDEX_HEADER, "1")
+				.body(new ArrayList<>(response(1, "10.0.0.1").getBody())));
+
+		List<ServiceInstance> instances = this.cache.getInstances("myservice");
+
+		assertThat(instances).extracting(ServiceInstance::getHost).containsExactly("10.0.0.1");
+		verify(this.client, never()).getHealthServiceInstances(anyString(), anyBoolean(), any(), any(), any());
+	}
+
+	@Test
+	void agentCacheIsNotQueriedWithConsistentMode() {
+		this.properties.getAgentCache().setEnabled(true);
+		this.properties.setConsistencyMode(ConsulDiscoveryProperties.ConsistencyMode.CONSISTENT);
+
+		QueryParams queryParams = new QueryParams(ConsulDiscoveryClient.getConsistencyMode(this.properties));
+
+		assertThat(ConsulDiscoveryClient.withAgentCache(queryParams, this.properties).isCached()).isFalse();
+	}
+
+	@Test
+	void concurrentFirstLookupsQueryOnce() throws Exception {
+		CountDownLatch queried = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(this.client.getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenAnswer(invocation -> {
+				queried.countDown();
+				release.await(5, TimeUnit.SECONDS);
+				return response(1, "10.0.0.1");
+			});
+
+		CompletableFuture<List<ServiceInstance>> first = CompletableFuture
+			.supplyAsync(() -> this.cache.getInstances("myservice"));
+		assertThat(queried.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread waiting = new Thread(() -> this.cache.getInstances("myservice"));
+		waiting.start();
+		await().until(() -> waiting.getState() == Thread.State.WAITING);
+		release.countDown();
+		waiting.join(5000);
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).hasSize(1);
+		verify(this.client, times(1)).getHealthServiceInstances(eq("myservice"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class));
+	}
+
+	@Test
+	void watchPoolGrowsWithCachedServices() {
+		when(this.client.getHealthServiceInstances(anyString(), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(response(1, "10.0.0.1"));
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.setPoolSize(1);
+		taskScheduler.initialize();
+		try {
+			ConsulServiceInstanceCache cache = new ConsulServiceInstanceCache(this.client, this.properties,
+					taskScheduler);
+			cache.start();
+
+			cache.getInstances("payments");
+			cache.getInstances("billing");
+			cache.getInstances("shipping");
+
+			assertThat(taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize()).isEqualTo(3);
+			cache.stop();
+		}
+		finally {
+			taskScheduler.shutdown();
+		}
+	}
+
+	private ResponseEntity<HealthServices> response(long index, String host) {
+		HealthService.Node node = new HealthService.Node();
+		node.setNode("node1");
+		HealthService.Service service = new HealthService.Service();
+		service.setId("myservice-1");
+		service.setService("myservice");
+		service.setAddress(host);
+		service.setPort(8080);
+		HealthService healthService = new HealthService();
+		healthService.setNode(node);
+		healthService.setService(service);
+		HealthServices healthServices = new HealthServices();
+		healthServices.add(healthService);
+		return ResponseEntity.ok().header(ConsulHeaders.INDEX_HEADER, String.valueOf(index)).body(healthServices);
+	}
+
+}
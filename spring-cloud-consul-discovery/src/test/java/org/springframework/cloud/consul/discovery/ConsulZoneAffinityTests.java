@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.consul.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ConsulZoneAffinity}.
+ */
+class ConsulZoneAffinityTests {
+
+	private ConsulDiscoveryProperties properties;
+
+	private ConsulZoneAffinity zoneAffinity;
+
+	private final List<ServiceInstance> instances = List.of(instance("a", "eu-2"), instance("b", "eu-1"),
+			instance("c", null), instance("d", "EU-1"));
+
+	@BeforeEach
+	void setup() {
+		this.properties = new ConsulDiscoveryProperties(new InetUtils(new InetUtilsProperties()));
+		this.properties.setInstanceZone("eu-1");
+		this.properties.getZoneAffinity().setEnabled(true);
+		this.zoneAffinity = new ConsulZoneAffinity(this.properties);
+	}
+
+	@Test
+	void sameZoneInstancesAreSelected() {
+		assertThat(this.zoneAffinity.select("payments", this.instances)).extracting(ServiceInstance::getInstanceId)
+			.containsExactly("b", "d");
+	}
+
+	@Test
+	void otherZonesSpillOverBelowMinInstances() {
+		this.properties.getZoneAffinity().setMinInstances(3);
+
+		assertThat(this.zoneAffinity.select("payments", this.instances)).extracting(ServiceInstance::getInstanceId)
+			.containsExactly("b", "d", "a", "c");
+	}
+
+	@Test
+	void indexIsReusedForTheSameInstanceList() {
+		List<ServiceInstance> first = this.zoneAffinity.select("payments", this.instances);
+
+		assertThat(this.zoneAffinity.select("payments", this.instances)).isSameAs(first);
+		assertThat(this.zoneAffinity.select("payments", new ArrayList<>(this.instances))).isNotSameAs(first)
+			.isEqualTo(first);
+	}
+
+	@Test
+	void instancesAreUnchangedWithoutZone() {
+		this.properties.setInstanceZone(null);
+		assertThat(this.zoneAffinity.select("payments", this.instances)).isSameAs(this.instances);
+
+		this.properties.setInstanceZone("eu-1");
+		this.properties.getZoneAffinity().setEnabled(false);
+		assertThat(this.zoneAffinity.select("payments", this.instances)).isSameAs(this.instances);
+	}
+
+	private static ServiceInstance instance(String id, String zone) {
+		Map<String, String> metadata = (zone != null) ? Map.of("zone", zone) : Map.of();
+		return new DefaultServiceInstance(id, "payments", "10.0.0.1", 8080, false, metadata);
+	}
+
+}
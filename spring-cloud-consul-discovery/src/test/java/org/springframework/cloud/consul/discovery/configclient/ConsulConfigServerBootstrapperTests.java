@@ -19,6 +19,7 @@ package org.springframework.cloud.consul.discovery.configclient;
 import java.util.Collections;
 import java.util.concurrent.atomic.AtomicReference;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.logging.Log;
 import org.junit.jupiter.api.Test;
 
@@ -33,6 +34,8 @@ import org.springframework.boot.context.properties.bind.Bindable;
 import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
 import org.springframework.cloud.config.client.ConfigServerInstanceProvider;
+import org.springframework.cloud.consul.ConsulAutoConfiguration;
+import org.springframework.cloud.consul.ConsulClientMetrics;
 import org.springframework.cloud.consul.discovery.ConsulDiscoveryClient;
 import org.springframework.context.ConfigurableApplicationContext;
 
@@ -119,6 +122,28 @@ public class ConsulConfigServerBootstrapperTests {
 		context.close();
 	}
 
+	@Test
+	public void bootstrapClientCallsAreMetered() {
+		AtomicReference<ConsulClientMetrics> bootstrapMetrics = new AtomicReference<>();
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(TestConfig.class)
+			.properties("--server.port=0", "spring.cloud.config.discovery.enabled=true",
+					"spring.cloud.consul.discovery.hostname=myhost",
+					"spring.cloud.service-registry.auto-registration.enabled=false")
+			.addBootstrapRegistryInitializer(registry -> registry.addCloseListener(
+					event -> bootstrapMetrics.set(event.getBootstrapContext().get(ConsulClientMetrics.class))))
+			.run();
+		ConsulClientMetrics metrics = context.getBean(ConsulAutoConfiguration.CONSUL_CLIENT_METRICS_NAME,
+				ConsulClientMetrics.class);
+		assertThat(metrics).isNotNull().isSameAs(bootstrapMetrics.get());
+
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		metrics.bindTo(registry);
+		ConsulDiscoveryClient discoveryClient = context.getBean(ConsulDiscoveryClient.class);
+		assertThatThrownBy(discoveryClient::getServices).hasMessageContaining("Connection refused");
+		assertThat(registry.find("consul.client.requests").tag("status", "IO_ERROR").timer()).isNotNull();
+		context.close();
+	}
+
 	@SpringBootConfiguration
 	@EnableAutoConfiguration
 	static class TestConfig {
@@ -19,20 +19,24 @@ package org.springframework.cloud.consul.discovery.reactive;
 import java.util.List;
 import java.util.Map;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
 import org.springframework.cloud.consul.ConsulClient;
 import org.springframework.cloud.consul.ConsulClient.QueryParams;
+import org.springframework.cloud.consul.ReactiveConsulClient;
 import org.springframework.cloud.consul.discovery.ConsulDiscoveryProperties;
 import org.springframework.cloud.consul.model.http.health.HealthService;
+import org.springframework.cloud.consul.model.http.health.HealthServices;
 import org.springframework.http.ResponseEntity;
 
 import static java.util.Collections.emptyList;
@@ -40,8 +44,10 @@ import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -55,14 +61,19 @@ import static org.mockito.Mockito.when;
 class ConsulReactiveDiscoveryClientTests {
 
 	@Mock
-	private ConsulClient consulClient;
+	private ReactiveConsulClient consulClient;
 
 	@Mock
 	private ConsulDiscoveryProperties properties;
 
-	@InjectMocks
 	private ConsulReactiveDiscoveryClient client;
 
+	@BeforeEach
+	void setup() {
+		lenient().when(properties.getAgentCache()).thenReturn(new ConsulDiscoveryProperties.AgentCache());
+		client = new ConsulReactiveDiscoveryClient(consulClient, properties);
+	}
+
 	@Test
 	public void verifyDefaults() {
 		when(properties.getOrder()).thenReturn(1);
@@ -74,7 +85,7 @@ class ConsulReactiveDiscoveryClientTests {
 	public void shouldReturnEmptyFluxOfServicesWhenConsulFails() {
 		Flux<String> services = client.getServices();
 		when(consulClient.getCatalogServices(any(), any()))
-			.thenThrow(new RuntimeException("Possible runtime exception"));
+			.thenReturn(Mono.error(new RuntimeException("Possible runtime exception")));
 		StepVerifier.create(services).expectNextCount(0).expectComplete().verify();
 		verify(consulClient).getCatalogServices(any(), any());
 	}
@@ -125,7 +136,7 @@ class ConsulReactiveDiscoveryClientTests {
 		configureCommonProperties();
 		when(consulClient.getHealthServices(eq("existing-service"), any(boolean.class), any(), any(List.class),
 				any(QueryParams.class)))
-			.thenThrow(new RuntimeException("Possible runtime exception"));
+			.thenReturn(Mono.error(new RuntimeException("Possible runtime exception")));
 		Flux<ServiceInstance> instances = client.getInstances("existing-service");
 		StepVerifier.create(instances).expectNextCount(0).expectComplete().verify();
 		verify(consulClient).getHealthServices(eq("existing-service"), any(boolean.class), any(), any(List.class),
@@ -135,7 +146,7 @@ class ConsulReactiveDiscoveryClientTests {
 	@Test
 	public void shouldReturnFluxOfServiceInstances() {
 		configureCommonProperties();
-		ResponseEntity<List<HealthService>> response = consulInstancesResponse();
+		Mono<ResponseEntity<List<HealthService>>> response = consulInstancesResponse();
 		when(consulClient.getHealthServices(eq("existing-service"), any(boolean.class), any(), any(List.class),
 				any(QueryParams.class)))
 			.thenReturn(response);
@@ -152,7 +163,7 @@ class ConsulReactiveDiscoveryClientTests {
 	public void shouldReturnFluxOfServiceInstancesWithAclToken() {
 		configureCommonProperties();
 		when(properties.getAclToken()).thenReturn("aclToken");
-		ResponseEntity<List<HealthService>> response = consulInstancesResponse();
+		Mono<ResponseEntity<List<HealthService>>> response = consulInstancesResponse();
 		when(consulClient.getHealthServices(eq("existing-service"), any(boolean.class), any(), any(List.class),
 				any(QueryParams.class)))
 			.thenReturn(response);
@@ -165,8 +176,40 @@ class ConsulReactiveDiscoveryClientTests {
 				any(QueryParams.class));
 	}
 
-	private ResponseEntity<Map<String, List<String>>> consulServicesResponse() {
-		return ResponseEntity.ok(singletonMap("my-service", singletonList("")));
+	@Test
+	@SuppressWarnings("deprecation")
+	public void deprecatedConstructorQueriesBlockingClient() {
+		ConsulClient blockingClient = mock(ConsulClient.class);
+		ConsulDiscoveryProperties discoveryProperties = new ConsulDiscoveryProperties(
+				new InetUtils(new InetUtilsProperties()));
+		discoveryProperties.setStreamingDecoder(true);
+		HealthService.Service service = new HealthService.Service();
+		service.setId("my-service-1");
+		service.setService("my-service");
+		service.setAddress("localhost");
+		service.setPort(8080);
+		HealthService healthService = new HealthService();
+		healthService.setNode(new HealthService.Node());
+		healthService.setService(service);
+		HealthServices healthServices = new HealthServices();
+		healthServices.add(healthService);
+		when(blockingClient.getCatalogServices(isNull(), any(QueryParams.class)))
+			.thenReturn(ResponseEntity.ok(singletonMap("my-service", emptyList())));
+		when(blockingClient.getHealthServiceInstances(eq("my-service"), anyBoolean(), isNull(), isNull(),
+				any(QueryParams.class)))
+			.thenReturn(ResponseEntity.ok(healthServices));
+		ConsulReactiveDiscoveryClient deprecatedClient = new ConsulReactiveDiscoveryClient(blockingClient,
+				discoveryProperties);
+
+		StepVerifier.create(deprecatedClient.getServices()).expectNext("my-service").expectComplete().verify();
+		StepVerifier.create(deprecatedClient.getInstances("my-service"))
+			.assertNext(instance -> assertThat(instance.getPort()).isEqualTo(8080))
+			.expectComplete()
+			.verify();
+	}
+
+	private Mono<ResponseEntity<Map<String, List<String>>>> consulServicesResponse() {
+		return Mono.just(ResponseEntity.ok(singletonMap("my-service", singletonList(""))));
 	}
 
 	private void configureCommonProperties() {
@@ -174,11 +217,11 @@ class ConsulReactiveDiscoveryClientTests {
 		when(properties.isQueryPassing()).thenReturn(false);
 	}
 
-	private ResponseEntity<List<HealthService>> emptyConsulInstancesResponse() {
-		return ResponseEntity.ok(emptyList());
+	private Mono<ResponseEntity<List<HealthService>>> emptyConsulInstancesResponse() {
+		return Mono.just(ResponseEntity.ok(emptyList()));
 	}
 
-	private ResponseEntity<List<HealthService>> consulInstancesResponse() {
+	private Mono<ResponseEntity<List<HealthService>>> consulInstancesResponse() {
 		HealthService healthService = mock(HealthService.class);
 		HealthService.Service service = mock(HealthService.Service.class);
 
@@ -187,8 +230,7 @@ class ConsulReactiveDiscoveryClientTests {
 		when(service.getPort()).thenReturn(443);
 		lenient().when(service.getTags()).thenReturn(singletonList("secure=true"));
 
-		return ResponseEntity.ok(singletonList(healthService)); // , 0L, true,
-																// System.currentTimeMillis());
+		return Mono.just(ResponseEntity.ok(singletonList(healthService)));
 	}
 
 }